@@ -0,0 +1,61 @@
+package org.checkerframework.checker.dependencyinjection;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import javax.lang.model.element.AnnotationMirror;
+import org.checkerframework.checker.dependencyinjection.utils.BoundClassSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures how {@code @Bind} values accumulate: the work {@code DependencyInjectionTransfer} does
+ * when one more bound class is added to a qualifier that already names a given number of classes.
+ * Like the transfer function, the benchmarks take the {@link BoundClassSet} of the qualifier,
+ * union it with the new classes, and create the {@code @Bind} annotation of the result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BindAccumulationBenchmark {
+
+  /** The number of classes already named by the accumulated qualifier. */
+  @Param({"10", "100", "1000", "10000"})
+  public int boundClasses;
+
+  /** The accumulated qualifier. */
+  private AnnotationMirror accumulated;
+
+  /** The index of the next class to accumulate; varies so that results are not all cached. */
+  private int next;
+
+  /** Holds the type factory under test. */
+  private CheckerHarness harness;
+
+  @Setup
+  public void setUp() throws IOException {
+    harness = CheckerHarness.analyze("Empty", "class Empty {}");
+    accumulated = harness.bindAnnotation(0, boundClasses);
+    next = boundClasses;
+  }
+
+  @Benchmark
+  public AnnotationMirror accumulateOne() {
+    BoundClassSet added =
+        harness.factory.getBoundClassSet(
+            Collections.singletonList("bench.Bound" + (next++ % (2 * boundClasses))));
+    return harness.factory.createBindAnnotation(
+        harness.factory.getBoundClasses(accumulated).union(added));
+  }
+
+  @Benchmark
+  public AnnotationMirror recreateAccumulated() {
+    return harness.factory.createBindAnnotation(harness.factory.getBoundClasses(accumulated));
+  }
+}
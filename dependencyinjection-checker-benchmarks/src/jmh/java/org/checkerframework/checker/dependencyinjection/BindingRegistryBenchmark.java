@@ -0,0 +1,71 @@
+package org.checkerframework.checker.dependencyinjection;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.dependencyinjection.utils.BindingRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Measures inserts into and lookups in a {@link BindingRegistry} of a given size. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BindingRegistryBenchmark {
+
+  /** The number of bound classes. */
+  @Param({"10", "100", "1000", "10000"})
+  public int boundClasses;
+
+  /** The names of the bound classes. */
+  private List<String> boundClassNames;
+
+  /** The names of the classes the bound classes are bound to. */
+  private List<String> targetClassNames;
+
+  /** A registry that holds a binding for every bound class. */
+  private BindingRegistry populated;
+
+  @Setup
+  public void setUp() {
+    boundClassNames = CheckerHarness.boundClassNames(0, boundClasses);
+    targetClassNames = CheckerHarness.boundClassNames(boundClasses, 2 * boundClasses);
+    populated = populate();
+  }
+
+  /** Returns a new registry with a binding for every bound class. */
+  private BindingRegistry populate() {
+    BindingRegistry registry = new BindingRegistry();
+    for (int i = 0; i < boundClasses; i++) {
+      registry.addBoundClass(boundClassNames.get(i));
+      registry.putBinding(boundClassNames.get(i), null, targetClassNames.get(i), false);
+    }
+    return registry;
+  }
+
+  @Benchmark
+  public BindingRegistry insert() {
+    return populate();
+  }
+
+  @Benchmark
+  public void lookup(Blackhole blackhole) {
+    for (int i = 0; i < boundClasses; i++) {
+      blackhole.consume(populated.isBound(boundClassNames.get(i), null));
+      blackhole.consume(populated.getTarget(boundClassNames.get(i), null));
+    }
+  }
+
+  @Benchmark
+  public void lookupMissing(Blackhole blackhole) {
+    for (int i = 0; i < boundClasses; i++) {
+      blackhole.consume(populated.isBound(targetClassNames.get(i), null));
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package org.checkerframework.checker.dependencyinjection;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreeScanner;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.lang.model.element.AnnotationMirror;
+import javax.tools.JavaCompiler;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+/**
+ * Runs the Dependency Injection Checker in-process on a synthetic source file and keeps the
+ * resulting type factory alive, so that benchmarks can exercise its internals.
+ *
+ * <p>The compilation is only analyzed, never closed, so the javac context that backs the type
+ * factory remains usable for as long as the harness is reachable.
+ */
+final class CheckerHarness {
+
+  /** The compilation task; held so that its context is not released. */
+  private final JavacTask task;
+
+  /** The type factory of the checker that processed the source. */
+  final DependencyInjectionAnnotatedTypeFactory factory;
+
+  /** Every method invocation in the source, in source order. */
+  final List<MethodInvocationTree> invocations;
+
+  private CheckerHarness(
+      JavacTask task,
+      DependencyInjectionAnnotatedTypeFactory factory,
+      List<MethodInvocationTree> invocations) {
+    this.task = task;
+    this.factory = factory;
+    this.invocations = invocations;
+  }
+
+  /**
+   * Type-checks a source file with the Dependency Injection Checker.
+   *
+   * @param className the name of the top-level class declared by {@code source}
+   * @param source the contents of the source file
+   * @return a harness holding the checker's type factory and the method invocations of the source
+   * @throws IOException if the source cannot be parsed
+   */
+  static CheckerHarness analyze(String className, String source) throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    CapturingChecker checker = new CapturingChecker();
+    JavacTask task =
+        (JavacTask)
+            compiler.getTask(
+                null,
+                null,
+                null,
+                Arrays.asList("-classpath", System.getProperty("java.class.path"), "-nowarn"),
+                null,
+                Collections.singletonList(new StringSource(className, source)));
+    task.setProcessors(Collections.singletonList(checker));
+
+    Iterable<? extends CompilationUnitTree> units = task.parse();
+    task.analyze();
+    if (checker.factory == null) {
+      throw new IllegalStateException("The checker did not process " + className);
+    }
+
+    List<MethodInvocationTree> invocations = new ArrayList<>();
+    for (CompilationUnitTree unit : units) {
+      unit.accept(
+          new TreeScanner<Void, Void>() {
+            @Override
+            public Void visitMethodInvocation(MethodInvocationTree tree, Void p) {
+              invocations.add(tree);
+              return super.visitMethodInvocation(tree, p);
+            }
+          },
+          null);
+    }
+    return new CheckerHarness(task, checker.factory, invocations);
+  }
+
+  /**
+   * Returns the {@code @Bind} annotation for the synthetic classes {@code Bound<from>} to {@code
+   * Bound<to - 1>}.
+   *
+   * @param from the index of the first class, inclusive
+   * @param to the index of the last class, exclusive
+   * @return the {@code @Bind} annotation for the given range of synthetic classes
+   */
+  AnnotationMirror bindAnnotation(int from, int to) {
+    return factory.createAccumulatorAnnotation(boundClassNames(from, to));
+  }
+
+  /**
+   * Returns the names of the synthetic classes {@code Bound<from>} to {@code Bound<to - 1>}.
+   *
+   * @param from the index of the first class, inclusive
+   * @param to the index of the last class, exclusive
+   * @return the names of the given range of synthetic classes
+   */
+  static List<String> boundClassNames(int from, int to) {
+    List<String> names = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      names.add("bench.Bound" + i);
+    }
+    return names;
+  }
+
+  /** A checker that remembers its type factory once type processing is over. */
+  static class CapturingChecker extends DependencyInjectionChecker {
+
+    /** The type factory, set once type processing is over. */
+    DependencyInjectionAnnotatedTypeFactory factory;
+
+    @Override
+    public void typeProcessingOver() {
+      factory = (DependencyInjectionAnnotatedTypeFactory) getTypeFactory();
+      super.typeProcessingOver();
+    }
+  }
+
+  /** A source file held in memory. */
+  private static class StringSource extends SimpleJavaFileObject {
+
+    /** The contents of the source file. */
+    private final String source;
+
+    StringSource(String className, String source) {
+      super(URI.create("string:///" + className + Kind.SOURCE.extension), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package org.checkerframework.checker.dependencyinjection;
+
+import com.sun.source.tree.MethodInvocationTree;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the classification of method invocations as Guice calls, on a synthetic module that
+ * binds a given number of classes. As in real code, most of the invocations are not Guice calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GuiceCallClassificationBenchmark {
+
+  /** The number of classes bound by the synthetic module. */
+  @Param({"10", "100", "1000", "10000"})
+  public int boundClasses;
+
+  /** The number of bindings per {@code configure}-like method of the synthetic module. */
+  private static final int BINDINGS_PER_METHOD = 50;
+
+  /** The number of non-Guice invocations per binding in the synthetic module. */
+  private static final int OTHER_CALLS_PER_BINDING = 9;
+
+  /** Every method invocation of the synthetic module. */
+  private List<MethodInvocationTree> invocations;
+
+  /** Holds the type factory under test. */
+  private CheckerHarness harness;
+
+  @Setup
+  public void setUp() throws IOException {
+    harness = CheckerHarness.analyze("BenchModule", source(boundClasses));
+    invocations = harness.invocations;
+  }
+
+  /**
+   * Returns the source of a module that binds {@code boundClasses} interfaces to implementations.
+   *
+   * @param boundClasses the number of classes to bind
+   * @return the source of the synthetic module
+   */
+  private static String source(int boundClasses) {
+    StringBuilder source = new StringBuilder();
+    source.append("import com.google.inject.AbstractModule;\n");
+    source.append("import com.google.inject.name.Names;\n");
+    source.append("public class BenchModule extends AbstractModule {\n");
+    for (int i = 0; i < boundClasses; i++) {
+      source.append("  interface Bound").append(i).append(" {}\n");
+      source
+          .append("  static class Impl")
+          .append(i)
+          .append(" implements Bound")
+          .append(i)
+          .append(" {}\n");
+    }
+    for (int i = 0; i < boundClasses; i++) {
+      if (i % BINDINGS_PER_METHOD == 0) {
+        if (i != 0) {
+          source.append("  }\n");
+        }
+        source.append("  void configure").append(i).append("(StringBuilder sb) {\n");
+      }
+      for (int j = 0; j < OTHER_CALLS_PER_BINDING; j++) {
+        source.append("    sb.append(").append(j).append(").toString();\n");
+      }
+      source.append("    bind(Bound").append(i).append(".class)");
+      if (i % 2 == 0) {
+        source.append(".annotatedWith(Names.named(\"n").append(i).append("\"))");
+      }
+      source.append(".to(Impl").append(i).append(".class);\n");
+    }
+    if (boundClasses > 0) {
+      source.append("  }\n");
+    }
+    source.append("  @Override\n  protected void configure() {}\n}\n");
+    return source.toString();
+  }
+
+  @Benchmark
+  public void classifyAll(Blackhole blackhole) {
+    for (MethodInvocationTree invocation : invocations) {
+      blackhole.consume(harness.factory.classifyGuiceCall(invocation));
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package org.checkerframework.checker.dependencyinjection;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.lang.model.element.AnnotationMirror;
+import org.checkerframework.framework.type.QualifierHierarchy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the lattice operations of {@code DependencyInjectionQualifierHierarchy} on {@code @Bind}
+ * qualifiers that name a given number of bound classes.
+ *
+ * <p>The hierarchy memoizes the result of each operation per pair of qualifiers, so asking the same
+ * hierarchy about the same pair again only measures a cache hit. The {@code cold} benchmarks
+ * therefore ask a hierarchy created for each invocation, whose caches are empty, and so measure the
+ * set operations behind the caches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class QualifierHierarchyBenchmark {
+
+  /** The number of classes named by the largest qualifier. */
+  @Param({"10", "100", "1000", "10000"})
+  public int boundClasses;
+
+  /** The qualifier hierarchy under test. */
+  private QualifierHierarchy hierarchy;
+
+  /** {@code @Bind} naming every bound class. */
+  private AnnotationMirror all;
+
+  /** {@code @Bind} naming the first half of the bound classes. */
+  private AnnotationMirror firstHalf;
+
+  /** {@code @Bind} naming the second half of the bound classes. */
+  private AnnotationMirror secondHalf;
+
+  /** {@code @BindAnnotatedWith} for the first bound class. */
+  private AnnotationMirror annotatedWith;
+
+  /** Holds the javac context that backs {@link #hierarchy}. */
+  private CheckerHarness harness;
+
+  @Setup
+  public void setUp() throws IOException {
+    harness = CheckerHarness.analyze("Empty", "class Empty {}");
+    hierarchy = harness.factory.getQualifierHierarchy();
+    all = harness.bindAnnotation(0, boundClasses);
+    firstHalf = harness.bindAnnotation(0, boundClasses / 2);
+    secondHalf = harness.bindAnnotation(boundClasses / 2, boundClasses);
+    annotatedWith = harness.factory.createBindAnnotatedWithAnnotation("bench.Bound0", "name");
+  }
+
+  @Benchmark
+  public boolean isSubtype() {
+    return hierarchy.isSubtype(all, firstHalf);
+  }
+
+  @Benchmark
+  public boolean isNotSubtype() {
+    return hierarchy.isSubtype(firstHalf, secondHalf);
+  }
+
+  @Benchmark
+  public AnnotationMirror leastUpperBound() {
+    return hierarchy.leastUpperBound(firstHalf, secondHalf);
+  }
+
+  @Benchmark
+  public AnnotationMirror greatestLowerBound() {
+    return hierarchy.greatestLowerBound(firstHalf, secondHalf);
+  }
+
+  @Benchmark
+  public AnnotationMirror leastUpperBoundWithAnnotatedWith() {
+    return hierarchy.leastUpperBound(all, annotatedWith);
+  }
+
+  @Benchmark
+  public boolean coldIsSubtype(ColdHierarchy cold) {
+    return cold.hierarchy.isSubtype(all, firstHalf);
+  }
+
+  @Benchmark
+  public boolean coldIsNotSubtype(ColdHierarchy cold) {
+    return cold.hierarchy.isSubtype(firstHalf, secondHalf);
+  }
+
+  @Benchmark
+  public AnnotationMirror coldLeastUpperBound(ColdHierarchy cold) {
+    return cold.hierarchy.leastUpperBound(firstHalf, secondHalf);
+  }
+
+  @Benchmark
+  public AnnotationMirror coldGreatestLowerBound(ColdHierarchy cold) {
+    return cold.hierarchy.greatestLowerBound(firstHalf, secondHalf);
+  }
+
+  /** A qualifier hierarchy whose caches are empty at the start of every invocation. */
+  @State(Scope.Thread)
+  public static class ColdHierarchy {
+
+    /** A hierarchy that has not answered any query yet. */
+    QualifierHierarchy hierarchy;
+
+    /**
+     * Creates a new hierarchy, outside of the measured time.
+     *
+     * @param benchmark the benchmark whose factory creates the hierarchy
+     */
+    @Setup(Level.Invocation)
+    public void setUp(QualifierHierarchyBenchmark benchmark) {
+      hierarchy = benchmark.harness.factory.createQualifierHierarchy();
+    }
+  }
+}
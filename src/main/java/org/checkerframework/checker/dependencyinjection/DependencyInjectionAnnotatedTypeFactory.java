@@ -1,40 +1,83 @@
 package org.checkerframework.checker.dependencyinjection;
 
 import com.google.inject.Provides;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.lang.annotation.Annotation;
-import java.util.ArrayDeque;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
-import javax.annotation.processing.ProcessingEnvironment;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.Name;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
 import org.checkerframework.checker.dependencyinjection.qual.Bind;
 import org.checkerframework.checker.dependencyinjection.qual.BindAnnotatedWith;
 import org.checkerframework.checker.dependencyinjection.qual.BindBottom;
-import org.checkerframework.checker.dependencyinjection.utils.KnownBindingsValue;
+import org.checkerframework.checker.dependencyinjection.utils.BindingGraphWriter;
+import org.checkerframework.checker.dependencyinjection.utils.BindingManifest;
+import org.checkerframework.checker.dependencyinjection.utils.BindingRegistry;
+import org.checkerframework.checker.dependencyinjection.utils.BindingSummary;
+import org.checkerframework.checker.dependencyinjection.utils.BoundClassSet;
+import org.checkerframework.checker.dependencyinjection.utils.CheckerStatistics;
+import org.checkerframework.checker.dependencyinjection.utils.IdentityPairCache;
+import org.checkerframework.checker.dependencyinjection.utils.InjectionPoint;
+import org.checkerframework.checker.dependencyinjection.utils.InjectionPointResolver;
+import org.checkerframework.checker.dependencyinjection.utils.InjectionSignature;
+import org.checkerframework.checker.dependencyinjection.utils.NameTable;
+import org.checkerframework.checker.dependencyinjection.utils.ResolutionSummary;
+import org.checkerframework.checker.dependencyinjection.utils.StubSummary;
+import org.checkerframework.checker.dependencyinjection.utils.TypeKey;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.common.accumulation.AccumulationAnnotatedTypeFactory;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.common.reflection.ClassValChecker;
 import org.checkerframework.common.reflection.qual.ClassVal;
 import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
 import org.checkerframework.dataflow.cfg.block.Block;
-import org.checkerframework.dataflow.cfg.node.MethodAccessNode;
 import org.checkerframework.dataflow.cfg.node.MethodInvocationNode;
 import org.checkerframework.dataflow.cfg.node.Node;
-import org.checkerframework.dataflow.expression.JavaExpression;
+import org.checkerframework.framework.flow.CFAbstractAnalysis;
+import org.checkerframework.framework.flow.CFStore;
 import org.checkerframework.framework.flow.CFValue;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.AnnotatedTypeMirror;
@@ -44,8 +87,11 @@ import org.checkerframework.framework.type.treeannotator.TreeAnnotator;
 import org.checkerframework.javacutil.AnnotationBuilder;
 import org.checkerframework.javacutil.AnnotationMirrorSet;
 import org.checkerframework.javacutil.AnnotationUtils;
+import org.checkerframework.javacutil.CollectionUtils;
 import org.checkerframework.javacutil.ElementUtils;
+import org.checkerframework.javacutil.Pair;
 import org.checkerframework.javacutil.TreeUtils;
+import org.checkerframework.javacutil.TypesUtils;
 
 public class DependencyInjectionAnnotatedTypeFactory extends AccumulationAnnotatedTypeFactory {
 
@@ -59,246 +105,1461 @@ public class DependencyInjectionAnnotatedTypeFactory extends AccumulationAnnotat
   private final String annotatedBindingBuilderName =
       "com.google.inject.binder.AnnotatedBindingBuilder";
 
+  /** The fully-qualified names of the {@code @Named} annotations that Guice treats alike. */
+  private static final List<String> NAMED_ANNOTATIONS =
+      Arrays.asList("com.google.inject.name.Named", "javax.inject.Named", "jakarta.inject.Named");
+
+  /** The fully-qualified names of the meta-annotations that make an annotation a qualifier. */
+  private static final List<String> QUALIFIER_META_ANNOTATIONS =
+      Arrays.asList(
+          "com.google.inject.BindingAnnotation",
+          "javax.inject.Qualifier",
+          "jakarta.inject.Qualifier");
+
+  /**
+   * The <a href="https://github.com/google/guice/wiki/Bindings#bindings">bindings</a> and <a
+   * href="https://github.com/google/guice/wiki/Injections#injection-points">injection points</a>
+   * found in the current compilation. Bindings are configured in {@link
+   * com.google.inject.AbstractModule}. If a dependency has a binding in this registry, it has
+   * definitely been properly defined or configured. Otherwise, it may or may not have been properly
+   * defined or configured.
+   */
+  private final BindingRegistry bindingRegistry = new BindingRegistry();
+
+  /**
+   * The summary of the compilation unit being analyzed, to which every binding and injection point
+   * is also recorded, or null if the unit's bindings are not being saved to a binding index.
+   */
+  private @Nullable BindingSummary activeSummary = null;
+
+  /**
+   * The injection signature of each class whose signature has been requested; see {@link
+   * #getInjectionSignature}.
+   */
+  private final Map<TypeElement, InjectionSignature> injectionSignatures = new HashMap<>();
+
+  /** The dependency names and qualifiers of the injection signatures, mapped to themselves. */
+  private final Map<String, String> internedNames = new HashMap<>();
+
+  /** The type keys of this compilation, mapped to themselves; see {@link #typeKey}. */
+  private final Map<TypeKey, TypeKey> typeKeys = new HashMap<>();
+
+  /** The interned type key of the erasure of each class. */
+  private final Map<TypeElement, TypeKey> rawTypeKeys = new HashMap<>();
+
+  /** The element of {@code com.google.inject.Key}, or null if Guice is not on the classpath. */
+  private final @Nullable TypeElement keyElement;
+
+  /**
+   * The element of {@code com.google.inject.TypeLiteral}, or null if Guice is not on the classpath.
+   */
+  private final @Nullable TypeElement typeLiteralElement;
+
+  /**
+   * The Guice methods recognized by this checker, mapped to the kind of call they represent.
+   * Methods that override a recognized method are added lazily, together with methods that share a
+   * name with a recognized method but are not Guice calls.
+   */
+  private final Map<ExecutableElement, GuiceCallKind> guiceMethods = new HashMap<>();
+
+  /**
+   * The simple names of the Guice methods in {@link #guiceMethods}, mapped to the methods with that
+   * name. Invocations of methods with any other name are rejected without resolving their element.
+   */
+  private final Map<Name, List<ExecutableElement>> guiceMethodsByName = new HashMap<>();
+
+  /** The number of method invocation trees whose {@link GuiceCallKind} is cached. */
+  private static final int GUICE_CALL_CACHE_SIZE = 300;
+
+  /** A cache of the {@link GuiceCallKind} of recently classified method invocation trees. */
+  private final Map<MethodInvocationTree, GuiceCallKind> guiceCallCache =
+      CollectionUtils.createLRUCache(GUICE_CALL_CACHE_SIZE);
+
+  /** The number of distinct {@code @Bind} or {@code @BindAnnotatedWith} annotations interned. */
+  private static final int QUALIFIER_CACHE_SIZE = 1000;
+
+  /** The names of the bound classes of {@code @Bind} qualifiers, interned to dense IDs. */
+  private final NameTable boundClassNames = new NameTable();
+
+  /**
+   * Interned {@code @Bind} annotations, keyed by their values. Equal qualifiers are represented by
+   * one shared instance, so that most comparisons between them are identity comparisons.
+   *
+   * <p>This is null while the superclass constructor runs.
+   */
+  private final @Nullable Map<BoundClassSet, AnnotationMirror> bindAnnotations =
+      CollectionUtils.createLRUCache(QUALIFIER_CACHE_SIZE);
+
+  /**
+   * The values of the {@code @Bind} annotations created or read in the current compilation unit,
+   * so that accumulation and the qualifier hierarchy work on sets of IDs instead of reading and
+   * comparing the annotations' lists of names.
+   */
+  private final Map<AnnotationMirror, BoundClassSet> boundClassSets = new IdentityHashMap<>();
+
+  /**
+   * Interned {@code @BindAnnotatedWith} annotations, keyed by the bound class and the name it is
+   * annotated with.
+   */
+  private final Map<List<String>, AnnotationMirror> bindAnnotatedWithAnnotations =
+      CollectionUtils.createLRUCache(QUALIFIER_CACHE_SIZE);
+
+  /** The statistics of the checker, or null if they were not requested. */
+  private final @Nullable CheckerStatistics statistics;
+
+  /**
+   * The binary name of the class whose code is being analyzed by dataflow, to which statistics are
+   * attributed, or null.
+   */
+  private @Nullable String analyzedClassName = null;
+
+  /**
+   * The classes that each argument tree of a Guice call may evaluate to, for the current
+   * compilation unit; see {@link #getClassValNames}.
+   */
+  private final Map<Tree, List<String>> classValNames = new HashMap<>();
+
+  /**
+   * Matches the methods whose bindings are read directly from the AST, or null if the syntactic
+   * fast path was not requested with {@code -AdiSyntacticBindings}.
+   */
+  private final @Nullable SyntacticBindingMatcher syntacticBindingMatcher;
+
+  /**
+   * The methods of the current compilation unit whose bindings were read from the AST by {@link
+   * #syntacticBindingMatcher}. They are not analyzed by dataflow, and the visitor does not check
+   * them.
+   */
+  private final Set<MethodTree> syntacticMethods =
+      Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /**
+   * Whether each class can configure Guice; see {@link #configuresGuice}. Computed once per class.
+   */
+  private final Map<TypeElement, Boolean> guiceConfigurationClasses = new HashMap<>();
+
+  /**
+   * True iff bindings are extracted from the code being analyzed by dataflow: the code belongs to a
+   * class that can configure Guice. Set when the analysis of a control flow graph starts, and read
+   * until its {@link #postAnalyze} is done.
+   */
+  private boolean extractingBindings = true;
+
+  /**
+   * The bindings found by the transfer function in the control flow graph being analyzed, keyed by
+   * the {@code bind}, {@code to} or {@code toInstance} call that makes them. Each visit of a call
+   * replaces the bindings of its previous visit, so once the fixpoint is reached each call holds
+   * the bindings of its final store. They are recorded by {@link #postAnalyze}.
+   */
+  private final Map<Tree, List<PendingBinding>> pendingBindings = new LinkedHashMap<>();
+
+  /**
+   * True from the start of the analysis of a control flow graph whose bindings are extracted until
+   * its {@link #postAnalyze}; the transfer function also runs when a store is recomputed later, and
+   * must not find bindings again then.
+   */
+  private boolean collectingBindings = false;
+
+  /** The ClassVal.value argument/element. */
+  public final ExecutableElement classValValueElement =
+      TreeUtils.getMethod(ClassVal.class, "value", 0, processingEnv);
+
+  /** The Bind.value argument/element. */
+  public final ExecutableElement bindValValueElement =
+      TreeUtils.getMethod(Bind.class, "value", 0, processingEnv);
+
+  /** The BindAnnotatedWith.value argument/element. */
+  public final ExecutableElement bawValValueElement =
+      TreeUtils.getMethod(BindAnnotatedWith.class, "value", 0, processingEnv);
+
+  /** The BindAnnotatedWith.annotatedWith argument/element. */
+  public final ExecutableElement bawAnnotatedWithValueElement =
+      TreeUtils.getMethod(BindAnnotatedWith.class, "annotatedWith", 0, processingEnv);
+
+  /** The com.google.inject.Inject.optional argument/element. */
+  private final ExecutableElement injectOptionalElement =
+      TreeUtils.getMethod(com.google.inject.Inject.class, "optional", 0, processingEnv);
+
+  /**
+   * The providers that Guice injects for any class it can create, as {@code Provider<T>} in place
+   * of {@code T}.
+   */
+  private static final List<String> PROVIDER_CLASSES =
+      Arrays.asList("com.google.inject.Provider", "javax.inject.Provider");
+
+  /** The resource that holds the summary of {@code Guice.astub}, compiled by the build. */
+  private static final String GUICE_STUB_SUMMARY = "Guice.stubsummary";
+
+  /** The stub file, parsed at startup only if the build did not compile its summary. */
+  private static final String GUICE_STUB = "Guice.astub";
+
+  /**
+   * The declaration annotations of the methods listed in the stub summary, including those from
+   * the stub summary. This is null while the superclass constructor runs.
+   */
+  private final @Nullable Map<Element, AnnotationMirrorSet> summarizedDeclAnnotations =
+      new HashMap<>();
+
+  /** The annotations named in the stub summary, by fully-qualified name. */
+  private final Map<String, @Nullable AnnotationMirror> stubAnnotations = new HashMap<>();
+
+  /**
+   * Adds an injection point to the registry of injection points.
+   *
+   * @param injectionPoint an injection point, usually from an {@link InjectionSignature}
+   */
+  protected void addInjectionPoint(InjectionPoint injectionPoint) {
+    bindingRegistry.addInjectionPoint(injectionPoint);
+    if (statistics != null) {
+      TypeElement enclosingClass =
+          ElementUtils.enclosingTypeElement(injectionPoint.getReportingLocation());
+      statistics.count(
+          enclosingClass == null ? null : ElementUtils.getBinaryName(enclosingClass),
+          CheckerStatistics.Counter.INJECTION_POINTS,
+          1);
+    }
+    if (activeSummary != null) {
+      activeSummary.addInjectionPoint(
+          injectionPoint.getDependencyName(),
+          injectionPoint.getQualifier(),
+          injectionPoint.getReportingLocation());
+    }
+  }
+
+  /**
+   * Records that a class has been passed to {@code bind}, without a known target.
+   *
+   * @param className the fully-qualified name of the bound class
+   */
+  private void addBoundClass(String className) {
+    bindingRegistry.addBoundClass(className);
+    count(CheckerStatistics.Counter.BINDINGS);
+    if (activeSummary != null) {
+      activeSummary.addBoundClass(className);
+    }
+  }
+
+  /**
+   * Records a binding, replacing any previous target of the bound class and qualifier.
+   *
+   * @param className the fully-qualified name of the bound class
+   * @param qualifier the qualifier of the binding, or null if it has none
+   * @param target the target of the binding
+   * @param linked true for a linked binding, made with {@code to}
+   */
+  private void putBinding(
+      String className, @Nullable String qualifier, String target, boolean linked) {
+    bindingRegistry.putBinding(className, qualifier, target, linked);
+    if (activeSummary != null) {
+      activeSummary.putBinding(className, qualifier, target, linked);
+    }
+  }
+
+  /**
+   * Returns the statistics of the checker.
+   *
+   * @return the statistics, or null if they were not requested with {@code -AdiStats}
+   */
+  protected @Nullable CheckerStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Returns the binary name of the class whose code is being analyzed by dataflow.
+   *
+   * @return the class being analyzed, or null if there is none
+   */
+  protected @Nullable String getAnalyzedClassName() {
+    return analyzedClassName;
+  }
+
+  /**
+   * Called by the transfer function when dataflow analysis of a method, lambda or initializer
+   * starts, so that statistics are attributed to the class that contains it.
+   *
+   * @param ast the code about to be analyzed
+   */
+  protected void startAnalysis(UnderlyingAST ast) {
+    if (statistics != null) {
+      analyzedClassName = getClassName(ast);
+    }
+    ClassTree classTree = getClassTree(ast);
+    extractingBindings =
+        classTree == null || configuresGuice(TreeUtils.elementFromDeclaration(classTree));
+    pendingBindings.clear();
+    collectingBindings = extractingBindings;
+  }
+
+  /**
+   * Returns true iff the bindings of the code being analyzed by dataflow must be extracted, so the
+   * transfer function must accumulate its bound classes. They need not be if the code belongs to a
+   * class that cannot configure Guice.
+   *
+   * @return true iff bindings are extracted from the code being analyzed
+   */
+  protected boolean isExtractingBindings() {
+    return extractingBindings;
+  }
+
+  /**
+   * Returns true iff the code of a class can configure Guice: the class or a class that encloses
+   * it is a subtype of {@code AbstractModule}, or declares {@code @Provides} methods. Only the
+   * code of such classes can call the binding DSL, since {@code bind} is protected. The answer is
+   * computed once per class.
+   *
+   * @param type a class
+   * @return true iff bindings must be extracted from the code of {@code type}
+   */
+  private boolean configuresGuice(TypeElement type) {
+    Boolean result = guiceConfigurationClasses.get(type);
+    if (result == null) {
+      result = computeConfiguresGuice(type);
+      guiceConfigurationClasses.put(type, result);
+    }
+    return result;
+  }
+
+  /**
+   * Computes whether the code of a class can configure Guice.
+   *
+   * @param type a class
+   * @return true iff bindings must be extracted from the code of {@code type}
+   */
+  private boolean computeConfiguresGuice(TypeElement type) {
+    TypeMirror abstractModule = types.erasure(elements.getTypeElement(abstractModuleName).asType());
+    for (TypeElement current = type;
+        current != null;
+        current = ElementUtils.enclosingTypeElement(current.getEnclosingElement())) {
+      if (types.isSubtype(types.erasure(current.asType()), abstractModule)) {
+        return true;
+      }
+      for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+        if (ElementUtils.hasAnnotation(method, Provides.class.getName())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns true iff the bindings of a method were read from the AST, so that its body need not be
+   * checked.
+   *
+   * @param tree a method
+   * @return true iff {@code tree} was matched by the syntactic fast path
+   */
+  protected boolean isSyntacticMethod(MethodTree tree) {
+    return syntacticMethods.contains(tree);
+  }
+
+  /**
+   * Reads the bindings of the methods made only of binding DSL chains with literal arguments
+   * directly from the AST, if {@code -AdiSyntacticBindings} is given. The rest of the class is then
+   * analyzed as usual, but the matched methods are left out of dataflow analysis, see {@link
+   * #analyze}, and the visitor does not check them.
+   */
+  @Override
+  public void preProcessClassTree(ClassTree classTree) {
+    if (syntacticBindingMatcher != null) {
+      for (Tree member : classTree.getMembers()) {
+        if (member.getKind() == Tree.Kind.METHOD) {
+          MethodTree method = (MethodTree) member;
+          List<SyntacticBindingMatcher.Chain> chains = syntacticBindingMatcher.match(method);
+          if (chains != null) {
+            recordSyntacticBindings(chains);
+            syntacticMethods.add(method);
+          }
+        }
+      }
+    }
+    super.preProcessClassTree(classTree);
+  }
+
+  /**
+   * Skips the dataflow analysis of the methods whose bindings were read from the AST. Nothing asks
+   * for the results of dataflow within them: they contain only binding DSL calls, and the visitor
+   * does not check them.
+   */
+  @Override
+  protected void analyze(
+      Queue<Pair<ClassTree, CFStore>> queue,
+      Queue<Pair<LambdaExpressionTree, CFStore>> lambdaQueue,
+      UnderlyingAST ast,
+      List<CFAbstractAnalysis.FieldInitialValue<CFValue>> fieldValues,
+      ClassTree currentClass,
+      boolean isInitializationCode,
+      boolean updateInitializationStore,
+      boolean isStatic,
+      @Nullable CFStore capturedStore) {
+    if (ast.getKind() == UnderlyingAST.Kind.METHOD
+        && syntacticMethods.contains(((UnderlyingAST.CFGMethod) ast).getMethod())) {
+      return;
+    }
+    super.analyze(
+        queue,
+        lambdaQueue,
+        ast,
+        fieldValues,
+        currentClass,
+        isInitializationCode,
+        updateInitializationStore,
+        isStatic,
+        capturedStore);
+  }
+
+  /**
+   * Records the bindings of binding DSL chains, exactly as the transfer function finds them for the
+   * same calls.
+   *
+   * @param chains the chains of a method matched by the syntactic fast path
+   */
+  private void recordSyntacticBindings(List<SyntacticBindingMatcher.Chain> chains) {
+    for (SyntacticBindingMatcher.Chain chain : chains) {
+      addBoundClass(chain.boundClass);
+      if (chain.target == null) {
+        continue;
+      }
+      putBinding(chain.boundClass, chain.qualifier, chain.target, chain.linked);
+    }
+  }
+
+  /**
+   * Adds one to a counter of the class being analyzed, if statistics were requested.
+   *
+   * @param counter the counter
+   */
+  private void count(CheckerStatistics.Counter counter) {
+    if (statistics != null) {
+      statistics.count(analyzedClassName, counter, 1);
+    }
+  }
+
+  /**
+   * Returns the binary name of the class that contains some code.
+   *
+   * @param ast a method, lambda or initializer
+   * @return the binary name of the class that contains {@code ast}, or null if it is not known
+   */
+  private static @Nullable String getClassName(UnderlyingAST ast) {
+    ClassTree classTree = getClassTree(ast);
+    return classTree == null
+        ? null
+        : ElementUtils.getBinaryName(TreeUtils.elementFromDeclaration(classTree));
+  }
+
+  /**
+   * Returns the class that contains some code.
+   *
+   * @param ast a method, lambda or initializer
+   * @return the class that contains {@code ast}, or null if it is not known
+   */
+  private static @Nullable ClassTree getClassTree(UnderlyingAST ast) {
+    switch (ast.getKind()) {
+      case METHOD:
+        return ((UnderlyingAST.CFGMethod) ast).getClassTree();
+      case LAMBDA:
+        return ((UnderlyingAST.CFGLambda) ast).getClassTree();
+      case ARBITRARY_CODE:
+        return ((UnderlyingAST.CFGStatement) ast).getClassTree();
+      default:
+        return null;
+    }
+  }
+
+  @Override
+  protected void postAnalyze(ControlFlowGraph cfg) {
+    if (statistics == null) {
+      recordBindings();
+      super.postAnalyze(cfg);
+      return;
+    }
+    long start = System.nanoTime();
+    recordBindings();
+    super.postAnalyze(cfg);
+    String className = getClassName(cfg.getUnderlyingAST());
+    statistics.time(className, CheckerStatistics.Timer.POST_ANALYZE, System.nanoTime() - start);
+    statistics.count(className, CheckerStatistics.Counter.CFGS, 1);
+    int nodes = 0;
+    for (Block block : cfg.getAllBlocks()) {
+      nodes += block.getNodes().size();
+    }
+    statistics.count(className, CheckerStatistics.Counter.BLOCKS, cfg.getAllBlocks().size());
+    statistics.count(className, CheckerStatistics.Counter.NODES, nodes);
+  }
+
+  /**
+   * Records the bindings that the transfer function found in the control flow graph whose analysis
+   * has just finished.
+   */
+  private void recordBindings() {
+    for (List<PendingBinding> bindings : pendingBindings.values()) {
+      for (PendingBinding binding : bindings) {
+        if (binding.target == null) {
+          addBoundClass(binding.className);
+        } else {
+          putBinding(binding.className, binding.qualifier, binding.target, binding.linked);
+        }
+      }
+    }
+    pendingBindings.clear();
+    collectingBindings = false;
+  }
+
+  /**
+   * Replaces the bindings that a Guice call makes, as found by the transfer function in the
+   * current store. Does nothing when a store is recomputed after the analysis.
+   *
+   * @param call a {@code bind}, {@code to} or {@code toInstance} call
+   * @param bindings the bindings that {@code call} makes
+   */
+  private void setPendingBindings(MethodInvocationNode call, List<PendingBinding> bindings) {
+    if (collectingBindings) {
+      pendingBindings.put(call.getTree(), bindings);
+    }
+  }
+
+  /** A binding found by the transfer function, recorded once the analysis is over. */
+  private static final class PendingBinding {
+
+    /** The fully-qualified name of the bound class. */
+    final String className;
+
+    /** The qualifier of the binding, or null if it has none. */
+    final @Nullable String qualifier;
+
+    /** The target of the binding, or null for a class passed to {@code bind}. */
+    final @Nullable String target;
+
+    /** True for a linked binding, made with {@code to}. */
+    final boolean linked;
+
+    PendingBinding(
+        String className, @Nullable String qualifier, @Nullable String target, boolean linked) {
+      this.className = className;
+      this.qualifier = qualifier;
+      this.target = target;
+      this.linked = linked;
+    }
+  }
+
+  /**
+   * Returns the classes that a class literal or {@code Class} expression may evaluate to, as
+   * inferred by the ClassVal Checker.
+   *
+   * <p>The transfer function asks for the same argument trees on every iteration of the dataflow
+   * fixpoint, and computing a type in the subchecker is expensive, so the names are cached per tree
+   * until the next compilation unit.
+   *
+   * @param tree a tree of type {@code Class}
+   * @return the binary names of the classes that {@code tree} may evaluate to
+   */
+  protected List<String> getClassValNames(Tree tree) {
+    List<String> names = classValNames.get(tree);
+    if (names == null) {
+      names = computeClassValNames(tree);
+      classValNames.put(tree, names);
+    }
+    return names;
+  }
+
+  /**
+   * Returns the names of the types that the argument of {@code bind} or {@code to} may denote: for
+   * a {@code Class}, the classes that the ClassVal Checker infers for it; for a {@code Key} or
+   * {@code TypeLiteral}, the {@link #bindingKey} of its type argument. Cached per tree, like {@link
+   * #getClassValNames}.
+   *
+   * @param tree the argument of a call of {@code bind} or {@code to}
+   * @return the names under which the bindings made by the call are recorded
+   */
+  protected List<String> getBoundTypeNames(Tree tree) {
+    List<String> names = classValNames.get(tree);
+    if (names == null) {
+      DeclaredType keyType = asGuiceKeyType(TreeUtils.typeOf(tree));
+      names = keyType == null ? computeClassValNames(tree) : computeKeyNames(tree, keyType);
+      classValNames.put(tree, names);
+    }
+    return names;
+  }
+
+  /**
+   * Returns the supertype of a type that is a {@code Key} or a {@code TypeLiteral}, such as {@code
+   * TypeLiteral<List<Foo>>} for the type of {@code new TypeLiteral<List<Foo>>() {}}.
+   *
+   * @param type a type
+   * @return the {@code Key} or {@code TypeLiteral} supertype of {@code type}, or null if there is
+   *     none
+   */
+  private @Nullable DeclaredType asGuiceKeyType(TypeMirror type) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    Element element = ((DeclaredType) type).asElement();
+    if (element.equals(keyElement) || element.equals(typeLiteralElement)) {
+      return (DeclaredType) type;
+    }
+    for (TypeMirror supertype : types.directSupertypes(type)) {
+      DeclaredType keyType = asGuiceKeyType(supertype);
+      if (keyType != null) {
+        return keyType;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Computes the name of the type denoted by a {@code Key} or {@code TypeLiteral} expression.
+   *
+   * @param tree an expression of type {@code keyType}
+   * @param keyType a {@code Key} or {@code TypeLiteral} type
+   * @return the binding key of the type argument of {@code keyType}, or the empty list if it is not
+   *     a class or an array, or if the key has an annotation, which this checker does not read
+   */
+  private List<String> computeKeyNames(Tree tree, DeclaredType keyType) {
+    Tree expression = TreeUtils.withoutParens((ExpressionTree) tree);
+    if (expression instanceof MethodInvocationTree
+        && ((MethodInvocationTree) expression).getArguments().size() > 1) {
+      // Key.get(type, annotation)
+      return Collections.emptyList();
+    }
+    List<? extends TypeMirror> typeArguments = keyType.getTypeArguments();
+    if (typeArguments.size() != 1) {
+      return Collections.emptyList();
+    }
+    TypeKind kind = typeArguments.get(0).getKind();
+    if (kind != TypeKind.DECLARED && kind != TypeKind.ARRAY) {
+      return Collections.emptyList();
+    }
+    return Collections.singletonList(bindingKey(typeArguments.get(0)));
+  }
+
+  /**
+   * Computes the classes that a tree may evaluate to in the ClassVal Checker.
+   *
+   * @param tree a tree of type {@code Class}
+   * @return the binary names of the classes that {@code tree} may evaluate to
+   */
+  private List<String> computeClassValNames(Tree tree) {
+    long start = statistics == null ? 0 : System.nanoTime();
+    AnnotatedTypeMirror type =
+        getTypeFactoryOfSubchecker(ClassValChecker.class).getAnnotatedType(tree);
+    List<String> names =
+        AnnotationUtils.getElementValueArray(
+            type.getAnnotation(), classValValueElement, String.class);
+    if (statistics != null) {
+      statistics.time(
+          analyzedClassName, CheckerStatistics.Timer.CLASS_VAL_LOOKUP, System.nanoTime() - start);
+    }
+    return names;
+  }
+
+  @Override
+  public void setRoot(@Nullable CompilationUnitTree root) {
+    super.setRoot(root);
+    classValNames.clear();
+    syntacticMethods.clear();
+    boundClassSets.clear();
+  }
+
+  /**
+   * Sets the summary to which bindings and injection points are recorded, in addition to the
+   * registry.
+   *
+   * @param summary the summary of the compilation unit about to be analyzed, or null to stop
+   *     recording
+   */
+  protected void setActiveSummary(@Nullable BindingSummary summary) {
+    this.activeSummary = summary;
+  }
+
+  /**
+   * Adds the bindings and injection points of a compilation unit whose bindings are not extracted
+   * again, as recorded by an earlier compilation.
+   *
+   * @param summary the summary of the compilation unit
+   */
+  protected void replaySummary(BindingSummary summary) {
+    summary.replay(bindingRegistry, elements);
+  }
+
+  /**
+   * Holds the summary of {@code Guice.astub}. The summary is read once per process, when the
+   * first type factory needs it; the class initialization of this holder makes it visible, fully
+   * built, to the compilations that run concurrently in the same JVM.
+   */
+  private static final class GuiceStubSummaryHolder {
+
+    /** The summary of {@code Guice.astub}. */
+    static final StubSummary SUMMARY = readGuiceStubSummary();
+  }
+
+  /**
+   * Reads the summary of {@code Guice.astub}, from the resource that the build compiles from the
+   * stub file, so that startup does not depend on the size of the stub file. If the resource is
+   * missing, as when the checker runs from its sources, the stub file itself is parsed instead.
+   *
+   * @return the summary of {@code Guice.astub}
+   */
+  private static StubSummary readGuiceStubSummary() {
+    Class<?> anchor = DependencyInjectionAnnotatedTypeFactory.class;
+    try (InputStream summary = anchor.getResourceAsStream(GUICE_STUB_SUMMARY)) {
+      if (summary != null) {
+        return StubSummary.read(new BufferedInputStream(summary));
+      }
+    } catch (IOException e) {
+      // Fall back to the stub file.
+    }
+    try (InputStream stub = anchor.getResourceAsStream(GUICE_STUB)) {
+      if (stub == null) {
+        throw new IllegalStateException("Neither " + GUICE_STUB_SUMMARY + " nor " + GUICE_STUB);
+      }
+      ByteArrayOutputStream contents = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int n = stub.read(buffer); n > 0; n = stub.read(buffer)) {
+        contents.write(buffer, 0, n);
+      }
+      return StubSummary.parse(
+          new String(contents.toByteArray(), StandardCharsets.UTF_8),
+          name -> {
+            try {
+              Class.forName(name, false, anchor.getClassLoader());
+              return true;
+            } catch (ClassNotFoundException | LinkageError e) {
+              return false;
+            }
+          });
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read " + GUICE_STUB, e);
+    }
+  }
+
+  /**
+   * Adds the declaration annotations that {@code Guice.astub} gives a method, such as {@code @Pure}
+   * on {@code bind}, from its precompiled summary. Most elements are rejected by name, without
+   * looking at their class or parameters.
+   */
+  @Override
+  public AnnotationMirrorSet getDeclAnnotations(Element elt) {
+    AnnotationMirrorSet annotations = super.getDeclAnnotations(elt);
+    if (summarizedDeclAnnotations == null
+        || (elt.getKind() != ElementKind.METHOD && elt.getKind() != ElementKind.CONSTRUCTOR)) {
+      return annotations;
+    }
+    StubSummary summary = GuiceStubSummaryHolder.SUMMARY;
+    if (!summary.hasMethodName(elt.getSimpleName().toString())) {
+      return annotations;
+    }
+    AnnotationMirrorSet result = summarizedDeclAnnotations.get(elt);
+    if (result == null) {
+      result = annotations;
+      ExecutableElement method = (ExecutableElement) elt;
+      TypeElement enclosing = (TypeElement) method.getEnclosingElement();
+      List<String> parameterTypes = new ArrayList<>(method.getParameters().size());
+      for (VariableElement parameter : method.getParameters()) {
+        parameterTypes.add(stubTypeName(parameter.asType()));
+      }
+      List<String> names =
+          summary.getDeclarationAnnotations(
+              ElementUtils.getBinaryName(enclosing),
+              method.getSimpleName().toString(),
+              parameterTypes);
+      if (!names.isEmpty()) {
+        result = new AnnotationMirrorSet(annotations);
+        for (String name : names) {
+          AnnotationMirror anno =
+              stubAnnotations.computeIfAbsent(name, n -> AnnotationBuilder.fromName(elements, n));
+          if (anno != null) {
+            result.add(anno);
+          }
+        }
+      }
+      summarizedDeclAnnotations.put(elt, result);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the name of a parameter type as a stub summary records it: the simple name of its
+   * erasure, or the name of a type variable.
+   *
+   * @param type the type of a parameter
+   * @return the name of {@code type} in a stub summary
+   */
+  private static String stubTypeName(TypeMirror type) {
+    switch (type.getKind()) {
+      case TYPEVAR:
+        return ((TypeVariable) type).asElement().getSimpleName().toString();
+      case ARRAY:
+        return stubTypeName(((ArrayType) type).getComponentType()) + "[]";
+      case DECLARED:
+        return ((DeclaredType) type).asElement().getSimpleName().toString();
+      default:
+        return type.toString();
+    }
+  }
+
+  /**
+   * Returns the name under which bindings for a type are recorded: the {@link TypeKey#getName()
+   * name} of its {@link #typeKey type key}. For a class that is not parameterized this is its
+   * binary name, or that of its boxed class for a primitive type, which is the name that the
+   * ClassVal Checker infers for the class literal of the type; so bindings made with {@code
+   * bind(X.class)} and injection points of type {@code X} use the same name.
+   *
+   * @param type the type of a dependency or of a provided binding
+   * @return the name under which bindings for {@code type} are recorded
+   */
+  protected String bindingKey(TypeMirror type) {
+    return typeKey(type).getName();
+  }
+
   /**
-   * The map of <a href="https://github.com/google/guice/wiki/Bindings#bindings">bindings</a> that
-   * the program may compute at run time. Bindings are configured in {@link
-   * com.google.inject.AbstractModule}. If a dependency does exist in this map, it has definitely
-   * been properly defined or configured. Otherwise, it may or may not have been properly defined or
-   * configured.
+   * Returns the interned type key of a type. Guice keys a parameterized type such as {@code
+   * List<Foo>} or {@code List<? extends Foo>} by its type arguments, so its key does too, as long
+   * as every type argument is a class, an array, or a wildcard bounded by one. A type with a type
+   * variable argument is keyed by its erasure. Primitive types are keyed by their boxed class, and
+   * array types by their erasure.
+   *
+   * @param type a type
+   * @return the key of {@code type}, the same instance for equal keys until the compilation is over
    */
-  private static HashMap<String, KnownBindingsValue> knownBindings = new HashMap<>();
+  protected TypeKey typeKey(TypeMirror type) {
+    if (type.getKind().isPrimitive()) {
+      type = types.boxedClass((PrimitiveType) type).asType();
+    }
+    if (type.getKind() != TypeKind.DECLARED) {
+      return internTypeKey(TypeKey.of(types.erasure(type).toString()));
+    }
+    DeclaredType declaredType = (DeclaredType) type;
+    TypeElement element = (TypeElement) declaredType.asElement();
+    TypeKey raw = rawTypeKeys.get(element);
+    if (raw == null) {
+      raw = internTypeKey(TypeKey.of(ElementUtils.getBinaryName(element)));
+      rawTypeKeys.put(element, raw);
+    }
+    List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+    if (typeArguments.isEmpty()) {
+      return raw;
+    }
+    List<TypeKey> arguments = new ArrayList<>(typeArguments.size());
+    for (TypeMirror typeArgument : typeArguments) {
+      TypeKey argument = typeArgumentKey(typeArgument);
+      if (argument == null) {
+        return raw;
+      }
+      arguments.add(argument);
+    }
+    return internTypeKey(TypeKey.of(raw.getRawName(), arguments));
+  }
 
   /**
-   * The map of <a href="https://github.com/google/guice/wiki/Injections#injection-points">injection
-   * points</a> that Guice must be able to satisfy. These injection points are declared through
-   * annotations such as {@link com.google.inject.Inject}.
+   * Returns the interned type key of a type argument.
    *
-   * <p>The key is the fully-qualified class name of the dependency, and the value is the program
-   * element that will be used to report an error if the dependency has no corresponding binding.
+   * @param typeArgument a type argument
+   * @return the key of {@code typeArgument}, or null if it is neither a class, an array, nor a
+   *     wildcard whose bound is a class or an array
    */
-  private static HashMap<String, Element> injectionPoints = new HashMap<>();
+  private @Nullable TypeKey typeArgumentKey(TypeMirror typeArgument) {
+    switch (typeArgument.getKind()) {
+      case DECLARED:
+      case ARRAY:
+        return typeKey(typeArgument);
+      case WILDCARD:
+        WildcardType wildcard = (WildcardType) typeArgument;
+        @Nullable TypeMirror superBound = wildcard.getSuperBound();
+        @Nullable TypeMirror extendsBound = wildcard.getExtendsBound();
+        @Nullable TypeMirror bound = superBound != null ? superBound : extendsBound;
+        if (bound == null || (superBound == null && TypesUtils.isObject(bound))) {
+          return TypeKey.wildcard();
+        }
+        if (bound.getKind() != TypeKind.DECLARED && bound.getKind() != TypeKind.ARRAY) {
+          return null;
+        }
+        TypeKey boundKey = typeKey(bound);
+        return internTypeKey(
+            superBound != null
+                ? TypeKey.wildcardSuper(boundKey)
+                : TypeKey.wildcardExtends(boundKey));
+      default:
+        return null;
+    }
+  }
 
-  /** The {@code com.google.inject.AbstractModule.bind(Class<Baz> clazz)} method */
-  private final List<ExecutableElement> bindMethods = new ArrayList<>(3);
+  /**
+   * Returns the canonical instance of a type key.
+   *
+   * @param key a type key
+   * @return the instance equal to {@code key} shared by this compilation
+   */
+  private TypeKey internTypeKey(TypeKey key) {
+    TypeKey interned = typeKeys.putIfAbsent(key, key);
+    return interned == null ? key : interned;
+  }
 
-  /** The {@code com.google.inject.binder.LinkedBindingBuilder.to(Class<? extends Baz> method */
-  private final List<ExecutableElement> toMethods = new ArrayList<>(3);
+  /**
+   * Returns the qualifier under which bindings for an injected element or a provider method are
+   * recorded, together with the class given by {@link #bindingKey}. For {@code @Named("x")} this is
+   * {@code @Named(x)}, which is also the qualifier of {@code annotatedWith(Names.named("x"))}; for
+   * any other binding annotation it is {@code @} followed by the binary name of the annotation.
+   *
+   * @param element an injected field or parameter, or a provider method
+   * @return the qualifier of {@code element}, or null if it has none
+   */
+  protected @Nullable String qualifierKey(Element element) {
+    for (AnnotationMirror anno : element.getAnnotationMirrors()) {
+      TypeElement annoType = (TypeElement) anno.getAnnotationType().asElement();
+      String annoName = annoType.getQualifiedName().toString();
+      if (NAMED_ANNOTATIONS.contains(annoName)) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+            anno.getElementValues().entrySet()) {
+          if (entry.getKey().getSimpleName().contentEquals("value")) {
+            return namedQualifier(String.valueOf(entry.getValue().getValue()));
+          }
+        }
+        return namedQualifier("");
+      }
+      for (AnnotationMirror metaAnno : annoType.getAnnotationMirrors()) {
+        String metaName =
+            ((TypeElement) metaAnno.getAnnotationType().asElement()).getQualifiedName().toString();
+        if (QUALIFIER_META_ANNOTATIONS.contains(metaName)) {
+          return "@" + ElementUtils.getBinaryName(annoType);
+        }
+      }
+    }
+    return null;
+  }
 
-  /** The {@code com.google.inject.binder.LinkedBindingBuilder.toInstance()} method */
-  private final List<ExecutableElement> toInstanceMethods = new ArrayList<>(1);
+  /**
+   * Returns the injection signature of a class: the dependencies of its {@code @Inject}
+   * constructor, fields and methods. The signature is computed the first time it is requested and
+   * reused afterwards.
+   *
+   * @param type a class
+   * @return the injection signature of {@code type}
+   */
+  protected InjectionSignature getInjectionSignature(TypeElement type) {
+    InjectionSignature signature = injectionSignatures.get(type);
+    if (signature == null) {
+      signature = computeInjectionSignature(type);
+      injectionSignatures.put(type, signature);
+    }
+    return signature;
+  }
 
-  /** The {@code com.google.inject.binder.AnnotatedBindingBuilder.annotatedWith()} method */
-  private final List<ExecutableElement> annotatedWithMethods = new ArrayList<>(2);
+  /**
+   * Computes the injection signature of a class.
+   *
+   * @param type a class
+   * @return the injection signature of {@code type}
+   */
+  private InjectionSignature computeInjectionSignature(TypeElement type) {
+    ExecutableElement injectConstructor = null;
+    List<InjectionPoint> constructorInjectionPoints = new ArrayList<>();
+    List<InjectionPoint> memberInjectionPoints = new ArrayList<>();
+    for (Element member : type.getEnclosedElements()) {
+      switch (member.getKind()) {
+        case CONSTRUCTOR:
+          if (isInjected(member)) {
+            // Each parameter of the @Inject constructor is a dependency.
+            injectConstructor = (ExecutableElement) member;
+            for (VariableElement parameter : injectConstructor.getParameters()) {
+              constructorInjectionPoints.add(newInjectionPoint(parameter));
+            }
+          }
+          break;
+        case METHOD:
+          if (isInjected(member) && !isOptionallyInjected(member)) {
+            for (VariableElement parameter : ((ExecutableElement) member).getParameters()) {
+              memberInjectionPoints.add(newInjectionPoint(parameter));
+            }
+          }
+          break;
+        case FIELD:
+          if (isInjected(member) && !isOptionallyInjected(member)) {
+            memberInjectionPoints.add(newInjectionPoint(member));
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    if (injectConstructor == null && memberInjectionPoints.isEmpty()) {
+      return InjectionSignature.EMPTY;
+    }
+    return new InjectionSignature(
+        injectConstructor, constructorInjectionPoints, memberInjectionPoints);
+  }
 
-  /** The ClassVal.value argument/element. */
-  public final ExecutableElement classValValueElement =
-      TreeUtils.getMethod(ClassVal.class, "value", 0, processingEnv);
+  /**
+   * Returns the injection point of an injected field or parameter, with an interned dependency
+   * name and qualifier. A field or parameter of type {@code Provider<T>} depends on {@code T}.
+   *
+   * @param element an injected field or parameter
+   * @return the injection point of {@code element}
+   */
+  private InjectionPoint newInjectionPoint(Element element) {
+    TypeMirror type = element.asType();
+    TypeMirror providedType = getProvidedType(type);
+    // Interned type keys share their names, so the name needs no interning of its own.
+    String dependencyName = bindingKey(providedType != null ? providedType : type);
+    String qualifier = qualifierKey(element);
+    return new InjectionPoint(
+        dependencyName,
+        qualifier == null ? null : intern(qualifier),
+        element,
+        providedType != null);
+  }
 
-  /** The Bind.value argument/element. */
-  public final ExecutableElement bindValValueElement =
-      TreeUtils.getMethod(Bind.class, "value", 0, processingEnv);
+  /**
+   * Returns the type that a {@code Provider} provides.
+   *
+   * @param type the type of an injected field or parameter
+   * @return {@code T} if {@code type} is {@code Provider<T>} for a class or array type {@code T},
+   *     or null otherwise
+   */
+  private @Nullable TypeMirror getProvidedType(TypeMirror type) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    DeclaredType declaredType = (DeclaredType) type;
+    List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+    if (typeArguments.size() != 1
+        || !PROVIDER_CLASSES.contains(
+            ((TypeElement) declaredType.asElement()).getQualifiedName().toString())) {
+      return null;
+    }
+    TypeMirror providedType = typeArguments.get(0);
+    return providedType.getKind() == TypeKind.DECLARED || providedType.getKind() == TypeKind.ARRAY
+        ? providedType
+        : null;
+  }
 
-  /** The BindAnnotatedWith.value argument/element. */
-  public final ExecutableElement bawValValueElement =
-      TreeUtils.getMethod(BindAnnotatedWith.class, "value", 0, processingEnv);
+  /**
+   * Returns the canonical instance of a dependency name or qualifier.
+   *
+   * @param name a dependency name or qualifier
+   * @return the instance equal to {@code name} shared by every injection signature
+   */
+  private String intern(String name) {
+    String interned = internedNames.putIfAbsent(name, name);
+    return interned == null ? name : interned;
+  }
 
-  /** The BindAnnotatedWith.annotatedWith argument/element. */
-  public final ExecutableElement bawAnnotatedWithValueElement =
-      TreeUtils.getMethod(BindAnnotatedWith.class, "annotatedWith", 0, processingEnv);
+  /**
+   * Returns true iff the element is annotated with {@code com.google.inject.Inject} or {@code
+   * javax.inject.Inject}, both of which Guice honors.
+   *
+   * @param element a constructor, method or field
+   * @return true iff {@code element} is an injection point
+   */
+  protected boolean isInjected(Element element) {
+    return getDeclAnnotation(element, com.google.inject.Inject.class) != null
+        || getDeclAnnotation(element, javax.inject.Inject.class) != null;
+  }
 
-  /** Debugging method that pretty prints a map */
-  private void printMap(Map<String, ?> map, String mapName) {
-    System.out.println(mapName);
-    map.forEach(
-        (key, value) -> {
-          System.out.print(String.format("<Key: %s, Value: %s>\n", key, value));
-        });
-    System.out.println();
+  /**
+   * Returns true iff the element is annotated with {@code @com.google.inject.Inject(optional =
+   * true)}. Guice skips such a field or method if it cannot satisfy its dependencies, so they are
+   * not injection points that must be satisfied.
+   *
+   * @param element a method or field
+   * @return true iff {@code element} is injected only if its dependencies can be satisfied
+   */
+  private boolean isOptionallyInjected(Element element) {
+    AnnotationMirror inject = getDeclAnnotation(element, com.google.inject.Inject.class);
+    return inject != null
+        && AnnotationUtils.getElementValue(inject, injectOptionalElement, Boolean.class, false);
+  }
+
+  /**
+   * Returns the qualifier of the bindings made under a name.
+   *
+   * @param name the value of a {@code @Named} annotation
+   * @return the qualifier for {@code name}
+   */
+  static String namedQualifier(String name) {
+    return "@Named(" + name + ")";
+  }
+
+  /**
+   * Freezes the registry and returns a resolver that matches every injection point of the
+   * compilation against the bindings. Called once, after every compilation unit has been processed.
+   *
+   * @param pool the pool on which the injection points are matched
+   * @return a resolver for the injection points of the compilation
+   */
+  protected InjectionPointResolver createInjectionPointResolver(ForkJoinPool pool) {
+    bindingRegistry.freeze();
+    return new InjectionPointResolver(bindingRegistry, pool, this::getJustInTimeDependencies);
+  }
+
+  /**
+   * Returns the dependencies that Guice must satisfy to create a class <a
+   * href="https://github.com/google/guice/wiki/JustInTimeBindings">just in time</a>: the
+   * parameters of its {@code @Inject} constructor, and the {@code @Inject} fields and methods of
+   * the class and its superclasses.
+   *
+   * <p>Guice can only create a concrete class that is not an inner class, and that has an
+   * {@code @Inject} constructor or a no-argument constructor. The no-argument constructor must not
+   * be private, unless the class itself is private. {@code @ImplementedBy} and {@code @ProvidedBy}
+   * are not considered.
+   *
+   * @param className the binary name of a class
+   * @return the dependencies of the class, or null if Guice cannot create it
+   */
+  protected @Nullable List<InjectionPoint> getJustInTimeDependencies(String className) {
+    // Guice creates a parameterized class just in time like its erasure.
+    className = TypeKey.rawName(className);
+    TypeElement type = elements.getTypeElement(className);
+    if (type == null && className.indexOf('$') >= 0) {
+      // Elements looks classes up by their canonical name.
+      type = elements.getTypeElement(className.replace('$', '.'));
+    }
+    if (type == null || !isCreatableJustInTime(type)) {
+      return null;
+    }
+    List<InjectionPoint> dependencies = new ArrayList<>();
+    addEagerDependencies(getInjectionSignature(type).getConstructorInjectionPoints(), dependencies);
+    // Guice also injects the members that the class inherits.
+    for (TypeElement current = type;
+        current != null;
+        current = ElementUtils.getSuperClass(current)) {
+      addEagerDependencies(getInjectionSignature(current).getMemberInjectionPoints(), dependencies);
+    }
+    return dependencies;
+  }
+
+  /**
+   * Adds the injection points that Guice satisfies when it creates a class. A dependency injected
+   * through a {@code Provider} is left out: it is created later, when the provider is called, so it
+   * does not make the class part of a cycle. It is still checked as an injection point of its own.
+   *
+   * @param injectionPoints the injection points of a class
+   * @param dependencies the list to which the injection points are added
+   */
+  private static void addEagerDependencies(
+      List<InjectionPoint> injectionPoints, List<InjectionPoint> dependencies) {
+    for (InjectionPoint injectionPoint : injectionPoints) {
+      if (!injectionPoint.isProvided()) {
+        dependencies.add(injectionPoint);
+      }
+    }
+  }
+
+  /**
+   * Returns true iff Guice can call a constructor of a class to create it just in time.
+   *
+   * @param type a class
+   * @return true iff {@code type} is a concrete, non-inner class with a suitable constructor
+   */
+  private boolean isCreatableJustInTime(TypeElement type) {
+    if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+      return false;
+    }
+    switch (type.getNestingKind()) {
+      case LOCAL:
+      case ANONYMOUS:
+        return false;
+      case MEMBER:
+        if (!type.getModifiers().contains(Modifier.STATIC)) {
+          return false;
+        }
+        break;
+      default:
+        break;
+    }
+    if (getInjectionSignature(type).getInjectConstructor() != null) {
+      return true;
+    }
+    boolean privateClass = type.getModifiers().contains(Modifier.PRIVATE);
+    List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+    for (ExecutableElement constructor : constructors) {
+      if (constructor.getParameters().isEmpty()
+          && (privateClass || !constructor.getModifiers().contains(Modifier.PRIVATE))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the registry of bindings and injection points for the current compilation. */
+  protected BindingRegistry getBindingRegistry() {
+    return bindingRegistry;
   }
 
-  /** Debugging method that pretty prints {@code knownBindings} */
-  private void printKnownBindings() {
-    printMap(DependencyInjectionAnnotatedTypeFactory.knownBindings, "knownBindings");
+  /**
+   * Writes the bindings and injection points of the current compilation to a file as JSON.
+   *
+   * @param file the file to write
+   * @throws IOException if the file cannot be written
+   */
+  protected void writeBindingGraph(Path file) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      new BindingGraphWriter(out).write(bindingRegistry);
+    }
   }
 
-  /** Debugging method that pretty prints {@code printDependencies} */
-  private void printDependencies() {
-    printMap(DependencyInjectionAnnotatedTypeFactory.injectionPoints, "injectionPoints");
+  /**
+   * Writes the bindings of the current compilation as a {@link BindingManifest}, so that
+   * compilations that have the output on their classpath can use them.
+   *
+   * @param out the stream to write to
+   * @throws IOException if the manifest cannot be written
+   */
+  protected void writeBindingManifest(OutputStream out) throws IOException {
+    BindingManifest.write(bindingRegistry, out);
   }
 
   /**
-   * Adds an injection point to the map of injection points.
+   * Writes the bindings and injection points of the current compilation as a {@link
+   * ResolutionSummary}, so that they can be resolved once the compilation is over.
    *
-   * @param dependencyName the fully-qualified class name of the dependency
-   * @param reportingLocation the program element at which an error will be reported if this
-   *     injection point has no correspsonding binding
+   * @param out the stream to write to
+   * @param positions returns the source position at which an injection point is reported
+   * @throws IOException if the summary cannot be written
    */
-  protected static void addInjectionPoint(String dependencyName, Element reportingLocation) {
-    DependencyInjectionAnnotatedTypeFactory.injectionPoints.put(dependencyName, reportingLocation);
+  protected void writeResolutionSummary(OutputStream out, Function<Element, String> positions)
+      throws IOException {
+    ResolutionSummary.of(bindingRegistry, this::getJustInTimeDependencies, positions).write(out);
   }
 
-  /** Returns the map of known bindings. */
-  protected static Map<String, KnownBindingsValue> getKnownBindings() {
-    return Collections.unmodifiableMap(DependencyInjectionAnnotatedTypeFactory.knownBindings);
+  /**
+   * Makes the bindings of the libraries on the classpath visible to the current compilation.
+   *
+   * @param manifests the manifests of the libraries, in classpath order
+   */
+  protected void setLibraryManifests(List<BindingManifest> manifests) {
+    bindingRegistry.setLibraryManifests(manifests);
   }
 
-  /** Returns the map of injection points. */
-  protected static Map<String, Element> getInjectionPoints() {
-    return Collections.unmodifiableMap(DependencyInjectionAnnotatedTypeFactory.injectionPoints);
+  /**
+   * Releases the bindings and injection points of the current compilation. Called when type
+   * processing is over.
+   */
+  protected void releaseBindingRegistry() {
+    bindingRegistry.release();
+    injectionSignatures.clear();
+    internedNames.clear();
+    typeKeys.clear();
+    rawTypeKeys.clear();
+    guiceConfigurationClasses.clear();
   }
 
   /** Helper method that initializes Guice method elements */
   private void initializeMethodElements() {
-    ProcessingEnvironment processingEnv = this.getProcessingEnv();
-    this.bindMethods.add(
-        TreeUtils.getMethod(abstractModuleName, "bind", processingEnv, "com.google.inject.Key<T>"));
-    this.bindMethods.add(
-        TreeUtils.getMethod(
-            abstractModuleName, "bind", processingEnv, "com.google.inject.TypeLiteral<T>"));
-    this.bindMethods.add(
-        TreeUtils.getMethod(abstractModuleName, "bind", processingEnv, "java.lang.Class<T>"));
-
-    this.toMethods.add(
-        TreeUtils.getMethod(
-            linkedBindingBuilderName, "to", processingEnv, "java.lang.Class<? extends T>"));
-    this.toMethods.add(
-        TreeUtils.getMethod(
-            linkedBindingBuilderName,
-            "to",
-            processingEnv,
-            "com.google.inject.TypeLiteral<? extends T>"));
-    this.toMethods.add(
-        TreeUtils.getMethod(
-            linkedBindingBuilderName, "to", processingEnv, "com.google.inject.Key<? extends T>"));
-
-    this.toInstanceMethods.add(
-        TreeUtils.getMethod(linkedBindingBuilderName, "toInstance", processingEnv, "T"));
-
-    this.annotatedWithMethods.add(
-        TreeUtils.getMethod(
-            annotatedBindingBuilderName,
-            "annotatedWith",
-            processingEnv,
-            "java.lang.annotation.Annotation"));
-    this.annotatedWithMethods.add(
-        TreeUtils.getMethod(
-            annotatedBindingBuilderName,
-            "annotatedWith",
-            processingEnv,
-            "java.lang.Class<? extends java.lang.annotation.Annotation>"));
+    addGuiceMethod(GuiceCallKind.BIND, abstractModuleName, "bind", "com.google.inject.Key<T>");
+    addGuiceMethod(
+        GuiceCallKind.BIND, abstractModuleName, "bind", "com.google.inject.TypeLiteral<T>");
+    addGuiceMethod(GuiceCallKind.BIND, abstractModuleName, "bind", "java.lang.Class<T>");
+
+    addGuiceMethod(
+        GuiceCallKind.TO, linkedBindingBuilderName, "to", "java.lang.Class<? extends T>");
+    addGuiceMethod(
+        GuiceCallKind.TO,
+        linkedBindingBuilderName,
+        "to",
+        "com.google.inject.TypeLiteral<? extends T>");
+    addGuiceMethod(
+        GuiceCallKind.TO, linkedBindingBuilderName, "to", "com.google.inject.Key<? extends T>");
+
+    addGuiceMethod(GuiceCallKind.TO_INSTANCE, linkedBindingBuilderName, "toInstance", "T");
+
+    addGuiceMethod(
+        GuiceCallKind.ANNOTATED_WITH,
+        annotatedBindingBuilderName,
+        "annotatedWith",
+        "java.lang.annotation.Annotation");
+    addGuiceMethod(
+        GuiceCallKind.ANNOTATED_WITH,
+        annotatedBindingBuilderName,
+        "annotatedWith",
+        "java.lang.Class<? extends java.lang.annotation.Annotation>");
+  }
+
+  /**
+   * Registers a Guice method with the call classifier.
+   *
+   * @param kind the kind of call the method represents
+   * @param className the fully-qualified name of the class that declares the method
+   * @param methodName the simple name of the method
+   * @param paramType the type of the only parameter of the method
+   */
+  private void addGuiceMethod(
+      GuiceCallKind kind, String className, String methodName, String paramType) {
+    ExecutableElement method =
+        TreeUtils.getMethod(className, methodName, this.getProcessingEnv(), paramType);
+    guiceMethods.put(method, kind);
+    guiceMethodsByName
+        .computeIfAbsent(method.getSimpleName(), name -> new ArrayList<>(3))
+        .add(method);
   }
 
   public DependencyInjectionAnnotatedTypeFactory(BaseTypeChecker c) {
     super(c, Bind.class, BindBottom.class);
+    this.statistics =
+        c.hasOption(DependencyInjectionChecker.STATS_OPTION) ? new CheckerStatistics() : null;
+    this.syntacticBindingMatcher =
+        c.hasOption(DependencyInjectionChecker.SYNTACTIC_BINDINGS_OPTION)
+            ? new SyntacticBindingMatcher(this, types)
+            : null;
+    this.bindAnnotations.put(BoundClassSet.EMPTY, top);
+    this.keyElement = elements.getTypeElement("com.google.inject.Key");
+    this.typeLiteralElement = elements.getTypeElement("com.google.inject.TypeLiteral");
     this.initializeMethodElements();
     this.postInit();
   }
 
+  /**
+   * Classifies a tree as one of the Guice binding DSL calls recognized by this checker.
+   *
+   * <p>Invocations of methods whose name is not the name of a Guice method are rejected without
+   * resolving the invoked method. Otherwise, the invoked method is looked up in a table of Guice
+   * methods, and the result is cached per tree.
+   *
+   * @param tree a tree, possibly null
+   * @return the kind of Guice call {@code tree} is, or {@link GuiceCallKind#NONE} if it is not one
+   */
+  protected GuiceCallKind classifyGuiceCall(@Nullable Tree tree) {
+    if (!(tree instanceof MethodInvocationTree)) {
+      return GuiceCallKind.NONE;
+    }
+    MethodInvocationTree invocationTree = (MethodInvocationTree) tree;
+    List<ExecutableElement> candidates =
+        guiceMethodsByName.get(TreeUtils.methodName(invocationTree));
+    if (candidates == null) {
+      return GuiceCallKind.NONE;
+    }
+
+    GuiceCallKind kind = guiceCallCache.get(invocationTree);
+    if (kind == null) {
+      kind = classifyGuiceMethod(TreeUtils.elementFromUse(invocationTree), candidates);
+      guiceCallCache.put(invocationTree, kind);
+    }
+    return kind;
+  }
+
+  /**
+   * Classifies an invoked method whose name is the name of a Guice method.
+   *
+   * @param invoked the invoked method
+   * @param candidates the Guice methods with the same name as {@code invoked}
+   * @return the kind of Guice call {@code invoked} is, or {@link GuiceCallKind#NONE}
+   */
+  private GuiceCallKind classifyGuiceMethod(
+      ExecutableElement invoked, List<ExecutableElement> candidates) {
+    GuiceCallKind kind = guiceMethods.get(invoked);
+    if (kind != null) {
+      return kind;
+    }
+
+    // The invoked method is not one of the Guice methods themselves, but it may override one.
+    // Remember the answer so that this check is made once per method.
+    kind = GuiceCallKind.NONE;
+    for (ExecutableElement candidate : candidates) {
+      if (ElementUtils.isMethod(invoked, candidate, this.getProcessingEnv())) {
+        kind = guiceMethods.get(candidate);
+        break;
+      }
+    }
+    guiceMethods.put(invoked, kind);
+    return kind;
+  }
+
   /* Returns true iff the argument is an invocation of AbstractModule.bind.
    *
    * @param methodTree the method invocation tree
    * @return true iff the argument is an invocation of AbstractModule.bind()
    */
   protected boolean isBindMethod(Tree methodTree) {
-    return TreeUtils.isMethodInvocation(methodTree, this.bindMethods, this.getProcessingEnv());
+    return classifyGuiceCall(methodTree) == GuiceCallKind.BIND;
   }
 
   /* Returns true iff the argument is an invocation of LinkedBindingBuilder.to() */
   protected boolean isToMethod(Tree methodTree) {
-    return TreeUtils.isMethodInvocation(methodTree, this.toMethods, this.getProcessingEnv());
+    return classifyGuiceCall(methodTree) == GuiceCallKind.TO;
   }
 
   /* Returns true iff the argument is an invocation of LinkedBindingBuilder.toInstance() */
   protected boolean isToInstanceMethod(Tree methodTree) {
-    return TreeUtils.isMethodInvocation(
-        methodTree, this.toInstanceMethods, this.getProcessingEnv());
+    return classifyGuiceCall(methodTree) == GuiceCallKind.TO_INSTANCE;
   }
 
   /* Returns true iff the argument is an invocation of AnnotatedBindingBuilder.annotatedWith() */
   protected boolean isAnnotatedWithMethod(Tree methodTree) {
-    return TreeUtils.isMethodInvocation(
-        methodTree, this.annotatedWithMethods, this.getProcessingEnv());
+    return classifyGuiceCall(methodTree) == GuiceCallKind.ANNOTATED_WITH;
   }
 
   /**
-   * Invoked when a {@code MethodInvocationNode} is a call to {@code
-   * com.google.inject.AbstractModule.bind}. This method takes the argument of a {@code
-   * MethodInvocationNode}, a class, and adds the bound class to the {@code knownBindings} map.
+   * Invoked by the transfer function when a {@code MethodInvocationNode} is a call to {@code
+   * com.google.inject.AbstractModule.bind}. The bound classes are added to the registry of known
+   * bindings once the analysis is over.
    *
-   * @param methodArgumentNode the argument to the {@code bind} method
+   * @param node the call to {@code bind}
+   * @param classNames the classes that the argument to the {@code bind} method may evaluate to
    */
-  private void handleBindMethodInvocation(Node methodArgumentNode) {
-    // Class that is being bound - put in knownBindings
-    AnnotatedTypeMirror boundClassTypeMirror =
-        getTypeFactoryOfSubchecker(ClassValChecker.class)
-            .getAnnotatedType(methodArgumentNode.getTree());
-
-    // TODO: getAnnotation may possibly return annotations that aren't @ClassVal
-    List<String> classNames =
-        AnnotationUtils.getElementValueArray(
-            boundClassTypeMirror.getAnnotation(), classValValueElement, String.class);
-
-    classNames.forEach(
-        className -> {
-          DependencyInjectionAnnotatedTypeFactory.knownBindings.put(className, null);
-        });
+  protected void handleBindMethodInvocation(MethodInvocationNode node, List<String> classNames) {
+    List<PendingBinding> bindings = new ArrayList<>(classNames.size());
+    for (String className : classNames) {
+      bindings.add(new PendingBinding(className, null, null, false));
+    }
+    setPendingBindings(node, bindings);
   }
 
   /**
-   * Invoked when a {@code MethodInvocationNode} is a call to {@code
+   * Invoked by the transfer function when a {@code MethodInvocationNode} is a call to {@code
    * com.google.inject.binder.LinkedBindingBuilder.to}.
    *
-   * <p>This method takes the argument of a {@code MethodInvocationNode}, a class, and binds it to
-   * an existing class in the {@code knownBindings} map.
+   * <p>This method takes the argument of a {@code MethodInvocationNode}, a class, and binds the
+   * classes the receiver was created by {@code bind} for to it, once the analysis is over. If the
+   * receiver is a call to {@code annotatedWith}, the binding has the name that the receiver is
+   * annotated with.
    *
-   * @param currentNode the current node in the block
-   * @param methodAccessNode the method access node (the {@code to} method)
+   * @param node the call to {@code to}
+   * @param receiverValue the value of the receiver of the {@code to} method in the store before
+   *     the call, or null if the store has no information about it
    * @param methodArgumentNode the argument to the {@code to} method
    */
-  private void handleToMethodInvocation(
-      Node currentNode, MethodAccessNode methodAccessNode, Node methodArgumentNode) {
-    Node receiver = methodAccessNode.getReceiver();
-
+  protected void handleToMethodInvocation(
+      MethodInvocationNode node, @Nullable CFValue receiverValue, Node methodArgumentNode) {
     // Class that is being bound - should be in knownBindings
-    CFValue value = this.getStoreBefore(currentNode).getValue(JavaExpression.fromNode(receiver));
-
-    AnnotationMirror bindAnno = null;
-    if (value != null && !value.getAnnotations().isEmpty()) {
-      for (AnnotationMirror anno : value.getAnnotations()) {
+    @Nullable List<String> boundClassNames = null;
+    @Nullable String qualifier = null;
+    if (receiverValue != null && !receiverValue.getAnnotations().isEmpty()) {
+      for (AnnotationMirror anno : receiverValue.getAnnotations()) {
         if (AnnotationUtils.areSameByName(anno, Bind.NAME)) {
-          bindAnno = anno;
+          boundClassNames =
+              AnnotationUtils.getElementValueArray(anno, bindValValueElement, String.class);
+          break;
+        } else if (AnnotationUtils.areSameByName(anno, BindAnnotatedWith.NAME)) {
+          List<String> annotatedNames =
+              AnnotationUtils.getElementValueArray(
+                  anno, bawAnnotatedWithValueElement, String.class);
+          if (annotatedNames.isEmpty()) {
+            throw new IllegalArgumentException("BindAnnotatedWith annotation must have a value.");
+          }
+          boundClassNames =
+              AnnotationUtils.getElementValueArray(anno, bawValValueElement, String.class);
+          qualifier = namedQualifier(annotatedNames.get(0));
           break;
         }
       }
     }
 
-    if (bindAnno != null) {
-      List<String> boundClassNames =
-          AnnotationUtils.getElementValueArray(bindAnno, bindValValueElement, String.class);
-
-      boundClassNames.forEach(
-          boundClassName -> {
-            if (DependencyInjectionAnnotatedTypeFactory.knownBindings.containsKey(boundClassName)) {
-              DependencyInjectionAnnotatedTypeFactory.knownBindings.remove(boundClassName);
-              // Class that is being bound to - put in knownBindings
-              // <bound,boundTo>
-              AnnotatedTypeMirror boundToClassTypeMirror =
-                  getTypeFactoryOfSubchecker(ClassValChecker.class)
-                      .getAnnotatedType(methodArgumentNode.getTree());
-
-              List<String> boundToClassNames =
-                  AnnotationUtils.getElementValueArray(
-                      boundToClassTypeMirror.getAnnotation(), classValValueElement, String.class);
-
-              boundToClassNames.forEach(
-                  boundToClassName -> {
-                    DependencyInjectionAnnotatedTypeFactory.knownBindings.put(
-                        boundClassName,
-                        KnownBindingsValue.builder().className(boundToClassName).build());
-                  });
-            }
-          });
+    List<PendingBinding> bindings = new ArrayList<>();
+    if (boundClassNames != null) {
+      // Classes that are being bound to. The receiver's qualifier shows that each bound class was
+      // passed to bind, which is recorded together with this call.
+      List<String> boundToClassNames = getBoundTypeNames(methodArgumentNode.getTree());
+      for (String boundClassName : boundClassNames) {
+        for (String boundToClassName : boundToClassNames) {
+          bindings.add(new PendingBinding(boundClassName, qualifier, boundToClassName, true));
+        }
+      }
     }
+    setPendingBindings(node, bindings);
   }
 
   /**
@@ -307,8 +1568,12 @@ public class DependencyInjectionAnnotatedTypeFactory extends AccumulationAnnotat
    *
    * @param bawAnno the {@code BindAnnotatedWith} annotation
    * @param toInstanceMethodArgumentNode the argument to the {@code toInstance} method
+   * @param bindings the list to which the bindings are added
    */
-  private void handleBAWAnnotation(AnnotationMirror bawAnno, Node toInstanceMethodArgumentNode) {
+  private void handleBAWAnnotation(
+      AnnotationMirror bawAnno,
+      Node toInstanceMethodArgumentNode,
+      List<PendingBinding> bindings) {
 
     List<String> boundClassNames =
         AnnotationUtils.getElementValueArray(bawAnno, bawValValueElement, String.class);
@@ -322,19 +1587,16 @@ public class DependencyInjectionAnnotatedTypeFactory extends AccumulationAnnotat
 
     boundClassNames.forEach(
         boundClassName -> {
-          DependencyInjectionAnnotatedTypeFactory.knownBindings.remove(boundClassName);
           // Class that is being bound to - put in knownBindings
           // <bound,boundTo>
           TypeMirror boundToClassName = toInstanceMethodArgumentNode.getType();
 
-          KnownBindingsValue knowBindingValue =
-              KnownBindingsValue.builder()
-                  .className(boundToClassName.toString())
-                  .annotationName(annotatedNames.get(0))
-                  .build();
-
-          DependencyInjectionAnnotatedTypeFactory.knownBindings.put(
-              boundClassName, knowBindingValue);
+          bindings.add(
+              new PendingBinding(
+                  boundClassName,
+                  namedQualifier(annotatedNames.get(0)),
+                  boundToClassName.toString(),
+                  false));
         });
   }
 
@@ -343,27 +1605,29 @@ public class DependencyInjectionAnnotatedTypeFactory extends AccumulationAnnotat
    *
    * @param bindAnno the {@code Bind} annotation
    * @param toInstanceMethodArgumentNode the argument to the {@code toInstance} method
+   * @param bindings the list to which the bindings are added
    */
-  private void handleBindAnnotation(AnnotationMirror bindAnno, Node toInstanceMethodArgumentNode) {
+  private void handleBindAnnotation(
+      AnnotationMirror bindAnno,
+      Node toInstanceMethodArgumentNode,
+      List<PendingBinding> bindings) {
 
     List<String> boundClassNames =
         AnnotationUtils.getElementValueArray(bindAnno, bindValValueElement, String.class);
 
     boundClassNames.forEach(
         boundClassName -> {
-          DependencyInjectionAnnotatedTypeFactory.knownBindings.remove(boundClassName);
           // Class that is being bound to - put in knownBindings
           // <bound,boundTo>
           TypeMirror boundToClassName = toInstanceMethodArgumentNode.getType();
 
-          DependencyInjectionAnnotatedTypeFactory.knownBindings.put(
-              boundClassName,
-              KnownBindingsValue.builder().className(boundToClassName.toString()).build());
+          bindings.add(
+              new PendingBinding(boundClassName, null, boundToClassName.toString(), false));
         });
   }
 
   /**
-   * Invoked when the {@code MethodInvocationNode} is a call to {@code
+   * Invoked by the transfer function when the {@code MethodInvocationNode} is a call to {@code
    * com.google.inject.binder.LinkedBindingBuilder.toInstance}
    *
    * <p>This method will attempt to find the class that is being bound and add it to the {@code
@@ -371,79 +1635,31 @@ public class DependencyInjectionAnnotatedTypeFactory extends AccumulationAnnotat
    *
    * <p>If the receiver is a call to {@code
    * com.google.inject.binder.AnnotatedBindingBuilder.annotatedWith}, a call to {@code
-   * handleAnnotatedWithMethod} will be made
+   * handleBAWAnnotation} will be made
    *
-   * @param currentNode the current node in the block
-   * @param methodAccessNode the method access node
-   * @param toInstanceMethodArgumentNode the argument to the{@code to} method
+   * @param node the call to {@code toInstance}
+   * @param receiverValue the value of the receiver of the {@code toInstance} method in the store
+   *     before the call, or null if the store has no information about it
+   * @param toInstanceMethodArgumentNode the argument to the {@code toInstance} method
    */
-  private void handleToInstanceMethodInvocation(
-      Node currentNode, MethodAccessNode methodAccessNode, Node toInstanceMethodArgumentNode) {
-
-    Node receiver = methodAccessNode.getReceiver();
-
-    CFValue value = this.getStoreBefore(currentNode).getValue(JavaExpression.fromNode(receiver));
-
-    if (value != null && !value.getAnnotations().isEmpty()) {
-      AnnotationMirrorSet annotations = value.getAnnotations();
+  protected void handleToInstanceMethodInvocation(
+      MethodInvocationNode node,
+      @Nullable CFValue receiverValue,
+      Node toInstanceMethodArgumentNode) {
+    List<PendingBinding> bindings = new ArrayList<>();
+    if (receiverValue != null && !receiverValue.getAnnotations().isEmpty()) {
+      AnnotationMirrorSet annotations = receiverValue.getAnnotations();
 
       annotations.forEach(
           (annotation) -> {
             if (AnnotationUtils.areSameByName(annotation, BindAnnotatedWith.NAME)) {
-              handleBAWAnnotation(annotation, toInstanceMethodArgumentNode);
+              handleBAWAnnotation(annotation, toInstanceMethodArgumentNode, bindings);
             } else if (AnnotationUtils.areSameByName(annotation, Bind.NAME)) {
-              handleBindAnnotation(annotation, toInstanceMethodArgumentNode);
+              handleBindAnnotation(annotation, toInstanceMethodArgumentNode, bindings);
             }
           });
     }
-  }
-
-  @Override
-  protected void postAnalyze(ControlFlowGraph cfg) {
-    Set<Block> visited = new HashSet<>();
-    Deque<Block> worklist = new ArrayDeque<>();
-
-    Block entry = cfg.getEntryBlock();
-    worklist.add(entry);
-    visited.add(entry);
-
-    while (!worklist.isEmpty()) {
-      Block current = worklist.remove();
-
-      current
-          .getNodes()
-          .forEach(
-              node -> {
-                if (node instanceof MethodInvocationNode) {
-                  MethodInvocationNode methodInvocationNode = (MethodInvocationNode) node;
-
-                  if (methodInvocationNode.getOperands().size() >= 2) {
-                    MethodAccessNode methodAccessNode = methodInvocationNode.getTarget();
-                    Node methodArgumentNode = methodInvocationNode.getArgument(0);
-
-                    if (isBindMethod(methodInvocationNode.getTree())) {
-                      handleBindMethodInvocation(methodArgumentNode);
-                    } else if (isToMethod(methodInvocationNode.getTree())) {
-                      handleToMethodInvocation(node, methodAccessNode, methodArgumentNode);
-                    } else if (isToInstanceMethod(methodInvocationNode.getTree())) {
-                      handleToInstanceMethodInvocation(node, methodAccessNode, methodArgumentNode);
-                    }
-                  }
-                }
-              });
-
-      visited.add(current);
-      current
-          .getSuccessors()
-          .forEach(
-              block -> {
-                if (!visited.contains(block)) {
-                  worklist.add(block);
-                }
-              });
-    }
-
-    super.postAnalyze(cfg);
+    setPendingBindings(node, bindings);
   }
 
   @Override
@@ -468,14 +1684,18 @@ public class DependencyInjectionAnnotatedTypeFactory extends AccumulationAnnotat
     public Void visitMethod(MethodTree tree, AnnotatedTypeMirror p) {
       ExecutableElement element = TreeUtils.elementFromDeclaration(tree);
       if (ElementUtils.hasAnnotation(element, Provides.class.getName())) {
-        // TODO: Put fully qualified names of classes in knownBindings
-        knownBindings.put(
-            tree.getReturnType().toString(),
-            KnownBindingsValue.builder().className(p.getUnderlyingType().toString()).build());
+        putBinding(
+            bindingKey(element.getReturnType()),
+            qualifierKey(element),
+            p.getUnderlyingType().toString(),
+            false);
+        if (statistics != null) {
+          statistics.count(
+              ElementUtils.getBinaryName(ElementUtils.enclosingTypeElement(element)),
+              CheckerStatistics.Counter.BINDINGS,
+              1);
+        }
       }
-
-      printKnownBindings();
-      printDependencies();
       return super.visitMethod(tree, p);
     }
   }
@@ -486,8 +1706,30 @@ public class DependencyInjectionAnnotatedTypeFactory extends AccumulationAnnotat
         this.getSupportedTypeQualifiers(), this.elements);
   }
 
+  /**
+   * The qualifier hierarchy of this checker. Lattice operations run for every store merge and
+   * every subtype check of the dataflow fixpoint, and a {@code configure} method with much
+   * branching asks for the same pairs of qualifiers over and over. Qualifiers are therefore
+   * canonicalized to the interned {@code @Bind} and {@code @BindAnnotatedWith} instances, and the
+   * result of each operation is memoized per pair of qualifiers, by identity, in a bounded table.
+   */
   protected class DependencyInjectionQualifierHierarchy extends AccumulationQualifierHierarchy {
 
+    /** The number of pairs of qualifiers whose result is cached, for each operation. */
+    private static final int LATTICE_CACHE_SIZE = 1024;
+
+    /** The memoized results of {@link #isSubtype}. */
+    private final IdentityPairCache<AnnotationMirror, Boolean> subtypeCache =
+        new IdentityPairCache<>(LATTICE_CACHE_SIZE);
+
+    /** The memoized results of {@link #leastUpperBound}. */
+    private final IdentityPairCache<AnnotationMirror, AnnotationMirror> lubCache =
+        new IdentityPairCache<>(LATTICE_CACHE_SIZE);
+
+    /** The memoized results of {@link #greatestLowerBound}. */
+    private final IdentityPairCache<AnnotationMirror, AnnotationMirror> glbCache =
+        new IdentityPairCache<>(LATTICE_CACHE_SIZE);
+
     protected DependencyInjectionQualifierHierarchy(
         Collection<Class<? extends Annotation>> qualifierClasses, Elements elements) {
       super(qualifierClasses, elements);
@@ -495,6 +1737,25 @@ public class DependencyInjectionAnnotatedTypeFactory extends AccumulationAnnotat
 
     @Override
     public boolean isSubtype(final AnnotationMirror subAnno, final AnnotationMirror superAnno) {
+      if (subAnno == superAnno) {
+        return true;
+      }
+      Boolean result = subtypeCache.get(subAnno, superAnno);
+      if (result == null) {
+        AnnotationMirror canonicalSub = canonicalize(subAnno);
+        AnnotationMirror canonicalSuper = canonicalize(superAnno);
+        result = subtypeCache.get(canonicalSub, canonicalSuper);
+        if (result == null) {
+          result = computeIsSubtype(canonicalSub, canonicalSuper);
+          subtypeCache.put(canonicalSub, canonicalSuper, result);
+        }
+        subtypeCache.put(subAnno, superAnno, result);
+      }
+      return result;
+    }
+
+    /** Implements {@link #isSubtype} on canonical qualifiers. */
+    private boolean computeIsSubtype(AnnotationMirror subAnno, AnnotationMirror superAnno) {
 
       if (AnnotationUtils.areSame(superAnno, top)) {
         return true;
@@ -509,12 +1770,40 @@ public class DependencyInjectionAnnotatedTypeFactory extends AccumulationAnnotat
         return false;
       }
 
+      if (isBind(subAnno) && isBind(superAnno)) {
+        // A qualifier is a subtype of those that accumulated a subset of its classes.
+        return getBoundClasses(subAnno).containsAll(getBoundClasses(superAnno));
+      }
+
       return super.isSubtype(subAnno, superAnno);
     }
 
     @Override
     public @Nullable AnnotationMirror leastUpperBound(
         final AnnotationMirror qualifier1, final AnnotationMirror qualifier2) {
+      if (qualifier1 == qualifier2) {
+        return qualifier1;
+      }
+      AnnotationMirror result = lubCache.get(qualifier1, qualifier2);
+      if (result == null) {
+        AnnotationMirror canonical1 = canonicalize(qualifier1);
+        AnnotationMirror canonical2 = canonicalize(qualifier2);
+        result = lubCache.get(canonical1, canonical2);
+        if (result == null) {
+          result = computeLeastUpperBound(canonical1, canonical2);
+          if (result == null) {
+            return null;
+          }
+          lubCache.put(canonical1, canonical2, result);
+        }
+        lubCache.put(qualifier1, qualifier2, result);
+      }
+      return result;
+    }
+
+    /** Implements {@link #leastUpperBound} on canonical qualifiers. */
+    private @Nullable AnnotationMirror computeLeastUpperBound(
+        AnnotationMirror qualifier1, AnnotationMirror qualifier2) {
 
       if (AnnotationUtils.areSame(qualifier1, qualifier2)) {
         return qualifier1;
@@ -525,12 +1814,40 @@ public class DependencyInjectionAnnotatedTypeFactory extends AccumulationAnnotat
         return top;
       }
 
+      if (isBind(qualifier1) && isBind(qualifier2)) {
+        return createBindAnnotation(
+            getBoundClasses(qualifier1).intersection(getBoundClasses(qualifier2)));
+      }
+
       return super.leastUpperBound(qualifier1, qualifier2);
     }
 
     @Override
     public @Nullable AnnotationMirror greatestLowerBound(
         AnnotationMirror qualifier1, AnnotationMirror qualifier2) {
+      if (qualifier1 == qualifier2) {
+        return qualifier1;
+      }
+      AnnotationMirror result = glbCache.get(qualifier1, qualifier2);
+      if (result == null) {
+        AnnotationMirror canonical1 = canonicalize(qualifier1);
+        AnnotationMirror canonical2 = canonicalize(qualifier2);
+        result = glbCache.get(canonical1, canonical2);
+        if (result == null) {
+          result = computeGreatestLowerBound(canonical1, canonical2);
+          if (result == null) {
+            return null;
+          }
+          glbCache.put(canonical1, canonical2, result);
+        }
+        glbCache.put(qualifier1, qualifier2, result);
+      }
+      return result;
+    }
+
+    /** Implements {@link #greatestLowerBound} on canonical qualifiers. */
+    private @Nullable AnnotationMirror computeGreatestLowerBound(
+        AnnotationMirror qualifier1, AnnotationMirror qualifier2) {
 
       if (AnnotationUtils.areSame(qualifier1, qualifier2)) {
         return qualifier1;
@@ -541,14 +1858,127 @@ public class DependencyInjectionAnnotatedTypeFactory extends AccumulationAnnotat
         return bottom;
       }
 
+      if (isBind(qualifier1) && isBind(qualifier2)) {
+        return createBindAnnotation(
+            getBoundClasses(qualifier1).union(getBoundClasses(qualifier2)));
+      }
+
       return super.greatestLowerBound(qualifier1, qualifier2);
     }
+
+    /** Returns true iff a qualifier is a {@code @Bind} annotation. */
+    private boolean isBind(AnnotationMirror qualifier) {
+      return AnnotationUtils.areSameByName(qualifier, Bind.NAME);
+    }
+
+    /**
+     * Returns the interned instance of a {@code @Bind} or {@code @BindAnnotatedWith} qualifier, so
+     * that equal qualifiers share one entry of the caches. Other qualifiers are returned as is.
+     *
+     * @param qualifier a qualifier of this hierarchy
+     * @return the interned qualifier equal to {@code qualifier}
+     */
+    private AnnotationMirror canonicalize(AnnotationMirror qualifier) {
+      if (qualifier == top || qualifier == bottom) {
+        return qualifier;
+      }
+      if (isBind(qualifier)) {
+        return createBindAnnotation(getBoundClasses(qualifier));
+      }
+      if (AnnotationUtils.areSameByName(qualifier, BindAnnotatedWith.NAME)) {
+        List<String> values =
+            AnnotationUtils.getElementValueArray(qualifier, bawValValueElement, String.class);
+        List<String> names =
+            AnnotationUtils.getElementValueArray(
+                qualifier, bawAnnotatedWithValueElement, String.class);
+        if (values.size() == 1 && names.size() == 1) {
+          return createBindAnnotatedWithAnnotation(values.get(0), names.get(0));
+        }
+      }
+      return qualifier;
+    }
+  }
+
+  /**
+   * Returns the {@code @Bind} annotation with the given values. Equal annotations are interned, so
+   * repeated requests for the same values return the same instance.
+   *
+   * @param values the bound classes
+   * @return the {@code @Bind} annotation with the given values
+   */
+  @Override
+  public AnnotationMirror createAccumulatorAnnotation(List<String> values) {
+    if (bindAnnotations == null) {
+      // Called from the superclass constructor, to create the top annotation.
+      return super.createAccumulatorAnnotation(values);
+    }
+    return createBindAnnotation(getBoundClassSet(values));
+  }
+
+  /**
+   * Returns the {@code @Bind} annotation for a set of bound classes. The annotation is only built
+   * the first time the set is requested.
+   *
+   * @param boundClasses the bound classes
+   * @return the interned {@code @Bind} annotation whose values are {@code boundClasses}
+   */
+  public AnnotationMirror createBindAnnotation(BoundClassSet boundClasses) {
+    AnnotationMirror anno = bindAnnotations.get(boundClasses);
+    if (anno == null) {
+      count(CheckerStatistics.Counter.ANNOTATION_MIRRORS);
+      anno = super.createAccumulatorAnnotation(boundClasses.toNames(boundClassNames));
+      bindAnnotations.put(boundClasses, anno);
+    }
+    boundClassSets.put(anno, boundClasses);
+    return anno;
+  }
+
+  /**
+   * Returns the set of some bound classes.
+   *
+   * @param classNames the names of the classes
+   * @return the set of {@code classNames}
+   */
+  public BoundClassSet getBoundClassSet(Collection<String> classNames) {
+    return BoundClassSet.of(boundClassNames, classNames);
+  }
+
+  /**
+   * Returns the bound classes of a {@code @Bind} annotation. The values of the annotations created
+   * by this factory are known without reading the annotation.
+   *
+   * @param bindAnno a {@code @Bind} annotation
+   * @return the values of {@code bindAnno}
+   */
+  public BoundClassSet getBoundClasses(AnnotationMirror bindAnno) {
+    BoundClassSet boundClasses = boundClassSets.get(bindAnno);
+    if (boundClasses == null) {
+      boundClasses =
+          getBoundClassSet(
+              AnnotationUtils.getElementValueArray(bindAnno, bindValValueElement, String.class));
+      boundClassSets.put(bindAnno, boundClasses);
+    }
+    return boundClasses;
   }
 
+  /**
+   * Returns the {@code @BindAnnotatedWith} annotation for a class bound under a name. Equal
+   * annotations are interned, so repeated requests for the same class and name return the same
+   * instance.
+   *
+   * @param value the bound class
+   * @param name the name the class is bound under
+   * @return the {@code @BindAnnotatedWith} annotation for {@code value} and {@code name}
+   */
   public AnnotationMirror createBindAnnotatedWithAnnotation(String value, String name) {
-    AnnotationBuilder builder = new AnnotationBuilder(processingEnv, BindAnnotatedWith.class);
-    builder.setValue("value", Collections.singletonList(value));
-    builder.setValue("annotatedWith", Collections.singletonList(name));
-    return builder.build();
+    return bindAnnotatedWithAnnotations.computeIfAbsent(
+        Arrays.asList(value, name),
+        key -> {
+          count(CheckerStatistics.Counter.ANNOTATION_MIRRORS);
+          AnnotationBuilder builder = new AnnotationBuilder(processingEnv, BindAnnotatedWith.class);
+          builder.setValue("value", Collections.singletonList(value));
+          builder.setValue("annotatedWith", Collections.singletonList(name));
+          return builder.build();
+        });
   }
 }
@@ -1,16 +1,164 @@
 package org.checkerframework.checker.dependencyinjection;
 
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Log;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import org.checkerframework.checker.dependencyinjection.utils.BindingIndex;
+import org.checkerframework.checker.dependencyinjection.utils.BindingManifest;
+import org.checkerframework.checker.dependencyinjection.utils.BindingSummary;
+import org.checkerframework.checker.dependencyinjection.utils.BytecodeBindingExtractor;
+import org.checkerframework.checker.dependencyinjection.utils.CheckerStatistics;
+import org.checkerframework.checker.dependencyinjection.utils.InjectionPoint;
+import org.checkerframework.checker.dependencyinjection.utils.InjectionPointResolver;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.common.accumulation.AccumulationChecker;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.common.basetype.BaseTypeVisitor;
 import org.checkerframework.common.reflection.ClassValChecker;
-import org.checkerframework.framework.qual.StubFiles;
 
-/** This is the entry point for pluggable type-checking. */
-@StubFiles({"Guice.astub"})
+/**
+ * This is the entry point for pluggable type-checking.
+ *
+ * <p>Bindings and injection points are collected while each compilation unit is processed. Once
+ * type processing is over, every injection point is matched against the bindings of the whole
+ * compilation, and those without a binding, or whose chain of linked bindings is a cycle, are
+ * reported. An unqualified dependency without a binding is accepted if Guice can create its class
+ * just in time, which requires each dependency of that class to be satisfiable in turn.
+ *
+ * <p>The checker supports the following options:
+ *
+ * <ul>
+ *   <li>{@code -AdiDumpBindings=<file>}: once type processing is over, write the bindings and
+ *       injection points found in the compilation to {@code <file>} as JSON.
+ *   <li>{@code -AdiBindingIndex=<dir>}: keep an index of the bindings and injection points of each
+ *       compilation unit in {@code <dir>}, keyed by a hash of the unit's source and of the
+ *       checker's version, options and classpath. The bindings and injection points of units that
+ *       are unchanged since the previous compilation are loaded from the index, and the units are
+ *       not type-checked again. Units that issued a diagnostic are not kept in the index, so they
+ *       are always type-checked and report their diagnostics again.
+ *   <li>{@code -AdiWriteBindingManifest}: write the bindings found in the compilation to {@value
+ *       BindingManifest#RESOURCE_NAME} in the class output directory, so that they are packaged
+ *       with the library and visible to the compilations that depend on it.
+ *   <li>{@code -AdiStats}: once type processing is over, print the time spent in the phases of the
+ *       checker and the number of control flow graphs, bindings, injection points and annotations
+ *       it processed, for the whole compilation and for each class.
+ *   <li>{@code -AdiSyntacticBindings}: read the bindings of methods made only of binding DSL
+ *       chains with literal arguments, such as {@code bind(Foo.class).to(FooImpl.class)}, directly
+ *       from the AST, without dataflow analysis or the ClassVal Checker.
+ *   <li>{@code -AdiDeferResolution[=<file>]}: do not match the injection points against the
+ *       bindings, and so report no missing bindings. If {@code <file>} is given, write a {@link
+ *       org.checkerframework.checker.dependencyinjection.utils.ResolutionSummary} of the
+ *       compilation to it instead, from which {@link
+ *       org.checkerframework.checker.dependencyinjection.sharded.ShardedChecker} resolves the
+ *       injection points of all its shards against the bindings of all shards, without javac.
+ *   <li>{@code -AdiBytecodeBindings}: also read the bindings of the modules compiled into the jars
+ *       and directories on the classpath that have no binding manifest, from their bytecode.
+ * </ul>
+ *
+ * <p>The manifests of the libraries on the classpath are always read: their bindings satisfy the
+ * injection points of this compilation without the libraries' sources being compiled again.
+ */
+@SupportedOptions({
+  DependencyInjectionChecker.DUMP_BINDINGS_OPTION,
+  DependencyInjectionChecker.BINDING_INDEX_OPTION,
+  DependencyInjectionChecker.WRITE_BINDING_MANIFEST_OPTION,
+  DependencyInjectionChecker.STATS_OPTION,
+  DependencyInjectionChecker.SYNTACTIC_BINDINGS_OPTION,
+  DependencyInjectionChecker.DEFER_RESOLUTION_OPTION,
+  DependencyInjectionChecker.BYTECODE_BINDINGS_OPTION
+})
 public class DependencyInjectionChecker extends AccumulationChecker {
 
+  /** The option that names the file to which the binding graph is written. */
+  public static final String DUMP_BINDINGS_OPTION = "diDumpBindings";
+
+  /** The option that names the directory of the persistent binding index. */
+  public static final String BINDING_INDEX_OPTION = "diBindingIndex";
+
+  /** The option that makes the checker write a binding manifest into the class output. */
+  public static final String WRITE_BINDING_MANIFEST_OPTION = "diWriteBindingManifest";
+
+  /** The option that makes the checker print statistics about its phases. */
+  public static final String STATS_OPTION = "diStats";
+
+  /** The option that makes the checker read literal-only binding chains directly from the AST. */
+  public static final String SYNTACTIC_BINDINGS_OPTION = "diSyntacticBindings";
+
+  /** The option that makes the checker record injection points without resolving them. */
+  public static final String DEFER_RESOLUTION_OPTION = "diDeferResolution";
+
+  /** The option that makes the checker read the bindings of compiled modules on the classpath. */
+  public static final String BYTECODE_BINDINGS_OPTION = "diBytecodeBindings";
+
+  /**
+   * The options that only change what the checker writes or reports once type processing is over,
+   * not what it records for a compilation unit, and so are not part of the keys of the binding
+   * index.
+   */
+  private static final Set<String> OUTPUT_OPTIONS =
+      new HashSet<>(
+          Arrays.asList(
+              DUMP_BINDINGS_OPTION,
+              BINDING_INDEX_OPTION,
+              WRITE_BINDING_MANIFEST_OPTION,
+              STATS_OPTION,
+              DEFER_RESOLUTION_OPTION));
+
+  /** The persistent binding index, or null if {@link #BINDING_INDEX_OPTION} is not given. */
+  private @Nullable BindingIndex bindingIndex = null;
+
+  /**
+   * The configuration of this compilation that the summaries in {@link #bindingIndex} depend on,
+   * hashed with the source of each unit to key the index; see {@link #getIndexConfiguration}.
+   */
+  private String indexConfiguration = "";
+
+  /**
+   * The source hash of each compilation unit seen in this compilation, or null for units whose
+   * source could not be read.
+   */
+  private final Map<CompilationUnitTree, String> unitHashes = new IdentityHashMap<>();
+
+  /** The compilation units whose bindings were loaded from {@link #bindingIndex}. */
+  private final Set<CompilationUnitTree> indexedUnits =
+      Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /** The summaries being recorded for compilation units that are analyzed. */
+  private final Map<CompilationUnitTree, BindingSummary> recordedUnits = new IdentityHashMap<>();
+
   public DependencyInjectionChecker() {}
 
   @Override
@@ -26,4 +174,338 @@ public class DependencyInjectionChecker extends AccumulationChecker {
 
     return checkers;
   }
+
+  @Override
+  public void initChecker() {
+    super.initChecker();
+    String indexDir = getOption(BINDING_INDEX_OPTION);
+    if (indexDir != null) {
+      bindingIndex = BindingIndex.load(Paths.get(indexDir, BindingIndex.FILE_NAME));
+      indexConfiguration = getIndexConfiguration();
+    }
+    DependencyInjectionAnnotatedTypeFactory factory =
+        (DependencyInjectionAnnotatedTypeFactory) getTypeFactory();
+    if (factory != null) {
+      readLibraryManifests(factory);
+    }
+  }
+
+  /**
+   * Makes the bindings in the manifests of the libraries on the classpath visible to the type
+   * factory.
+   *
+   * @param factory the type factory
+   */
+  private void readLibraryManifests(DependencyInjectionAnnotatedTypeFactory factory) {
+    ClassLoader classLoader = getFileManager().getClassLoader(StandardLocation.CLASS_PATH);
+    if (classLoader == null) {
+      return;
+    }
+    try {
+      List<BindingManifest> manifests;
+      try {
+        manifests = BindingManifest.findAll(classLoader);
+      } catch (IOException e) {
+        message(Diagnostic.Kind.WARNING, "Could not read binding manifests: %s", e.getMessage());
+        manifests = new ArrayList<>();
+      }
+      if (hasOption(BYTECODE_BINDINGS_OPTION)) {
+        // The manifests found above are installed even if the bytecode cannot be read.
+        try {
+          manifests.add(extractBytecodeBindings());
+        } catch (IOException e) {
+          message(
+              Diagnostic.Kind.WARNING,
+              "Could not read the bindings of the classpath: %s",
+              e.getMessage());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      factory.setLibraryManifests(manifests);
+    } finally {
+      if (classLoader instanceof Closeable) {
+        try {
+          ((Closeable) classLoader).close();
+        } catch (IOException e) {
+          // The manifests have already been read.
+        }
+      }
+    }
+  }
+
+  /**
+   * Extracts the bindings of the compiled modules on the classpath.
+   *
+   * @return a manifest of the bindings of the modules on the classpath
+   * @throws IOException if the bindings cannot be encoded
+   * @throws InterruptedException if this thread is interrupted while the classpath is scanned
+   */
+  private BindingManifest extractBytecodeBindings() throws IOException, InterruptedException {
+    return BytecodeBindingExtractor.extract(getClasspath(), ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the entries of the classpath of the compilation.
+   *
+   * @return the jars and directories on the classpath, or the empty list if they are not known
+   */
+  private List<Path> getClasspath() {
+    List<Path> classpath = new ArrayList<>();
+    JavaFileManager fileManager = getFileManager();
+    if (fileManager instanceof StandardJavaFileManager) {
+      Iterable<? extends File> files =
+          ((StandardJavaFileManager) fileManager).getLocation(StandardLocation.CLASS_PATH);
+      if (files != null) {
+        for (File file : files) {
+          classpath.add(file.toPath());
+        }
+      }
+    }
+    return classpath;
+  }
+
+  /**
+   * Returns everything other than its source that the summary of a compilation unit depends on:
+   * the versions of this checker and of the Checker Framework, the options of the compilation other
+   * than the {@link #OUTPUT_OPTIONS}, and the classpath. A summary recorded under a different
+   * configuration is not replayed.
+   *
+   * @return the configuration of this compilation
+   */
+  private String getIndexConfiguration() {
+    StringBuilder configuration = new StringBuilder();
+    configuration.append(getCodeVersion(DependencyInjectionChecker.class)).append('\n');
+    configuration.append(getCodeVersion(BaseTypeChecker.class)).append('\n');
+    for (Map.Entry<String, String> option : new TreeMap<>(processingEnv.getOptions()).entrySet()) {
+      if (!OUTPUT_OPTIONS.contains(option.getKey())) {
+        configuration.append('-').append(option.getKey());
+        if (option.getValue() != null) {
+          configuration.append('=').append(option.getValue());
+        }
+        configuration.append('\n');
+      }
+    }
+    for (Path entry : getClasspath()) {
+      configuration.append(entry.toAbsolutePath()).append('\n');
+    }
+    return configuration.toString();
+  }
+
+  /**
+   * Returns the version of the code of a class: the jar or class file that it is loaded from, and
+   * the time at which that file was last modified, so that a rebuilt checker has a new version.
+   *
+   * @param type a class
+   * @return the version of the code of {@code type}, or the empty string if it is not known
+   */
+  private static String getCodeVersion(Class<?> type) {
+    CodeSource source = type.getProtectionDomain().getCodeSource();
+    if (source == null || source.getLocation() == null) {
+      return "";
+    }
+    try {
+      Path location = Paths.get(source.getLocation().toURI());
+      if (Files.isDirectory(location)) {
+        location = location.resolve(type.getName().replace('.', '/') + ".class");
+      }
+      return location + "@" + Files.getLastModifiedTime(location).toMillis();
+    } catch (IOException
+        | URISyntaxException
+        | IllegalArgumentException
+        | FileSystemNotFoundException e) {
+      return source.getLocation().toString();
+    }
+  }
+
+  /**
+   * Writes the bindings of this compilation to the class output directory.
+   *
+   * @param factory the type factory
+   * @throws IOException if the manifest cannot be written
+   */
+  private void writeBindingManifest(DependencyInjectionAnnotatedTypeFactory factory)
+      throws IOException {
+    FileObject file =
+        getFileManager()
+            .getFileForOutput(
+                StandardLocation.CLASS_OUTPUT, "", BindingManifest.RESOURCE_NAME, null);
+    try (OutputStream out = new BufferedOutputStream(file.openOutputStream())) {
+      factory.writeBindingManifest(out);
+    }
+  }
+
+  /**
+   * Writes the bindings and injection points of this compilation, to be resolved later.
+   *
+   * @param factory the type factory
+   * @param file the file to write
+   * @throws IOException if the summary cannot be written
+   */
+  private void writeResolutionSummary(DependencyInjectionAnnotatedTypeFactory factory, Path file)
+      throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+      factory.writeResolutionSummary(out, this::sourcePosition);
+    }
+  }
+
+  /**
+   * Returns the source position of a program element, as the name of its source file and its line.
+   *
+   * @param element a program element
+   * @return the position of {@code element}, such as {@code /src/Foo.java:12}, or its qualified
+   *     name if it was read from a class file
+   */
+  private String sourcePosition(Element element) {
+    Trees trees = Trees.instance(processingEnv);
+    TreePath path = trees.getPath(element);
+    if (path == null) {
+      return element.getEnclosingElement() + "." + element;
+    }
+    CompilationUnitTree unit = path.getCompilationUnit();
+    long start = trees.getSourcePositions().getStartPosition(unit, path.getLeaf());
+    return unit.getSourceFile().getName() + ":" + unit.getLineMap().getLineNumber(start);
+  }
+
+  /** Returns the file manager of the compilation. */
+  private JavaFileManager getFileManager() {
+    Context context = ((JavacProcessingEnvironment) processingEnv).getContext();
+    return context.get(JavaFileManager.class);
+  }
+
+  @Override
+  public void typeProcess(TypeElement element, TreePath tree) {
+    DependencyInjectionAnnotatedTypeFactory factory =
+        (DependencyInjectionAnnotatedTypeFactory) getTypeFactory();
+    if (bindingIndex == null || factory == null) {
+      super.typeProcess(element, tree);
+      return;
+    }
+
+    CompilationUnitTree unit = tree.getCompilationUnit();
+    String hash = unitHashes.get(unit);
+    if (!unitHashes.containsKey(unit)) {
+      hash = hashSource(unit);
+      unitHashes.put(unit, hash);
+      BindingSummary summary = hash == null ? null : bindingIndex.lookup(hash);
+      if (summary != null) {
+        factory.replaySummary(summary);
+        indexedUnits.add(unit);
+      } else if (hash != null) {
+        recordedUnits.put(unit, bindingIndex.record(hash));
+      }
+    }
+
+    if (indexedUnits.contains(unit)) {
+      // The unit and the configuration are unchanged since the unit was indexed, which it only is
+      // if it issued no diagnostic: type-checking it again would find nothing new.
+      return;
+    }
+
+    Log log = Log.instance(((JavacProcessingEnvironment) processingEnv).getContext());
+    int diagnosticsBefore = log.nerrors + log.nwarnings;
+    factory.setActiveSummary(recordedUnits.get(unit));
+    try {
+      super.typeProcess(element, tree);
+    } finally {
+      factory.setActiveSummary(null);
+    }
+    if (log.nerrors + log.nwarnings != diagnosticsBefore && hash != null) {
+      // Extract the bindings of the unit again next time rather than trust a summary recorded
+      // while diagnostics were issued for it.
+      bindingIndex.discard(hash);
+    }
+  }
+
+  /**
+   * Returns the hash of the source code of a compilation unit and of the configuration of this
+   * compilation.
+   *
+   * @param unit a compilation unit
+   * @return the key of {@code unit} in the binding index, or null if its source cannot be read
+   */
+  private @Nullable String hashSource(CompilationUnitTree unit) {
+    try {
+      return BindingIndex.hash(indexConfiguration, unit.getSourceFile().getCharContent(true));
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public void typeProcessingOver() {
+    DependencyInjectionAnnotatedTypeFactory factory =
+        (DependencyInjectionAnnotatedTypeFactory) getTypeFactory();
+    if (factory != null) {
+      if (!hasOption(DEFER_RESOLUTION_OPTION)) {
+        reportUnresolved(factory);
+      } else {
+        String summaryFile = getOption(DEFER_RESOLUTION_OPTION);
+        if (summaryFile != null && !summaryFile.isEmpty()) {
+          try {
+            writeResolutionSummary(factory, Paths.get(summaryFile));
+          } catch (IOException e) {
+            message(Diagnostic.Kind.WARNING, "Could not write %s: %s", summaryFile, e.getMessage());
+          }
+        }
+      }
+      String dumpFile = getOption(DUMP_BINDINGS_OPTION);
+      if (dumpFile != null) {
+        try {
+          factory.writeBindingGraph(Paths.get(dumpFile));
+        } catch (IOException e) {
+          message(Diagnostic.Kind.WARNING, "Could not write %s: %s", dumpFile, e.getMessage());
+        }
+      }
+      if (hasOption(WRITE_BINDING_MANIFEST_OPTION)) {
+        try {
+          writeBindingManifest(factory);
+        } catch (IOException e) {
+          message(
+              Diagnostic.Kind.WARNING,
+              "Could not write %s: %s",
+              BindingManifest.RESOURCE_NAME,
+              e.getMessage());
+        }
+      }
+      if (bindingIndex != null) {
+        String indexDir = getOption(BINDING_INDEX_OPTION);
+        try {
+          bindingIndex.save(Paths.get(indexDir, BindingIndex.FILE_NAME));
+        } catch (IOException e) {
+          message(Diagnostic.Kind.WARNING, "Could not write %s: %s", indexDir, e.getMessage());
+        }
+        unitHashes.clear();
+        indexedUnits.clear();
+        recordedUnits.clear();
+      }
+      CheckerStatistics statistics = factory.getStatistics();
+      if (statistics != null) {
+        message(Diagnostic.Kind.NOTE, "%s", statistics.summarize());
+        statistics.clear();
+      }
+      // The registry belongs to this compilation only; drop it so that a JVM that is reused for
+      // further compilations does not retain its bindings.
+      factory.releaseBindingRegistry();
+    }
+    super.typeProcessingOver();
+  }
+
+  /**
+   * Reports the injection points of this compilation that no binding satisfies.
+   *
+   * @param factory the type factory of this compilation
+   */
+  private void reportUnresolved(DependencyInjectionAnnotatedTypeFactory factory) {
+    InjectionPointResolver resolver =
+        factory.createInjectionPointResolver(ForkJoinPool.commonPool());
+    for (InjectionPoint unresolved : resolver.findUnresolved()) {
+      InjectionPointResolver.Unresolved error = resolver.explain(unresolved);
+      reportError(unresolved.getReportingLocation(), error.getMessageKey(), error.getArguments());
+    }
+  }
 }
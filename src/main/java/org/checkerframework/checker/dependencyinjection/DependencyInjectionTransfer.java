@@ -1,22 +1,28 @@
 package org.checkerframework.checker.dependencyinjection;
 
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
 import java.util.List;
 import javax.lang.model.element.AnnotationMirror;
 import org.checkerframework.checker.dependencyinjection.qual.Bind;
 import org.checkerframework.checker.dependencyinjection.qual.BindAnnotatedWith;
+import org.checkerframework.checker.dependencyinjection.utils.BoundClassSet;
+import org.checkerframework.checker.dependencyinjection.utils.CheckerStatistics;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.common.accumulation.AccumulationTransfer;
-import org.checkerframework.common.reflection.ClassValChecker;
 import org.checkerframework.dataflow.analysis.TransferInput;
 import org.checkerframework.dataflow.analysis.TransferResult;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
 import org.checkerframework.dataflow.cfg.node.AssignmentNode;
+import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
 import org.checkerframework.dataflow.cfg.node.MethodInvocationNode;
 import org.checkerframework.dataflow.cfg.node.Node;
 import org.checkerframework.dataflow.cfg.node.StringLiteralNode;
 import org.checkerframework.dataflow.expression.JavaExpression;
+import org.checkerframework.framework.flow.CFAbstractStore;
 import org.checkerframework.framework.flow.CFAnalysis;
 import org.checkerframework.framework.flow.CFStore;
 import org.checkerframework.framework.flow.CFValue;
-import org.checkerframework.framework.type.AnnotatedTypeMirror;
 import org.checkerframework.javacutil.AnnotationMirrorSet;
 import org.checkerframework.javacutil.AnnotationUtils;
 
@@ -29,34 +35,60 @@ public class DependencyInjectionTransfer extends AccumulationTransfer {
     this.diATF = (DependencyInjectionAnnotatedTypeFactory) analysis.getTypeFactory();
   }
 
+  @Override
+  public CFStore initialStore(UnderlyingAST underlyingAST, List<LocalVariableNode> parameters) {
+    diATF.startAnalysis(underlyingAST);
+    return super.initialStore(underlyingAST, parameters);
+  }
+
   @Override
   public TransferResult<CFValue, CFStore> visitMethodInvocation(
       final MethodInvocationNode node, final TransferInput<CFValue, CFStore> input) {
+    CheckerStatistics statistics = diATF.getStatistics();
+    if (statistics == null) {
+      return visitMethodInvocationImpl(node, input);
+    }
+    long start = System.nanoTime();
+    try {
+      return visitMethodInvocationImpl(node, input);
+    } finally {
+      statistics.time(
+          diATF.getAnalyzedClassName(),
+          CheckerStatistics.Timer.METHOD_INVOCATION,
+          System.nanoTime() - start);
+    }
+  }
+
+  /** Implements {@link #visitMethodInvocation}. */
+  private TransferResult<CFValue, CFStore> visitMethodInvocationImpl(
+      final MethodInvocationNode node, final TransferInput<CFValue, CFStore> input) {
 
     TransferResult<CFValue, CFStore> result = super.visitMethodInvocation(node, input);
+    if (!diATF.isExtractingBindings()) {
+      return result;
+    }
 
-    if (diATF.isBindMethod(node.getTree())) {
+    GuiceCallKind guiceCallKind = diATF.classifyGuiceCall(node.getTree());
+    if (guiceCallKind == GuiceCallKind.BIND) {
       Node boundClass = node.getArgument(0);
 
-      AnnotatedTypeMirror boundClassTypeMirror =
-          this.diATF
-              .getTypeFactoryOfSubchecker(ClassValChecker.class)
-              .getAnnotatedType(boundClass.getTree());
+      List<String> classNames = this.diATF.getBoundTypeNames(boundClass.getTree());
+
+      accumulateBoundClasses(node, result, diATF.getBoundClassSet(classNames));
+      diATF.handleBindMethodInvocation(node, classNames);
 
-      List<String> classNames =
-          AnnotationUtils.getElementValueArray(
-              boundClassTypeMirror.getAnnotation(), diATF.classValValueElement, String.class);
+    } else if (guiceCallKind == GuiceCallKind.TO) {
+      diATF.handleToMethodInvocation(node, getReceiverValue(node, input), node.getArgument(0));
 
-      accumulate(node, result, classNames.toArray(new String[1]));
+    } else if (guiceCallKind == GuiceCallKind.TO_INSTANCE) {
+      diATF.handleToInstanceMethodInvocation(
+          node, getReceiverValue(node, input), node.getArgument(0));
 
-    } else if (diATF.isAnnotatedWithMethod(node.getTree())) {
+    } else if (guiceCallKind == GuiceCallKind.ANNOTATED_WITH) {
 
       MethodInvocationNode methodInvocationNode = node;
 
-      CFValue value =
-          diATF
-              .getStoreBefore(node)
-              .getValue(JavaExpression.fromNode(methodInvocationNode.getTarget().getReceiver()));
+      CFValue value = getReceiverValue(methodInvocationNode, input);
 
       if (value != null && !value.getAnnotations().isEmpty()) {
         AnnotationMirrorSet annotations = value.getAnnotations();
@@ -74,11 +106,76 @@ public class DependencyInjectionTransfer extends AccumulationTransfer {
               }
             });
       }
+      clearDeadTemporary(node.getArgument(0), result);
+    }
+
+    if (guiceCallKind != GuiceCallKind.NONE) {
+      if (guiceCallKind != GuiceCallKind.BIND) {
+        // The builder returned by the previous call of the chain is consumed by this call.
+        clearDeadTemporary(node.getTarget().getReceiver(), result);
+      }
+      if (isDiscarded(node)) {
+        clearDeadTemporary(node, result);
+      }
     }
 
     return result;
   }
 
+  /**
+   * Returns true iff the result of a method invocation is discarded, because the invocation is an
+   * expression statement.
+   *
+   * @param node a method invocation
+   * @return true iff nothing uses the value of {@code node}
+   */
+  private static boolean isDiscarded(MethodInvocationNode node) {
+    TreePath path = node.getTreePath();
+    return path != null
+        && path.getParentPath() != null
+        && path.getParentPath().getLeaf().getKind() == Tree.Kind.EXPRESSION_STATEMENT;
+  }
+
+  /**
+   * Removes the facts about a builder temporary from the stores once it is dead. A method
+   * invocation that the stubs declare pure, such as {@code bind(Foo.class)}, is tracked in the
+   * stores like a variable, but the builder it returns is used by at most one later call of the
+   * chain, or by one assignment. Without this, the stores of a long {@code configure} method would
+   * keep a fact for every call ever made, and copying and merging them would cost more with every
+   * statement.
+   *
+   * <p>Builders held in local variables are kept: they may be used more than once.
+   *
+   * @param node a node whose value has just been used for the last time
+   * @param result the transfer result whose stores are pruned
+   */
+  private void clearDeadTemporary(@Nullable Node node, TransferResult<CFValue, CFStore> result) {
+    if (!(node instanceof MethodInvocationNode)) {
+      return;
+    }
+    JavaExpression temporary = JavaExpression.fromNode(node);
+    if (result.containsTwoStores()) {
+      result.getThenStore().clearValue(temporary);
+      result.getElseStore().clearValue(temporary);
+    } else {
+      result.getRegularStore().clearValue(temporary);
+    }
+  }
+
+  /**
+   * Returns the value of the receiver of a method invocation in the store before the invocation.
+   *
+   * @param node a method invocation
+   * @param input the transfer input of {@code node}
+   * @return the value of the receiver of {@code node}, or null if the store has no information
+   */
+  private @Nullable CFValue getReceiverValue(
+      MethodInvocationNode node, TransferInput<CFValue, CFStore> input) {
+    return input
+        .getRegularStore()
+        .getValue(JavaExpression.fromNode(node.getTarget().getReceiver()));
+  }
+
   /**
    * TODO: Workaround for a known issue where the transfer function fails to propogate the Guice
    * annotations from the right-hand side (rhs) to the left-hand side (lhs) of an assignment.
@@ -96,27 +193,44 @@ public class DependencyInjectionTransfer extends AccumulationTransfer {
   @Override
   public TransferResult<CFValue, CFStore> visitAssignment(
       AssignmentNode node, TransferInput<CFValue, CFStore> input) {
+    CheckerStatistics statistics = diATF.getStatistics();
+    if (statistics == null) {
+      return visitAssignmentImpl(node, input);
+    }
+    long start = System.nanoTime();
+    try {
+      return visitAssignmentImpl(node, input);
+    } finally {
+      statistics.time(
+          diATF.getAnalyzedClassName(),
+          CheckerStatistics.Timer.ASSIGNMENT,
+          System.nanoTime() - start);
+    }
+  }
+
+  /** Implements {@link #visitAssignment}. */
+  private TransferResult<CFValue, CFStore> visitAssignmentImpl(
+      AssignmentNode node, TransferInput<CFValue, CFStore> input) {
 
     TransferResult<CFValue, CFStore> result = super.visitAssignment(node, input);
+    if (!diATF.isExtractingBindings()) {
+      return result;
+    }
 
-    if (!diATF.isBindMethod(node.getExpression().getTree())
-        && !diATF.isAnnotatedWithMethod(node.getExpression().getTree())) {
+    GuiceCallKind guiceCallKind = diATF.classifyGuiceCall(node.getExpression().getTree());
+    if (guiceCallKind != GuiceCallKind.BIND && guiceCallKind != GuiceCallKind.ANNOTATED_WITH) {
       return result;
     }
 
     CFValue value =
-        diATF.getStoreBefore(node).getValue(JavaExpression.fromNode(node.getExpression()));
+        input.getRegularStore().getValue(JavaExpression.fromNode(node.getExpression()));
 
     if (value != null && !value.getAnnotations().isEmpty()) {
       AnnotationMirrorSet annotations = value.getAnnotations();
       annotations.forEach(
           annotation -> {
             if (AnnotationUtils.areSameByName(annotation, Bind.NAME)) {
-              List<String> classNames =
-                  AnnotationUtils.getElementValueArray(
-                      annotation, diATF.bindValValueElement, String.class);
-
-              accumulate(node.getTarget(), result, classNames.toArray(new String[1]));
+              accumulateBoundClasses(node.getTarget(), result, diATF.getBoundClasses(annotation));
             } else if (AnnotationUtils.areSameByName(annotation, BindAnnotatedWith.NAME)) {
               List<String> classNames =
                   AnnotationUtils.getElementValueArray(
@@ -130,10 +244,41 @@ public class DependencyInjectionTransfer extends AccumulationTransfer {
             }
           });
     }
+    clearDeadTemporary(node.getExpression(), result);
 
     return result;
   }
 
+  /**
+   * Adds bound classes to the {@code @Bind} qualifier of a node in the stores. The classes are
+   * merged with those already accumulated as sets of interned IDs, so a long run of {@code bind}
+   * calls does not copy and re-sort a growing list of names on every call, and a new annotation is
+   * only built for a set that has not been seen before.
+   *
+   * <p>Unlike {@code accumulate}, this does not also accumulate into the receiver of a method that
+   * returns {@code this}: none of the Guice methods does.
+   *
+   * @param node the node whose qualifier accumulates the classes
+   * @param result the transfer result to update
+   * @param boundClasses the classes to accumulate
+   */
+  private void accumulateBoundClasses(
+      Node node, TransferResult<CFValue, CFStore> result, BoundClassSet boundClasses) {
+    JavaExpression target = JavaExpression.fromNode(node);
+    if (!CFAbstractStore.canInsertJavaExpression(target)) {
+      return;
+    }
+    CFValue flowValue = result.getRegularStore().getValue(target);
+    if (flowValue != null) {
+      for (AnnotationMirror anno : flowValue.getAnnotations()) {
+        if (AnnotationUtils.areSameByName(anno, Bind.NAME)) {
+          boundClasses = diATF.getBoundClasses(anno).union(boundClasses);
+        }
+      }
+    }
+    insertIntoStores(result, target, diATF.createBindAnnotation(boundClasses));
+  }
+
   public void accumulateBindAnnotatedWith(
       Node node, TransferResult<CFValue, CFStore> result, String value, String name) {
 
@@ -1,11 +1,9 @@
 package org.checkerframework.checker.dependencyinjection;
 
+import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.MethodTree;
-import com.sun.source.tree.VariableTree;
-import javax.lang.model.element.AnnotationMirror;
-import javax.lang.model.element.ExecutableElement;
-import javax.lang.model.element.VariableElement;
-import javax.lang.model.type.TypeMirror;
+import javax.lang.model.element.TypeElement;
+import org.checkerframework.checker.dependencyinjection.utils.InjectionPoint;
 import org.checkerframework.common.accumulation.AccumulationVisitor;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.javacutil.TreeUtils;
@@ -21,31 +19,35 @@ public class DependencyInjectionVisitor extends AccumulationVisitor {
     return new DependencyInjectionAnnotatedTypeFactory(this.checker);
   }
 
-  @Override
-  public Void visitMethod(MethodTree tree, Void p) {
-    ExecutableElement element = TreeUtils.elementFromDeclaration(tree);
-    AnnotationMirror annotation =
-        this.getTypeFactory().getDeclAnnotation(element, com.google.inject.Inject.class);
+  /** Returns the type factory of this visitor. */
+  private DependencyInjectionAnnotatedTypeFactory getDependencyInjectionTypeFactory() {
+    return (DependencyInjectionAnnotatedTypeFactory) this.atypeFactory;
+  }
 
-    if (annotation != null) {
-      DependencyInjectionAnnotatedTypeFactory.addInjectionPoint(annotation.toString(), element);
+  /**
+   * Adds the injection points of the class, taken from its injection signature, before its members
+   * are visited.
+   */
+  @Override
+  public void processClassTree(ClassTree tree) {
+    TypeElement element = TreeUtils.elementFromDeclaration(tree);
+    DependencyInjectionAnnotatedTypeFactory factory = getDependencyInjectionTypeFactory();
+    for (InjectionPoint injectionPoint :
+        factory.getInjectionSignature(element).getInjectionPoints()) {
+      factory.addInjectionPoint(injectionPoint);
     }
-    return super.visitMethod(tree, p);
+    super.processClassTree(tree);
   }
 
+  /**
+   * Skips the methods whose bindings were read from the AST by the syntactic fast path: they
+   * contain only binding DSL calls, which this checker does not report errors in.
+   */
   @Override
-  public Void visitVariable(VariableTree tree, Void p) {
-    VariableElement element = TreeUtils.elementFromDeclaration(tree);
-
-    AnnotationMirror annotation =
-        this.getTypeFactory().getDeclAnnotation(element, com.google.inject.Inject.class);
-
-    if (annotation != null) {
-      TypeMirror elementTypeMirror = element.asType();
-
-      DependencyInjectionAnnotatedTypeFactory.addInjectionPoint(
-          elementTypeMirror.toString(), element);
+  public Void visitMethod(MethodTree tree, Void p) {
+    if (getDependencyInjectionTypeFactory().isSyntacticMethod(tree)) {
+      return null;
     }
-    return super.visitVariable(tree, p);
+    return super.visitMethod(tree, p);
   }
 }
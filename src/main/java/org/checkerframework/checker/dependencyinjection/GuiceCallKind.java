@@ -0,0 +1,15 @@
+package org.checkerframework.checker.dependencyinjection;
+
+/** The kinds of Guice binding DSL calls that the Dependency Injection Checker recognizes. */
+public enum GuiceCallKind {
+  /** A call to {@code com.google.inject.AbstractModule.bind}. */
+  BIND,
+  /** A call to {@code com.google.inject.binder.LinkedBindingBuilder.to}. */
+  TO,
+  /** A call to {@code com.google.inject.binder.LinkedBindingBuilder.toInstance}. */
+  TO_INSTANCE,
+  /** A call to {@code com.google.inject.binder.AnnotatedBindingBuilder.annotatedWith}. */
+  ANNOTATED_WITH,
+  /** Any other tree. */
+  NONE
+}
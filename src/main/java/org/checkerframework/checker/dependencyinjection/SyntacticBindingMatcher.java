@@ -0,0 +1,247 @@
+package org.checkerframework.checker.dependencyinjection;
+
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.Tree;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.javacutil.TreeUtils;
+
+/**
+ * Matches methods made only of binding DSL chains with literal arguments, such as {@code
+ * bind(Foo.class).to(FooImpl.class)} or {@code
+ * bind(String.class).annotatedWith(Names.named("url")).toInstance("jdbc:...")}, directly on the
+ * AST. The bindings of such a method are known without dataflow analysis or the ClassVal Checker.
+ *
+ * <p>A method is matched only if every statement of its body is such a chain, invoked on the
+ * implicit or explicit {@code this}. A chain consists of {@code bind} with a class literal, then
+ * optionally {@code annotatedWith} with {@code Names.named} of a string literal, then optionally
+ * {@code to} with a class literal or {@code toInstance} with a literal. Methods with local
+ * variables, branches, or any other argument are left to the full analysis.
+ *
+ * <p>The bindings recorded for a matched chain are exactly those that the full analysis records
+ * for it.
+ */
+class SyntacticBindingMatcher {
+
+  /** The type factory, which classifies Guice calls and names types. */
+  private final DependencyInjectionAnnotatedTypeFactory factory;
+
+  /** The type utilities. */
+  private final Types types;
+
+  /**
+   * Creates a matcher.
+   *
+   * @param factory the type factory
+   * @param types the type utilities
+   */
+  SyntacticBindingMatcher(DependencyInjectionAnnotatedTypeFactory factory, Types types) {
+    this.factory = factory;
+    this.types = types;
+  }
+
+  /** A binding DSL chain matched in the source. */
+  static final class Chain {
+
+    /** The binary name of the bound class. */
+    final String boundClass;
+
+    /** The qualifier given with {@code annotatedWith}, or null. */
+    final @Nullable String qualifier;
+
+    /** The target given with {@code to} or {@code toInstance}, or null if there is none. */
+    final @Nullable String target;
+
+    /** True iff the target was given with {@code to}. */
+    final boolean linked;
+
+    Chain(String boundClass, @Nullable String qualifier, @Nullable String target, boolean linked) {
+      this.boundClass = boundClass;
+      this.qualifier = qualifier;
+      this.target = target;
+      this.linked = linked;
+    }
+  }
+
+  /**
+   * Matches a method against the binding DSL chains with literal arguments.
+   *
+   * @param method a method
+   * @return the chains that make up the body of {@code method}, or null if its body is not made
+   *     only of such chains
+   */
+  @Nullable List<Chain> match(MethodTree method) {
+    BlockTree body = method.getBody();
+    if (body == null || body.getStatements().isEmpty()) {
+      return null;
+    }
+    List<Chain> chains = new ArrayList<>(body.getStatements().size());
+    for (StatementTree statement : body.getStatements()) {
+      if (!(statement instanceof ExpressionStatementTree)) {
+        return null;
+      }
+      Chain chain = matchChain(((ExpressionStatementTree) statement).getExpression());
+      if (chain == null) {
+        return null;
+      }
+      chains.add(chain);
+    }
+    return chains;
+  }
+
+  /**
+   * Matches an expression statement against a binding DSL chain.
+   *
+   * @param expression the expression of an expression statement
+   * @return the chain, or null if {@code expression} is not a chain with literal arguments
+   */
+  private @Nullable Chain matchChain(ExpressionTree expression) {
+    // Collect the invocations from the last one to the call to bind.
+    List<MethodInvocationTree> calls = new ArrayList<>(3);
+    ExpressionTree current = expression;
+    while (current instanceof MethodInvocationTree) {
+      MethodInvocationTree call = (MethodInvocationTree) current;
+      calls.add(call);
+      ExpressionTree select = call.getMethodSelect();
+      if (select instanceof IdentifierTree) {
+        current = null;
+      } else if (select instanceof MemberSelectTree) {
+        current = ((MemberSelectTree) select).getExpression();
+      } else {
+        return null;
+      }
+    }
+    if (current != null && !isThis(current)) {
+      return null;
+    }
+    Collections.reverse(calls);
+
+    int index = 0;
+    MethodInvocationTree bind = calls.get(index++);
+    if (factory.classifyGuiceCall(bind) != GuiceCallKind.BIND) {
+      return null;
+    }
+    String boundClass = classLiteralName(onlyArgument(bind));
+    if (boundClass == null) {
+      return null;
+    }
+
+    String qualifier = null;
+    if (index < calls.size()
+        && factory.classifyGuiceCall(calls.get(index)) == GuiceCallKind.ANNOTATED_WITH) {
+      String name = namedLiteral(onlyArgument(calls.get(index++)));
+      if (name == null) {
+        return null;
+      }
+      qualifier = DependencyInjectionAnnotatedTypeFactory.namedQualifier(name);
+    }
+
+    String target = null;
+    boolean linked = false;
+    if (index < calls.size()) {
+      MethodInvocationTree call = calls.get(index++);
+      GuiceCallKind kind = factory.classifyGuiceCall(call);
+      if (kind == GuiceCallKind.TO) {
+        target = classLiteralName(onlyArgument(call));
+        linked = true;
+      } else if (kind == GuiceCallKind.TO_INSTANCE) {
+        target = literalTypeName(onlyArgument(call));
+      }
+      if (target == null) {
+        return null;
+      }
+    }
+    if (index != calls.size()) {
+      return null;
+    }
+    return new Chain(boundClass, qualifier, target, linked);
+  }
+
+  /** Returns true iff the tree is {@code this}. */
+  private static boolean isThis(ExpressionTree tree) {
+    return tree instanceof IdentifierTree
+        && ((IdentifierTree) tree).getName().contentEquals("this");
+  }
+
+  /** Returns the only argument of an invocation, or null if it does not have exactly one. */
+  private static @Nullable ExpressionTree onlyArgument(MethodInvocationTree call) {
+    return call.getArguments().size() == 1 ? call.getArguments().get(0) : null;
+  }
+
+  /**
+   * Returns the binary name of the class of a class literal, as the ClassVal Checker infers it.
+   *
+   * @param tree an expression, or null
+   * @return the binary name of the class of {@code tree}, or null if {@code tree} is not a literal
+   *     of a declared class
+   */
+  private @Nullable String classLiteralName(@Nullable ExpressionTree tree) {
+    if (tree == null || !TreeUtils.isClassLiteral(tree)) {
+      return null;
+    }
+    TypeMirror type = TreeUtils.typeOf(((MemberSelectTree) tree).getExpression());
+    if (type.getKind() != TypeKind.DECLARED) {
+      // The ClassVal Checker names primitive and array classes differently from bindingKey.
+      return null;
+    }
+    return factory.bindingKey(type);
+  }
+
+  /**
+   * Returns the value of a {@code Names.named} invocation with a string literal.
+   *
+   * @param tree an expression, or null
+   * @return the string literal, or null if {@code tree} is not such an invocation
+   */
+  private static @Nullable String namedLiteral(@Nullable ExpressionTree tree) {
+    if (!(tree instanceof MethodInvocationTree)) {
+      return null;
+    }
+    MethodInvocationTree call = (MethodInvocationTree) tree;
+    ExecutableElement method = TreeUtils.elementFromUse(call);
+    TypeElement owner = (TypeElement) method.getEnclosingElement();
+    if (!method.getSimpleName().contentEquals("named")
+        || !owner.getQualifiedName().contentEquals("com.google.inject.name.Names")) {
+      return null;
+    }
+    ExpressionTree argument = onlyArgument(call);
+    if (argument == null || argument.getKind() != Tree.Kind.STRING_LITERAL) {
+      return null;
+    }
+    return (String) ((LiteralTree) argument).getValue();
+  }
+
+  /**
+   * Returns the type of a literal passed to {@code toInstance}, as the full analysis names it: a
+   * primitive literal is boxed to match the reference type of the parameter.
+   *
+   * @param tree an expression, or null
+   * @return the name of the type of {@code tree}, or null if it is not a non-null literal
+   */
+  private @Nullable String literalTypeName(@Nullable ExpressionTree tree) {
+    if (!(tree instanceof LiteralTree) || tree.getKind() == Tree.Kind.NULL_LITERAL) {
+      return null;
+    }
+    TypeMirror type = TreeUtils.typeOf(tree);
+    if (type.getKind().isPrimitive()) {
+      type = types.boxedClass((PrimitiveType) type).asType();
+    }
+    return type.toString();
+  }
+}
@@ -0,0 +1,340 @@
+package org.checkerframework.checker.dependencyinjection.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.checkerframework.checker.dependencyinjection.DependencyInjectionChecker;
+
+/**
+ * A long-lived process that runs javac with the Dependency Injection Checker for {@link
+ * CheckerDaemonClient}s, so that class loading and JIT compilation of javac, the Checker Framework
+ * and this checker are paid once rather than by every compilation of a build with many small
+ * targets.
+ *
+ * <p>The daemon listens on an ephemeral port of the loopback interface and publishes the port,
+ * together with a random token that clients must present, in a file readable only by its owner.
+ * The token is checked before the rest of a request is read, and a client that stops sending is
+ * dropped after {@value DaemonProtocol#READ_TIMEOUT_MILLIS} milliseconds, so other local users
+ * can neither make the daemon allocate large requests nor block it.
+ *
+ * <p>Up to one compilation per processor runs at a time, so that a build that compiles many targets
+ * in parallel is not serialized by the daemon; further connections wait for a free thread. Each
+ * compilation has a fresh javac context and a fresh checker: nothing computed from the program
+ * being compiled, such as bindings or program elements, is shared between compilations. Relative
+ * paths in the javac arguments are resolved against the working directory of the daemon, so a
+ * client is only served if it runs in that same directory.
+ *
+ * <p>Usage: {@code java -cp <checker classpath> CheckerDaemon [<port file>]}. The port file
+ * defaults to {@code ~/.dependencyinjection-checker/daemon}, and is deleted when the daemon stops.
+ */
+public class CheckerDaemon {
+
+  /**
+   * The javac options that select annotation processors, each followed by one argument. They are
+   * dropped from requests: the daemon always runs the checker from its own class path.
+   */
+  private static final List<String> PROCESSOR_OPTIONS =
+      Arrays.asList("-processor", "-processorpath", "--processor-path");
+
+  /** The socket on which requests are accepted. */
+  private final ServerSocket serverSocket;
+
+  /** The token that clients must present, in hexadecimal. */
+  private final String token;
+
+  /** The working directory of the daemon, against which relative paths are resolved. */
+  private final Path workingDirectory;
+
+  /** The system Java compiler. */
+  private final JavaCompiler compiler;
+
+  /** True once a client has asked the daemon to stop. */
+  private volatile boolean stopping;
+
+  /**
+   * Creates a daemon listening on an ephemeral port of the loopback interface.
+   *
+   * @throws IOException if the socket cannot be opened
+   */
+  public CheckerDaemon() throws IOException {
+    this.compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IllegalStateException("No system Java compiler; run the daemon on a JDK.");
+    }
+    this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    byte[] secret = new byte[16];
+    new SecureRandom().nextBytes(secret);
+    StringBuilder hex = new StringBuilder();
+    for (byte b : secret) {
+      hex.append(String.format("%02x", b));
+    }
+    this.token = hex.toString();
+    this.workingDirectory = Paths.get("").toAbsolutePath().normalize();
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path portFile = args.length > 0 ? Paths.get(args[0]) : DaemonProtocol.defaultPortFile();
+    CheckerDaemon daemon = new CheckerDaemon();
+    daemon.publish(portFile);
+    System.out.printf(
+        "Dependency Injection Checker daemon listening on port %d in %s%n",
+        daemon.serverSocket.getLocalPort(), daemon.workingDirectory);
+    try {
+      daemon.serve();
+    } finally {
+      Files.deleteIfExists(portFile);
+    }
+  }
+
+  /**
+   * Writes the port and token of this daemon to a file that only the current user can read.
+   *
+   * @param portFile the file
+   * @throws IOException if the file cannot be written
+   */
+  public void publish(Path portFile) throws IOException {
+    Path directory = portFile.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, "daemon", ".tmp");
+    try {
+      Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+    } catch (UnsupportedOperationException e) {
+      // Not a POSIX file system; the file keeps the default permissions.
+    }
+    String contents = serverSocket.getLocalPort() + "\n" + token + "\n";
+    Files.write(temp, contents.getBytes(StandardCharsets.UTF_8));
+    Files.move(temp, portFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Serves requests until a client asks the daemon to stop. Each connection is handled on a thread
+   * of a pool with one thread per processor. Once a client asks the daemon to stop, no further
+   * connection is accepted, and this method returns when the compilations in progress have
+   * answered their clients.
+   *
+   * @throws IOException if the socket fails
+   */
+  public void serve() throws IOException {
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    try (ServerSocket socket = serverSocket) {
+      while (!stopping) {
+        Socket connection;
+        try {
+          connection = socket.accept();
+        } catch (IOException e) {
+          if (stopping) {
+            // The socket was closed by a request to stop.
+            break;
+          }
+          System.err.println("Dependency Injection Checker daemon: " + e.getMessage());
+          continue;
+        }
+        executor.execute(() -> serve(connection));
+      }
+    } finally {
+      executor.shutdown();
+      try {
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Handles the request of one connection and closes it. Stops the daemon if the client asks it
+   * to.
+   *
+   * @param connection the connection of a client
+   */
+  private void serve(Socket connection) {
+    try (Socket socket = connection) {
+      socket.setSoTimeout(DaemonProtocol.READ_TIMEOUT_MILLIS);
+      if (!handle(socket)) {
+        stopping = true;
+        // Unblocks the accept of serve().
+        serverSocket.close();
+      }
+    } catch (IOException e) {
+      // A client that disconnects does not stop the daemon.
+      System.err.println("Dependency Injection Checker daemon: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Handles one request.
+   *
+   * @param connection the connection of a client
+   * @return false iff the client asked the daemon to stop
+   * @throws IOException if the connection fails
+   */
+  private boolean handle(Socket connection) throws IOException {
+    DataInputStream in =
+        new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+    DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+
+    int version = in.readInt();
+    if (version != DaemonProtocol.VERSION) {
+      respond(out, DaemonProtocol.EXIT_REJECTED, "Unsupported protocol version " + version + ".\n");
+      return true;
+    }
+    String clientToken = DaemonProtocol.readString(in, DaemonProtocol.MAX_TOKEN_LENGTH);
+    if (!MessageDigest.isEqual(
+        token.getBytes(StandardCharsets.UTF_8), clientToken.getBytes(StandardCharsets.UTF_8))) {
+      respond(out, DaemonProtocol.EXIT_REJECTED, "Invalid daemon token.\n");
+      return true;
+    }
+
+    // The client is trusted from here on.
+    String clientDirectory = DaemonProtocol.readString(in);
+    int argumentCount = in.readInt();
+    if (argumentCount < 0 || argumentCount > DaemonProtocol.MAX_ARGUMENT_COUNT) {
+      respond(
+          out, DaemonProtocol.EXIT_REJECTED, "Invalid argument count " + argumentCount + ".\n");
+      return true;
+    }
+    List<String> arguments = new ArrayList<>(argumentCount);
+    for (int i = 0; i < argumentCount; i++) {
+      arguments.add(DaemonProtocol.readString(in));
+    }
+    if (!Paths.get(clientDirectory).toAbsolutePath().normalize().equals(workingDirectory)) {
+      respond(
+          out,
+          DaemonProtocol.EXIT_REJECTED,
+          String.format(
+              "The daemon runs in %s, not in %s; relative paths would not resolve.%n",
+              workingDirectory, clientDirectory));
+      return true;
+    }
+    if (arguments.equals(Collections.singletonList(DaemonProtocol.STOP))) {
+      respond(out, DaemonProtocol.EXIT_OK, "");
+      return false;
+    }
+
+    StringWriter output = new StringWriter();
+    int status = compile(arguments, output);
+    respond(out, status, output.toString());
+    return true;
+  }
+
+  /**
+   * Sends a response to a client.
+   *
+   * @param out the stream to the client
+   * @param status the exit status
+   * @param output the output of the compilation
+   * @throws IOException if the response cannot be sent
+   */
+  private static void respond(DataOutputStream out, int status, String output)
+      throws IOException {
+    out.writeInt(status);
+    DaemonProtocol.writeString(out, output);
+    out.flush();
+  }
+
+  /**
+   * Runs javac with the Dependency Injection Checker.
+   *
+   * @param arguments the javac arguments, as on the command line
+   * @param output receives the diagnostics of the compilation
+   * @return the exit status of the compilation
+   */
+  int compile(List<String> arguments, StringWriter output) {
+    List<String> options = new ArrayList<>();
+    List<String> sourceFiles = new ArrayList<>();
+    try {
+      List<String> expanded = expandArgumentFiles(arguments);
+      for (int i = 0; i < expanded.size(); i++) {
+        String argument = expanded.get(i);
+        if (PROCESSOR_OPTIONS.contains(argument)) {
+          i++;
+          continue;
+        }
+        int arity = compiler.isSupportedOption(argument);
+        if (arity > 0) {
+          options.addAll(expanded.subList(i, Math.min(i + 1 + arity, expanded.size())));
+          i += arity;
+        } else if (arity == 0 || argument.startsWith("-")) {
+          options.add(argument);
+        } else {
+          sourceFiles.add(argument);
+        }
+      }
+    } catch (IOException e) {
+      output.write("Could not read an argument file: " + e.getMessage() + "\n");
+      return DaemonProtocol.EXIT_REJECTED;
+    }
+
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+      JavaCompiler.CompilationTask task =
+          compiler.getTask(
+              output,
+              fileManager,
+              null,
+              options,
+              null,
+              fileManager.getJavaFileObjectsFromStrings(sourceFiles));
+      task.setProcessors(Collections.singletonList(new DependencyInjectionChecker()));
+      return task.call() ? DaemonProtocol.EXIT_OK : DaemonProtocol.EXIT_ERROR;
+    } catch (IllegalArgumentException e) {
+      // An invalid option.
+      output.write(e.getMessage() + "\n");
+      return DaemonProtocol.EXIT_REJECTED;
+    } catch (IOException | RuntimeException e) {
+      e.printStackTrace(new PrintWriter(output));
+      return DaemonProtocol.EXIT_ERROR;
+    }
+  }
+
+  /**
+   * Replaces each {@code @file} argument with the whitespace-separated arguments in the file, as
+   * javac does on the command line.
+   *
+   * @param arguments the arguments
+   * @return the arguments, with argument files expanded
+   * @throws IOException if an argument file cannot be read
+   */
+  private static List<String> expandArgumentFiles(List<String> arguments) throws IOException {
+    List<String> expanded = new ArrayList<>(arguments.size());
+    for (String argument : arguments) {
+      if (argument.length() > 1 && argument.startsWith("@")) {
+        String contents =
+            new String(Files.readAllBytes(Paths.get(argument.substring(1))), StandardCharsets.UTF_8)
+                .trim();
+        if (!contents.isEmpty()) {
+          expanded.addAll(Arrays.asList(contents.split("\\s+")));
+        }
+      } else {
+        expanded.add(argument);
+      }
+    }
+    return expanded;
+  }
+}
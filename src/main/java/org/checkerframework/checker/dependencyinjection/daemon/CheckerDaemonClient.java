@@ -0,0 +1,152 @@
+package org.checkerframework.checker.dependencyinjection.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.checkerframework.checker.dependencyinjection.DependencyInjectionChecker;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A thin client that sends a javac command line to a running {@link CheckerDaemon} and reports its
+ * diagnostics and exit status as javac would. If no daemon is running, the compilation runs in
+ * this process instead, with the checker as its annotation processor, so a build that uses the
+ * client works with or without a daemon.
+ *
+ * <p>Usage: {@code java -cp <checker classpath> CheckerDaemonClient [--port-file <file>] <javac
+ * arguments>}. The arguments are those of a javac run with the checker, including {@code
+ * -processor}; the daemon supplies the checker itself and ignores the processor options. {@code
+ * CheckerDaemonClient --stop} stops the daemon.
+ */
+public class CheckerDaemonClient {
+
+  /** The option that names the port file of the daemon. */
+  private static final String PORT_FILE_OPTION = "--port-file";
+
+  private CheckerDaemonClient() {
+    throw new AssertionError("Class CheckerDaemonClient cannot be instantiated.");
+  }
+
+  public static void main(String[] args) {
+    System.exit(run(args));
+  }
+
+  /**
+   * Runs a compilation in the daemon, or in this process if no daemon is running.
+   *
+   * @param args the command-line arguments of the client
+   * @return the exit status of the compilation
+   */
+  static int run(String[] args) {
+    Path portFile = DaemonProtocol.defaultPortFile();
+    List<String> arguments = new ArrayList<>(Arrays.asList(args));
+    if (arguments.size() >= 2 && arguments.get(0).equals(PORT_FILE_OPTION)) {
+      portFile = Paths.get(arguments.get(1));
+      arguments = arguments.subList(2, arguments.size());
+    }
+
+    String @Nullable [] daemon;
+    try {
+      daemon = readPortFile(portFile);
+    } catch (NoSuchFileException e) {
+      daemon = null;
+    } catch (IOException e) {
+      System.err.println("Could not read " + portFile + ": " + e.getMessage());
+      daemon = null;
+    }
+
+    if (daemon != null) {
+      try {
+        return send(Integer.parseInt(daemon[0]), daemon[1], arguments);
+      } catch (IOException | NumberFormatException e) {
+        System.err.println("The checker daemon is not reachable; compiling in this process.");
+      }
+    }
+    if (arguments.equals(Arrays.asList(DaemonProtocol.STOP))) {
+      System.err.println("No checker daemon is running.");
+      return DaemonProtocol.EXIT_OK;
+    }
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    return compiler.run(null, null, null, withChecker(arguments).toArray(new String[0]));
+  }
+
+  /**
+   * Returns javac arguments that run the Dependency Injection Checker, as the daemon does: the
+   * checker is added as the annotation processor, found on the class path of this client, unless
+   * the arguments already select a processor and a processor path.
+   *
+   * @param arguments the javac arguments
+   * @return the arguments, with the processor options that they lack
+   */
+  private static List<String> withChecker(List<String> arguments) {
+    List<String> result = new ArrayList<>();
+    if (!arguments.contains("-processor")) {
+      result.add("-processor");
+      result.add(DependencyInjectionChecker.class.getName());
+    }
+    if (!arguments.contains("-processorpath") && !arguments.contains("--processor-path")) {
+      result.add("-processorpath");
+      result.add(System.getProperty("java.class.path"));
+    }
+    result.addAll(arguments);
+    return result;
+  }
+
+  /**
+   * Reads the port and token published by a daemon.
+   *
+   * @param portFile the port file of the daemon
+   * @return the port and the token, or null if the file is malformed
+   * @throws IOException if the file cannot be read
+   */
+  private static String @Nullable [] readPortFile(Path portFile) throws IOException {
+    List<String> lines = Files.readAllLines(portFile, StandardCharsets.UTF_8);
+    if (lines.size() < 2) {
+      return null;
+    }
+    return new String[] {lines.get(0).trim(), lines.get(1).trim()};
+  }
+
+  /**
+   * Sends a request to a daemon, and copies its output to the standard error stream.
+   *
+   * @param port the port of the daemon
+   * @param token the token of the daemon
+   * @param arguments the javac arguments
+   * @return the exit status of the compilation
+   * @throws IOException if the daemon cannot be reached
+   */
+  private static int send(int port, String token, List<String> arguments) throws IOException {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      out.writeInt(DaemonProtocol.VERSION);
+      DaemonProtocol.writeString(out, token);
+      DaemonProtocol.writeString(out, Paths.get("").toAbsolutePath().toString());
+      out.writeInt(arguments.size());
+      for (String argument : arguments) {
+        DaemonProtocol.writeString(out, argument);
+      }
+      out.flush();
+
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      int status = in.readInt();
+      System.err.print(DaemonProtocol.readString(in));
+      System.err.flush();
+      return status;
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package org.checkerframework.checker.dependencyinjection.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The protocol spoken between a {@link CheckerDaemon} and a {@link CheckerDaemonClient} over a
+ * loopback socket.
+ *
+ * <p>A request is the secret token of the daemon, the working directory of the client, and the
+ * javac arguments, each as a length-prefixed UTF-8 string. The response is the exit status of the
+ * compilation followed by its output. Each connection carries one request.
+ */
+final class DaemonProtocol {
+
+  /** The version of the protocol, sent first in each request. */
+  static final int VERSION = 1;
+
+  /** The exit status of a compilation that succeeded. */
+  static final int EXIT_OK = 0;
+
+  /** The exit status of a compilation that reported errors. */
+  static final int EXIT_ERROR = 1;
+
+  /** The exit status of a request that the daemon rejected without compiling. */
+  static final int EXIT_REJECTED = 2;
+
+  /** The argument of a request that stops the daemon instead of compiling. */
+  static final String STOP = "--stop";
+
+  /** The largest string accepted in a request or response, in bytes. */
+  static final int MAX_STRING_LENGTH = 64 * 1024 * 1024;
+
+  /**
+   * The largest token accepted in a request, in bytes. The token is read before the client is
+   * trusted, so it is not allowed to be as long as other strings.
+   */
+  static final int MAX_TOKEN_LENGTH = 256;
+
+  /** The largest number of javac arguments accepted in a request. */
+  static final int MAX_ARGUMENT_COUNT = 1 << 16;
+
+  /**
+   * The time, in milliseconds, that the daemon waits for each read of a request before dropping the
+   * connection, so that a client that stops sending does not block the daemon.
+   */
+  static final int READ_TIMEOUT_MILLIS = 10_000;
+
+  private DaemonProtocol() {
+    throw new AssertionError("Class DaemonProtocol cannot be instantiated.");
+  }
+
+  /**
+   * Returns the default location of the file in which a daemon publishes its port and token: {@code
+   * .dependencyinjection-checker/daemon} in the user's home directory.
+   *
+   * @return the default location of the port file
+   */
+  static Path defaultPortFile() {
+    return Paths.get(System.getProperty("user.home"), ".dependencyinjection-checker", "daemon");
+  }
+
+  /**
+   * Writes a length-prefixed UTF-8 string. Unlike {@link DataOutputStream#writeUTF}, this accepts
+   * strings longer than 64 KiB, such as the output of a compilation with many diagnostics.
+   *
+   * @param out the stream
+   * @param s the string
+   * @throws IOException if the string cannot be written
+   */
+  static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Reads a string written by {@link #writeString}.
+   *
+   * @param in the stream
+   * @return the string
+   * @throws IOException if the string cannot be read or is too long
+   */
+  static String readString(DataInputStream in) throws IOException {
+    return readString(in, MAX_STRING_LENGTH);
+  }
+
+  /**
+   * Reads a string written by {@link #writeString}, if it is no longer than a limit.
+   *
+   * @param in the stream
+   * @param maxLength the largest length accepted, in bytes
+   * @return the string
+   * @throws IOException if the string cannot be read or is longer than {@code maxLength}
+   */
+  static String readString(DataInputStream in, int maxLength) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > maxLength) {
+      throw new IOException("Invalid string length " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
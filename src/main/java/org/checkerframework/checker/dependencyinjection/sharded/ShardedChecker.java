@@ -0,0 +1,525 @@
+package org.checkerframework.checker.dependencyinjection.sharded;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.checkerframework.checker.dependencyinjection.DependencyInjectionChecker;
+import org.checkerframework.checker.dependencyinjection.utils.BindingManifest;
+import org.checkerframework.checker.dependencyinjection.utils.BindingRegistry;
+import org.checkerframework.checker.dependencyinjection.utils.BytecodeBindingExtractor;
+import org.checkerframework.checker.dependencyinjection.utils.InjectionPoint;
+import org.checkerframework.checker.dependencyinjection.utils.InjectionPointResolver;
+import org.checkerframework.checker.dependencyinjection.utils.ResolutionSummary;
+
+/**
+ * Checks a large source tree with the Dependency Injection Checker by splitting it into shards that
+ * are checked in parallel, one javac process per shard, while still resolving every injection
+ * point against the bindings of the whole program.
+ *
+ * <p>The source files are grouped by package, and the packages are spread over the shards so that
+ * the shards hold about as much source each. Each shard compiles only its own source files: the
+ * classes of the other shards are read from the classpath, which should therefore hold the
+ * compiled classes of the whole program, such as the class output of the regular build.
+ *
+ * <p>The shards are analyzed with {@code -AdiDeferResolution}: each writes the bindings and
+ * injection points of its sources, and the dependencies of the classes that Guice may create just
+ * in time for them, to a {@link ResolutionSummary}, without reporting missing bindings. Once every
+ * shard has succeeded, the summaries are read back into one registry in this process, and its
+ * injection points are resolved once, so that a binding in one shard satisfies an injection point
+ * in another. Nothing is compiled again.
+ *
+ * <p>The diagnostics of the shards are printed shard by shard, followed by the missing bindings. If
+ * a shard fails, the injection points are not resolved.
+ *
+ * <p>Usage: {@code java -cp <checker classpath> ShardedChecker [--jobs <n>] [--work-dir <dir>]
+ * [<javac option>...] <source root>...}. The number of shards defaults to the number of
+ * processors, and the work directory, which keeps the class outputs, indexes and summaries of the
+ * shards between runs, to {@code build/dependencyinjection-shards}. The javac options, such as
+ * {@code -classpath} or {@code -source}, are passed to every shard.
+ */
+public class ShardedChecker {
+
+  /** The option that sets the number of shards. */
+  private static final String JOBS_OPTION = "--jobs";
+
+  /** The option that sets the work directory. */
+  private static final String WORK_DIR_OPTION = "--work-dir";
+
+  /** The javac options that set the classpath, each followed by one argument. */
+  private static final List<String> CLASSPATH_OPTIONS =
+      Arrays.asList("-cp", "-classpath", "--class-path");
+
+  /**
+   * The options that javac needs to run the Checker Framework on JDK 9 and later. Keep this list in
+   * sync with the one in build.gradle.
+   */
+  private static final List<String> JAVAC_JVM_OPTIONS =
+      Arrays.asList(
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.main=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.model=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.processing=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
+          "-J--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
+          "-J--add-opens=jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED");
+
+  /** The source roots. */
+  private final List<Path> sourceRoots;
+
+  /** The javac options given by the user, other than the classpath. */
+  private final List<String> javacOptions;
+
+  /** The classpath given by the user, or the empty string. */
+  private final String classpath;
+
+  /**
+   * The directory in which the shards keep their class outputs, indexes, resolution summaries and
+   * argument files.
+   */
+  private final Path workDirectory;
+
+  /** The number of shards. */
+  private final int shardCount;
+
+  /**
+   * Creates a sharded checker.
+   *
+   * @param sourceRoots the source roots
+   * @param javacOptions the javac options, other than the classpath
+   * @param classpath the classpath of the program, or the empty string
+   * @param workDirectory the work directory
+   * @param shardCount the number of shards
+   */
+  public ShardedChecker(
+      List<Path> sourceRoots,
+      List<String> javacOptions,
+      String classpath,
+      Path workDirectory,
+      int shardCount) {
+    this.sourceRoots = sourceRoots;
+    this.javacOptions = javacOptions;
+    this.classpath = classpath;
+    this.workDirectory = workDirectory;
+    this.shardCount = Math.max(1, shardCount);
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      System.err.println("No system Java compiler; run the sharded checker on a JDK.");
+      System.exit(2);
+    }
+    int shardCount = Runtime.getRuntime().availableProcessors();
+    Path workDirectory = Paths.get("build", "dependencyinjection-shards");
+    String classpath = "";
+    List<String> javacOptions = new ArrayList<>();
+    List<Path> sourceRoots = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      String argument = args[i];
+      if (argument.equals(JOBS_OPTION) && i + 1 < args.length) {
+        shardCount = Integer.parseInt(args[++i]);
+      } else if (argument.equals(WORK_DIR_OPTION) && i + 1 < args.length) {
+        workDirectory = Paths.get(args[++i]);
+      } else if (CLASSPATH_OPTIONS.contains(argument) && i + 1 < args.length) {
+        classpath = args[++i];
+      } else if (argument.startsWith("-")) {
+        int arity = Math.max(0, compiler.isSupportedOption(argument));
+        javacOptions.addAll(Arrays.asList(args).subList(i, Math.min(i + 1 + arity, args.length)));
+        i += arity;
+      } else {
+        sourceRoots.add(Paths.get(argument));
+      }
+    }
+    if (sourceRoots.isEmpty()) {
+      System.err.println(
+          "Usage: ShardedChecker [--jobs <n>] [--work-dir <dir>] [<javac option>...]"
+              + " <source root>...");
+      System.exit(2);
+    }
+    System.exit(
+        new ShardedChecker(sourceRoots, javacOptions, classpath, workDirectory, shardCount).run());
+  }
+
+  /**
+   * Checks the source roots.
+   *
+   * @return the exit status: 0 if no shard reported an error and every injection point is
+   *     resolved, 1 otherwise
+   * @throws IOException if the source roots cannot be read, the work directory written, or a
+   *     summary read
+   * @throws InterruptedException if this thread is interrupted while the shards are checked
+   */
+  public int run() throws IOException, InterruptedException {
+    List<List<Path>> shards = partition(findSourceFiles());
+    if (shards.isEmpty()) {
+      return 0;
+    }
+    List<ShardResult> results;
+    ExecutorService executor = Executors.newFixedThreadPool(shards.size());
+    try {
+      results = analyzeShards(executor, shards);
+    } finally {
+      executor.shutdownNow();
+    }
+    int status = printAll(results);
+    if (status != 0) {
+      return status;
+    }
+    return resolve(shards.size());
+  }
+
+  /**
+   * Returns the Java source files under the source roots.
+   *
+   * @return the source files, sorted
+   * @throws IOException if a source root cannot be read
+   */
+  private List<Path> findSourceFiles() throws IOException {
+    List<Path> sourceFiles = new ArrayList<>();
+    for (Path root : sourceRoots) {
+      try (Stream<Path> files = Files.walk(root)) {
+        sourceFiles.addAll(
+            files
+                .filter(file -> file.toString().endsWith(".java") && Files.isRegularFile(file))
+                .collect(Collectors.toList()));
+      }
+    }
+    Collections.sort(sourceFiles);
+    return sourceFiles;
+  }
+
+  /**
+   * Splits source files into shards. The files of a package are kept in one shard, and the
+   * packages, largest first, are each given to the shard with the least source so far.
+   *
+   * @param sourceFiles the source files
+   * @return the non-empty shards, at most {@link #shardCount} of them
+   * @throws IOException if the size of a file cannot be read
+   */
+  private List<List<Path>> partition(List<Path> sourceFiles) throws IOException {
+    Map<Path, List<Path>> packages = new TreeMap<>();
+    Map<Path, Long> packageSizes = new TreeMap<>();
+    for (Path file : sourceFiles) {
+      Path directory = file.toAbsolutePath().getParent();
+      packages.computeIfAbsent(directory, d -> new ArrayList<>()).add(file);
+      packageSizes.merge(directory, Files.size(file), Long::sum);
+    }
+    List<Path> bySize = new ArrayList<>(packages.keySet());
+    bySize.sort(Comparator.comparing((Path p) -> packageSizes.get(p)).reversed());
+
+    int count = Math.min(shardCount, bySize.size());
+    List<List<Path>> shards = new ArrayList<>(count);
+    long[] shardSizes = new long[count];
+    for (int i = 0; i < count; i++) {
+      shards.add(new ArrayList<>());
+    }
+    for (Path directory : bySize) {
+      int smallest = 0;
+      for (int i = 1; i < count; i++) {
+        if (shardSizes[i] < shardSizes[smallest]) {
+          smallest = i;
+        }
+      }
+      shards.get(smallest).addAll(packages.get(directory));
+      shardSizes[smallest] += packageSizes.get(directory);
+    }
+    return shards;
+  }
+
+  /**
+   * Returns the work directory of a shard.
+   *
+   * @param shard the index of the shard
+   * @return the work directory of the shard
+   */
+  private Path shardDirectory(int shard) {
+    return workDirectory.resolve("shard-" + shard);
+  }
+
+  /**
+   * Returns the file to which a shard writes its resolution summary.
+   *
+   * @param shard the index of the shard
+   * @return the resolution summary of the shard
+   */
+  private Path summaryFile(int shard) {
+    return shardDirectory(shard).resolve("resolution.bin");
+  }
+
+  /**
+   * Compiles every shard in parallel.
+   *
+   * @param executor the executor that waits for the javac processes
+   * @param shards the source files of the shards
+   * @return the results of the shards, in order
+   * @throws IOException if an argument file cannot be written or a process started
+   * @throws InterruptedException if this thread is interrupted
+   */
+  private List<ShardResult> analyzeShards(ExecutorService executor, List<List<Path>> shards)
+      throws IOException, InterruptedException {
+    List<Future<ShardResult>> futures = new ArrayList<>(shards.size());
+    for (int i = 0; i < shards.size(); i++) {
+      List<String> command = javacCommand(i, shards.get(i));
+      futures.add(executor.submit(() -> runProcess(command)));
+    }
+    List<ShardResult> results = new ArrayList<>(futures.size());
+    for (Future<ShardResult> future : futures) {
+      try {
+        results.add(future.get());
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        throw new RuntimeException(cause);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Returns the javac command line that compiles a shard. The options and source files are written
+   * to an argument file, so that the command line stays short for large shards.
+   *
+   * @param shard the index of the shard
+   * @param sourceFiles the source files of the shard
+   * @return the command line
+   * @throws IOException if the argument file or the class output cannot be created
+   */
+  private List<String> javacCommand(int shard, List<Path> sourceFiles) throws IOException {
+    Path shardDirectory = shardDirectory(shard);
+    Path classOutput = shardDirectory.resolve("classes");
+    Files.createDirectories(classOutput);
+
+    List<String> arguments = new ArrayList<>();
+    arguments.add("-processorpath");
+    arguments.add(System.getProperty("java.class.path"));
+    arguments.add("-processor");
+    arguments.add(DependencyInjectionChecker.class.getName());
+    arguments.add("-implicit:none");
+    if (!classpath.isEmpty()) {
+      arguments.add("-classpath");
+      arguments.add(classpath);
+    }
+    arguments.add("-d");
+    arguments.add(classOutput.toAbsolutePath().toString());
+    arguments.add(
+        "-A"
+            + DependencyInjectionChecker.BINDING_INDEX_OPTION
+            + "="
+            + shardDirectory.resolve("index").toAbsolutePath());
+    arguments.add(
+        "-A"
+            + DependencyInjectionChecker.DEFER_RESOLUTION_OPTION
+            + "="
+            + summaryFile(shard).toAbsolutePath());
+    arguments.addAll(javacOptions);
+    for (Path file : sourceFiles) {
+      arguments.add(file.toAbsolutePath().toString());
+    }
+
+    Path argumentFile = shardDirectory.resolve("javac.args");
+    StringBuilder contents = new StringBuilder();
+    for (String argument : arguments) {
+      contents
+          .append('"')
+          .append(argument.replace("\\", "\\\\").replace("\"", "\\\""))
+          .append("\"\n");
+    }
+    Files.write(argumentFile, contents.toString().getBytes(StandardCharsets.UTF_8));
+
+    List<String> command = new ArrayList<>();
+    command.add(javacExecutable().toString());
+    if (!System.getProperty("java.specification.version").startsWith("1.")) {
+      command.addAll(JAVAC_JVM_OPTIONS);
+    }
+    command.add("@" + argumentFile.toAbsolutePath());
+    return command;
+  }
+
+  /**
+   * Returns the javac launcher of the JDK that runs this class.
+   *
+   * @return the javac launcher
+   */
+  private static Path javacExecutable() {
+    String name = System.getProperty("os.name").startsWith("Windows") ? "javac.exe" : "javac";
+    Path javaHome = Paths.get(System.getProperty("java.home"));
+    Path javac = javaHome.resolve("bin").resolve(name);
+    if (Files.isExecutable(javac)) {
+      return javac;
+    }
+    // On JDK 8, java.home is the jre directory inside the JDK.
+    return javaHome.getParent().resolve("bin").resolve(name);
+  }
+
+  /**
+   * Runs a process to completion.
+   *
+   * @param command the command line
+   * @return the exit status and the combined output of the process
+   * @throws IOException if the process cannot be started or its output read
+   * @throws InterruptedException if this thread is interrupted
+   */
+  private static ShardResult runProcess(List<String> command)
+      throws IOException, InterruptedException {
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    process.getOutputStream().close();
+    String output;
+    try (InputStream in = process.getInputStream()) {
+      output = new String(readAll(in), StandardCharsets.UTF_8);
+    }
+    return new ShardResult(process.waitFor(), output);
+  }
+
+  /**
+   * Reads a stream to its end.
+   *
+   * @param in the stream
+   * @return the bytes of the stream
+   * @throws IOException if the stream cannot be read
+   */
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+      bytes.write(buffer, 0, n);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Resolves the injection points of every shard against the bindings of all shards and of the
+   * libraries on the classpath, and prints those that no binding satisfies.
+   *
+   * @param shardCount the number of shards
+   * @return the exit status: 0 if every injection point is resolved, 1 otherwise
+   * @throws IOException if a summary or the messages of the checker cannot be read
+   * @throws InterruptedException if this thread is interrupted while the classpath is scanned
+   */
+  private int resolve(int shardCount) throws IOException, InterruptedException {
+    BindingRegistry registry = new BindingRegistry();
+    List<ResolutionSummary> summaries = new ArrayList<>(shardCount);
+    for (int i = 0; i < shardCount; i++) {
+      ResolutionSummary summary = ResolutionSummary.read(summaryFile(i));
+      summary.addTo(registry);
+      summaries.add(summary);
+    }
+    registry.setLibraryManifests(readLibraryManifests());
+    registry.freeze();
+
+    InjectionPointResolver resolver =
+        new InjectionPointResolver(
+            registry,
+            ForkJoinPool.commonPool(),
+            ResolutionSummary.justInTimeDependencies(summaries));
+    List<InjectionPoint> unresolved = resolver.findUnresolved();
+    if (unresolved.isEmpty()) {
+      return 0;
+    }
+    Properties messages = new Properties();
+    try (InputStream in =
+        DependencyInjectionChecker.class.getResourceAsStream("messages.properties")) {
+      if (in == null) {
+        throw new IOException("Missing messages.properties");
+      }
+      messages.load(in);
+    }
+    for (InjectionPoint injectionPoint : unresolved) {
+      InjectionPointResolver.Unresolved error = resolver.explain(injectionPoint);
+      System.err.println(
+          injectionPoint.getPosition()
+              + ": error: ["
+              + error.getMessageKey()
+              + "] "
+              + String.format(messages.getProperty(error.getMessageKey()), error.getArguments()));
+    }
+    System.err.println(unresolved.size() + (unresolved.size() == 1 ? " error" : " errors"));
+    return 1;
+  }
+
+  /**
+   * Reads the binding manifests of the libraries on the classpath, and, if the shards were given
+   * {@code -AdiBytecodeBindings}, the bindings of the compiled modules on the classpath.
+   *
+   * @return the manifests of the libraries, in classpath order
+   * @throws IOException if a manifest cannot be read
+   * @throws InterruptedException if this thread is interrupted while the classpath is scanned
+   */
+  private List<BindingManifest> readLibraryManifests() throws IOException, InterruptedException {
+    List<Path> entries = new ArrayList<>();
+    List<URL> urls = new ArrayList<>();
+    if (!classpath.isEmpty()) {
+      for (String entry : classpath.split(File.pathSeparator)) {
+        entries.add(Paths.get(entry));
+        urls.add(Paths.get(entry).toUri().toURL());
+      }
+    }
+    List<BindingManifest> manifests;
+    try (URLClassLoader classLoader = new URLClassLoader(urls.toArray(new URL[0]), null)) {
+      manifests = BindingManifest.findAll(classLoader);
+    }
+    if (javacOptions.contains("-A" + DependencyInjectionChecker.BYTECODE_BINDINGS_OPTION)) {
+      manifests.add(BytecodeBindingExtractor.extract(entries, ForkJoinPool.commonPool()));
+    }
+    return manifests;
+  }
+
+  /**
+   * Prints the output of every shard, in order, whether or not it failed.
+   *
+   * @param results the results of the shards
+   * @return the exit status: 0 if no shard failed, 1 otherwise
+   */
+  private static int printAll(List<ShardResult> results) {
+    int status = 0;
+    for (ShardResult result : results) {
+      System.err.print(result.output);
+      if (result.status != 0) {
+        status = 1;
+      }
+    }
+    return status;
+  }
+
+  /** The exit status and output of the javac process of a shard. */
+  private static final class ShardResult {
+
+    /** The exit status. */
+    final int status;
+
+    /** The combined standard output and error. */
+    final String output;
+
+    ShardResult(int status, String output) {
+      this.status = status;
+      this.output = output;
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import javax.lang.model.element.Element;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Writes the bindings and injection points of a {@link BindingRegistry} as JSON.
+ *
+ * <p>The output is a single object with two arrays, sorted by key so that the output is stable
+ * across runs:
+ *
+ * <pre>{@code
+ * {
+ *   "bindings": [{"bound": "...", "qualifier": "...", "target": "...", "linked": false}],
+ *   "injectionPoints": [{"dependency": "...", "qualifier": "...", "location": "..."}]
+ * }
+ * }</pre>
+ *
+ * {@code qualifier} is null for an unqualified binding or dependency, and {@code target} is null
+ * when it is not known.
+ */
+public class BindingGraphWriter {
+
+  /** The writer to which the JSON is written. */
+  private final Writer out;
+
+  /**
+   * Creates a new BindingGraphWriter. The caller is responsible for buffering and closing {@code
+   * out}.
+   *
+   * @param out the writer to which the JSON is written
+   */
+  public BindingGraphWriter(Writer out) {
+    this.out = out;
+  }
+
+  /**
+   * Writes the bindings and injection points of a registry.
+   *
+   * @param registry the registry to write
+   * @throws IOException if writing fails
+   */
+  public void write(BindingRegistry registry) throws IOException {
+    out.write("{\n  \"bindings\": [");
+    List<String[]> bindings = new ArrayList<>();
+    registry.forEachBinding(
+        (boundClass, qualifier, target, linked) ->
+            bindings.add(new String[] {boundClass, qualifier, target, linked ? "true" : "false"}));
+    bindings.sort(
+        Comparator.<String[], String>comparing(b -> b[0])
+            .thenComparing(b -> b[1], Comparator.nullsFirst(Comparator.naturalOrder())));
+    String separator = "\n    ";
+    for (String[] binding : bindings) {
+      out.write(separator);
+      out.write("{\"bound\": ");
+      writeString(binding[0]);
+      out.write(", \"qualifier\": ");
+      writeString(binding[1]);
+      out.write(", \"target\": ");
+      writeString(binding[2]);
+      out.write(", \"linked\": ");
+      out.write(binding[3]);
+      out.write("}");
+      separator = ",\n    ";
+    }
+    out.write(bindings.isEmpty() ? "],\n" : "\n  ],\n");
+
+    out.write("  \"injectionPoints\": [");
+    List<InjectionPoint> injectionPoints = new ArrayList<>(registry.getInjectionPoints());
+    injectionPoints.sort(
+        Comparator.comparing(InjectionPoint::getDependencyName)
+            .thenComparing(BindingGraphWriter::location));
+    separator = "\n    ";
+    for (InjectionPoint injectionPoint : injectionPoints) {
+      out.write(separator);
+      out.write("{\"dependency\": ");
+      writeString(injectionPoint.getDependencyName());
+      out.write(", \"qualifier\": ");
+      writeString(injectionPoint.getQualifier());
+      out.write(", \"location\": ");
+      writeString(location(injectionPoint));
+      out.write("}");
+      separator = ",\n    ";
+    }
+    out.write(injectionPoints.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+  }
+
+  /**
+   * Returns a description of the location of an injection point.
+   *
+   * @param injectionPoint an injection point
+   * @return the location of {@code injectionPoint}, qualified by its enclosing element
+   */
+  private static String location(InjectionPoint injectionPoint) {
+    Element location = injectionPoint.getReportingLocation();
+    return location.getEnclosingElement() + "." + location;
+  }
+
+  /**
+   * Writes a JSON string literal, or {@code null}.
+   *
+   * @param s the string to write, or null
+   * @throws IOException if writing fails
+   */
+  private void writeString(@Nullable String s) throws IOException {
+    if (s == null) {
+      out.write("null");
+      return;
+    }
+    out.write('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '"':
+          out.write("\\\"");
+          break;
+        case '\\':
+          out.write("\\\\");
+          break;
+        case '\n':
+          out.write("\\n");
+          break;
+        case '\r':
+          out.write("\\r");
+          break;
+        case '\t':
+          out.write("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            out.write(String.format("\\u%04x", (int) c));
+          } else {
+            out.write(c);
+          }
+      }
+    }
+    out.write('"');
+  }
+}
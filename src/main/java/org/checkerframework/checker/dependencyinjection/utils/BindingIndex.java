@@ -0,0 +1,172 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * A persistent index of the {@link BindingSummary binding summaries} of compilation units, keyed by
+ * a hash of each unit's source code and of the configuration of the checker that analyzed it.
+ *
+ * <p>The index is loaded at the start of a compilation and saved at its end. Only the summaries of
+ * units that were part of the compilation are saved, so summaries of deleted or changed sources do
+ * not accumulate.
+ */
+public class BindingIndex {
+
+  /** The name of the index file within the index directory. */
+  public static final String FILE_NAME = "bindings.idx";
+
+  /** The first four bytes of an index file: "DIBI". */
+  private static final int MAGIC = 0x44494249;
+
+  /** The version of the index file format. */
+  private static final int VERSION = 3;
+
+  /** The summaries read from the index file, keyed by source hash. */
+  private final Map<String, BindingSummary> loaded;
+
+  /** The summaries to save, keyed by source hash. */
+  private final Map<String, BindingSummary> retained = new LinkedHashMap<>();
+
+  /**
+   * Creates an index with the given summaries.
+   *
+   * @param loaded the summaries read from the index file, keyed by source hash
+   */
+  private BindingIndex(Map<String, BindingSummary> loaded) {
+    this.loaded = loaded;
+  }
+
+  /**
+   * Loads an index. A missing, unreadable or outdated index file yields an empty index.
+   *
+   * @param file the index file
+   * @return the index stored in {@code file}
+   */
+  public static BindingIndex load(Path file) {
+    Map<String, BindingSummary> loaded = new HashMap<>();
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        return new BindingIndex(new HashMap<>());
+      }
+      int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        String hash = in.readUTF();
+        loaded.put(hash, BindingSummary.readFrom(in));
+      }
+    } catch (NoSuchFileException e) {
+      // This is the first build with an index.
+    } catch (IOException e) {
+      // A corrupt index is discarded; every unit is analyzed again.
+      return new BindingIndex(new HashMap<>());
+    }
+    return new BindingIndex(loaded);
+  }
+
+  /**
+   * Returns the summary of the unit with the given source hash, and marks it to be saved.
+   *
+   * @param hash the hash of a unit's source code
+   * @return the summary of the unit, or null if the index has none
+   */
+  public @Nullable BindingSummary lookup(String hash) {
+    BindingSummary summary = loaded.get(hash);
+    if (summary != null) {
+      retained.put(hash, summary);
+    }
+    return summary;
+  }
+
+  /**
+   * Returns a new, empty summary for the unit with the given source hash, to be filled in while the
+   * unit is analyzed and saved with the index.
+   *
+   * @param hash the hash of a unit's source code
+   * @return a new summary for the unit
+   */
+  public BindingSummary record(String hash) {
+    BindingSummary summary = new BindingSummary();
+    retained.put(hash, summary);
+    return summary;
+  }
+
+  /**
+   * Excludes the unit with the given source hash from the saved index, so that it is analyzed again
+   * by the next compilation. Used for units whose analysis issued diagnostics.
+   *
+   * @param hash the hash of a unit's source code
+   */
+  public void discard(String hash) {
+    retained.remove(hash);
+  }
+
+  /**
+   * Saves the summaries of the units of this compilation. The file is replaced atomically, so a
+   * concurrent reader never observes a partially written index.
+   *
+   * @param file the index file
+   * @throws IOException if the index cannot be written
+   */
+  public void save(Path file) throws IOException {
+    Path dir = file.toAbsolutePath().getParent();
+    Files.createDirectories(dir);
+    Path tmp = Files.createTempFile(dir, FILE_NAME, ".tmp");
+    try {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(retained.size());
+        for (Map.Entry<String, BindingSummary> entry : retained.entrySet()) {
+          out.writeUTF(entry.getKey());
+          entry.getValue().writeTo(out);
+        }
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Returns the hash of a unit's source code and of the configuration it is checked with, as used
+   * to key the index.
+   *
+   * @param configuration everything other than the source that the summary of a unit depends on,
+   *     such as the version of the checker, its options and the classpath
+   * @param source the source code of a compilation unit
+   * @return the SHA-256 hash of {@code configuration} and {@code source}, in hexadecimal
+   */
+  public static String hash(String configuration, CharSequence source) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new BugInCF("SHA-256 is not available", e);
+    }
+    digest.update(configuration.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    byte[] bytes = digest.digest(source.toString().getBytes(StandardCharsets.UTF_8));
+    StringBuilder hex = new StringBuilder(2 * bytes.length);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+}
@@ -0,0 +1,390 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The bindings of a library, as written into its output under {@link #RESOURCE_NAME} and read back
+ * by the compilations that depend on it.
+ *
+ * <p>The bindings are grouped by the package of the bound class. A manifest starts with a table of
+ * the packages and the offset of their bindings, so opening a manifest only reads this table; the
+ * bindings of a package are decoded the first time a class in that package is looked up.
+ *
+ * <p>The format is:
+ *
+ * <pre>
+ * int magic, int version, int packageCount
+ * packageCount * (string package, int offset, int length)
+ * the bindings of each package, at its offset from the end of the table:
+ *   int count, count * (string bound, byte targetKind, [string target], boolean hasQualifier,
+ *                       [string qualifier])
+ * </pre>
+ *
+ * where a string is its length in bytes, as an unsigned short, followed by its UTF-8 encoding,
+ * and {@code targetKind} is {@link #NO_TARGET}, {@link #TARGET} or {@link #LINKED_TARGET}.
+ */
+public class BindingManifest {
+
+  /** The name of the manifest resource. */
+  public static final String RESOURCE_NAME = "META-INF/dependencyinjection/bindings.bin";
+
+  /** The first four bytes of a manifest: "DIBM". */
+  private static final int MAGIC = 0x4449424D;
+
+  /** The version of the manifest format. */
+  private static final int VERSION = 2;
+
+  /** The target kind of a class that is bound without a known target. */
+  private static final byte NO_TARGET = 0;
+
+  /** The target kind of a binding that Guice satisfies directly. */
+  private static final byte TARGET = 1;
+
+  /** The target kind of a linked binding. */
+  private static final byte LINKED_TARGET = 2;
+
+  /** The least number of bytes of a package in the table: an empty name, an offset and a length. */
+  private static final int MIN_PACKAGE_SIZE = 2 + 4 + 4;
+
+  /** The least number of bytes of a binding: an empty bound class, a target kind and a flag. */
+  private static final int MIN_BINDING_SIZE = 2 + 1 + 1;
+
+  /** The contents of the manifest. */
+  private final ByteBuffer buffer;
+
+  /** The position and length of the bindings of each package, keyed by package name. */
+  private final Map<String, int[]> sections;
+
+  /**
+   * The decoded bindings of the packages that have been looked up, keyed by package name. The
+   * bindings of a package are keyed by bound class.
+   */
+  private final ConcurrentMap<String, Map<String, List<Entry>>> decoded =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Creates a manifest.
+   *
+   * @param buffer the contents of the manifest
+   * @param sections the position and length of the bindings of each package
+   */
+  private BindingManifest(ByteBuffer buffer, Map<String, int[]> sections) {
+    this.buffer = buffer;
+    this.sections = sections;
+  }
+
+  /**
+   * Opens a manifest, reading only its table of packages.
+   *
+   * @param buffer the contents of the manifest, for example a memory-mapped file
+   * @return the manifest
+   * @throws IOException if {@code buffer} is not a manifest
+   */
+  public static BindingManifest open(ByteBuffer buffer) throws IOException {
+    ByteBuffer in = buffer.duplicate();
+    try {
+      if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+        throw new IOException("Not a binding manifest");
+      }
+      int packageCount = in.getInt();
+      if (packageCount < 0 || packageCount > in.remaining() / MIN_PACKAGE_SIZE) {
+        throw new IOException("Malformed binding manifest");
+      }
+      Map<String, int[]> sections = new HashMap<>(packageCount * 2);
+      List<int[]> bounds = new ArrayList<>(packageCount);
+      for (int i = 0; i < packageCount; i++) {
+        String packageName = readString(in);
+        int[] bound = new int[] {in.getInt(), in.getInt()};
+        sections.put(packageName, bound);
+        bounds.add(bound);
+      }
+      // Offsets are relative to the end of the table; make them absolute.
+      int dataStart = in.position();
+      int dataLength = in.limit() - dataStart;
+      for (int[] bound : bounds) {
+        // Written so that no sum can overflow.
+        if (bound[0] < 0 || bound[1] < 0 || bound[0] > dataLength - bound[1]) {
+          throw new IOException("Malformed binding manifest");
+        }
+        bound[0] += dataStart;
+      }
+      return new BindingManifest(buffer, sections);
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Truncated binding manifest", e);
+    }
+  }
+
+  /**
+   * Opens every manifest that a class loader can see. Manifests in directories are memory-mapped;
+   * manifests in jars are read into memory, since the entries of a jar are usually compressed.
+   * Resources that cannot be read or are not manifests are skipped.
+   *
+   * @param classLoader the class loader of the classpath to search
+   * @return the manifests on the classpath, in classpath order
+   * @throws IOException if the classpath cannot be searched
+   */
+  public static List<BindingManifest> findAll(ClassLoader classLoader) throws IOException {
+    List<BindingManifest> manifests = new ArrayList<>();
+    Enumeration<URL> urls = classLoader.getResources(RESOURCE_NAME);
+    while (urls.hasMoreElements()) {
+      try {
+        manifests.add(open(read(urls.nextElement())));
+      } catch (IOException e) {
+        // A library whose manifest is unreadable contributes no bindings.
+      }
+    }
+    return manifests;
+  }
+
+  /**
+   * Returns the contents of a manifest resource.
+   *
+   * @param url the location of the manifest
+   * @return the contents of the manifest
+   * @throws IOException if the manifest cannot be read
+   */
+  private static ByteBuffer read(URL url) throws IOException {
+    if ("file".equals(url.getProtocol())) {
+      try (FileChannel channel =
+          FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      } catch (URISyntaxException e) {
+        throw new IOException(e);
+      }
+    }
+    URLConnection connection = url.openConnection();
+    // Do not keep the jar open after the compilation.
+    connection.setUseCaches(false);
+    try (InputStream in = connection.getInputStream()) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] chunk = new byte[8192];
+      int n;
+      while ((n = in.read(chunk)) != -1) {
+        bytes.write(chunk, 0, n);
+      }
+      return ByteBuffer.wrap(bytes.toByteArray());
+    }
+  }
+
+  /**
+   * Returns the binding for the given class and qualifier.
+   *
+   * @param className the fully-qualified binary name of a class
+   * @param qualifier a qualifier, or null for an unqualified binding
+   * @return the binding, or null if this manifest does not bind the class with the qualifier
+   */
+  public @Nullable Entry lookup(String className, @Nullable String qualifier) {
+    List<Entry> entries = bindingsOfPackage(className).get(className);
+    if (entries != null) {
+      for (Entry entry : entries) {
+        if (Objects.equals(entry.qualifier, qualifier)) {
+          return entry;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the bindings of the package of a class, decoding them if necessary.
+   *
+   * @param className the fully-qualified binary name of a class
+   * @return the bindings of the package of {@code className}
+   */
+  private Map<String, List<Entry>> bindingsOfPackage(String className) {
+    String packageName = packageOf(className);
+    int[] bound = sections.get(packageName);
+    if (bound == null) {
+      return Collections.emptyMap();
+    }
+    return decoded.computeIfAbsent(packageName, p -> decode(bound));
+  }
+
+  /**
+   * Decodes the bindings of a package. A package whose bindings are malformed has none: they are
+   * decoded lazily, during type-checking, where an exception would abort the compilation.
+   *
+   * @param bound the position and length of the bindings
+   * @return the bindings, keyed by bound class
+   */
+  private Map<String, List<Entry>> decode(int[] bound) {
+    ByteBuffer in = buffer.duplicate();
+    in.position(bound[0]);
+    in.limit(bound[0] + bound[1]);
+    try {
+      int count = in.getInt();
+      if (count < 0 || count > in.remaining() / MIN_BINDING_SIZE) {
+        return Collections.emptyMap();
+      }
+      Map<String, List<Entry>> bindings = new HashMap<>(count * 2);
+      for (int i = 0; i < count; i++) {
+        String boundClass = readString(in);
+        byte targetKind = in.get();
+        String target = targetKind != NO_TARGET ? readString(in) : null;
+        String qualifier = in.get() != 0 ? readString(in) : null;
+        bindings
+            .computeIfAbsent(boundClass, c -> new ArrayList<>(1))
+            .add(new Entry(qualifier, target, targetKind == LINKED_TARGET));
+      }
+      return bindings;
+    } catch (BufferUnderflowException e) {
+      return Collections.emptyMap();
+    }
+  }
+
+  /**
+   * Writes the bindings of a registry as a manifest.
+   *
+   * @param registry the registry whose bindings to write
+   * @param out the stream to write to
+   * @throws IOException if writing fails
+   */
+  public static void write(BindingRegistry registry, OutputStream out) throws IOException {
+    // Only the bindings of this compilation, not those it read from other manifests.
+    Map<String, Map<String, List<Entry>>> byPackage = new TreeMap<>();
+    registry.forEachBinding(
+        (boundClass, qualifier, target, linked) ->
+            byPackage
+                .computeIfAbsent(packageOf(boundClass), p -> new TreeMap<>())
+                .computeIfAbsent(boundClass, c -> new ArrayList<>(1))
+                .add(new Entry(qualifier, target, linked)));
+
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    DataOutputStream dataOut = new DataOutputStream(data);
+    Map<String, int[]> sections = new TreeMap<>();
+    for (Map.Entry<String, Map<String, List<Entry>>> section : byPackage.entrySet()) {
+      int start = dataOut.size();
+      int count = 0;
+      for (List<Entry> entries : section.getValue().values()) {
+        count += entries.size();
+      }
+      dataOut.writeInt(count);
+      for (Map.Entry<String, List<Entry>> boundClass : section.getValue().entrySet()) {
+        for (Entry entry : boundClass.getValue()) {
+          writeString(dataOut, boundClass.getKey());
+          if (entry.target == null) {
+            dataOut.writeByte(NO_TARGET);
+          } else {
+            dataOut.writeByte(entry.linked ? LINKED_TARGET : TARGET);
+            writeString(dataOut, entry.target);
+          }
+          writeNullableString(dataOut, entry.qualifier);
+        }
+      }
+      sections.put(section.getKey(), new int[] {start, dataOut.size() - start});
+    }
+    dataOut.flush();
+
+    DataOutputStream header = new DataOutputStream(out);
+    header.writeInt(MAGIC);
+    header.writeInt(VERSION);
+    header.writeInt(sections.size());
+    for (Map.Entry<String, int[]> section : sections.entrySet()) {
+      writeString(header, section.getKey());
+      header.writeInt(section.getValue()[0]);
+      header.writeInt(section.getValue()[1]);
+    }
+    data.writeTo(header);
+    header.flush();
+  }
+
+  /**
+   * Returns the package of a class.
+   *
+   * @param className the fully-qualified binary name of a class
+   * @return the package of {@code className}, or the empty string for the unnamed package
+   */
+  private static String packageOf(String className) {
+    int lastDot = className.lastIndexOf('.');
+    return lastDot < 0 ? "" : className.substring(0, lastDot);
+  }
+
+  /** Writes a string that may be null. */
+  private static void writeNullableString(DataOutputStream out, @Nullable String s)
+      throws IOException {
+    out.writeBoolean(s != null);
+    if (s != null) {
+      writeString(out, s);
+    }
+  }
+
+  /**
+   * Writes a string as its length in bytes, as an unsigned short, followed by its UTF-8 encoding.
+   */
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF) {
+      throw new IOException("Name too long for a binding manifest: " + s);
+    }
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Reads a string written by {@link #writeString}.
+   *
+   * @throws BufferUnderflowException if the string does not fit in the rest of {@code in}
+   */
+  private static String readString(ByteBuffer in) {
+    int length = in.getShort() & 0xFFFF;
+    if (length > in.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** A binding of a library. */
+  public static final class Entry {
+
+    /** The qualifier of the binding, or null if it has none. */
+    private final @Nullable String qualifier;
+
+    /** The target of the binding, or null if it is not known. */
+    private final @Nullable String target;
+
+    /** True iff the binding is a linked binding. */
+    private final boolean linked;
+
+    Entry(@Nullable String qualifier, @Nullable String target, boolean linked) {
+      this.qualifier = qualifier;
+      this.target = target;
+      this.linked = linked;
+    }
+
+    /** Returns the target of the binding, or null if it is not known. */
+    public @Nullable String getTarget() {
+      return target;
+    }
+
+    /** Returns true iff the binding is a linked binding. */
+    public boolean isLinked() {
+      return linked;
+    }
+  }
+}
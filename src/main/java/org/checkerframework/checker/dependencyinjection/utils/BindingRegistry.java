@@ -0,0 +1,329 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.lang.model.element.Element;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The <a href="https://github.com/google/guice/wiki/Bindings#bindings">bindings</a> and <a
+ * href="https://github.com/google/guice/wiki/Injections#injection-points">injection points</a>
+ * discovered during a single compilation.
+ *
+ * <p>A binding is keyed by the bound class and its <a
+ * href="https://github.com/google/guice/wiki/BindingAnnotations">qualifier</a>, so that {@code
+ * bind(Foo.class).annotatedWith(Names.named("a"))} and {@code ...named("b")} are distinct bindings.
+ * Class names and qualifiers are interned to dense integer IDs, and each key is packed into a
+ * {@code long} as {@code (classId << 32) | qualifierId}. The bindings are held in a {@link
+ * LongIntHashMap} from those keys to the ID of the target class and the kind of the binding, so a
+ * binding costs two array slots rather than a map entry, a key string and a value object.
+ *
+ * <p>A registry belongs to exactly one type factory, so compilations that share a JVM (for example
+ * in a persistent build worker) never observe each other's bindings. Updates are synchronized. Once
+ * every compilation unit has been processed, {@link #freeze()} makes the registry read-only, after
+ * which it is queried from several threads without any locking. {@link #release()} drops every
+ * entry once the compilation is over.
+ *
+ * <p>Bindings of libraries on the classpath are not copied into the registry. Instead, lookups of
+ * classes that this compilation does not bind fall back to the {@link BindingManifest manifests}
+ * of those libraries. The classes that Guice binds in every injector, such as {@code Injector},
+ * are bound without a qualifier, though they are neither recorded nor written to a manifest.
+ */
+public class BindingRegistry {
+
+  /** The ID of the absent qualifier. */
+  private static final int NO_QUALIFIER = 0;
+
+  /** The kind of a class passed to {@code bind} without a known target. */
+  private static final int UNTARGETED = 0;
+
+  /** The kind of a binding that Guice satisfies directly, such as an instance binding. */
+  private static final int TARGETED = 1;
+
+  /** The kind of a linked binding, whose target must itself be satisfiable. */
+  private static final int LINKED = 2;
+
+  /** Returned by {@link #lookupLocal} for a key without a binding. */
+  private static final int MISSING = -1;
+
+  /**
+   * The classes that Guice <a href="https://github.com/google/guice/wiki/BuiltInBindings">binds in
+   * every injector</a>, without a qualifier.
+   */
+  private static final Set<String> BUILT_IN_BINDINGS =
+      new HashSet<>(
+          Arrays.asList(
+              "com.google.inject.Injector", "com.google.inject.Stage", "java.util.logging.Logger"));
+
+  /** The IDs of the bound classes and of the targets of bindings. */
+  private NameTable classes = new NameTable();
+
+  /** The IDs of the qualifiers; the empty string stands for the absent qualifier. */
+  private NameTable qualifiers = newQualifierTable();
+
+  /**
+   * The bindings of this compilation. Each key is a packed (class ID, qualifier ID) pair; each
+   * value is {@code (targetId << 2) | kind}, where the target ID is 0 for an untargeted binding.
+   */
+  private LongIntHashMap bindings = new LongIntHashMap(64);
+
+  /** The injection points that Guice must be able to satisfy, in the order they were added. */
+  private final Queue<InjectionPoint> injectionPoints = new ConcurrentLinkedQueue<>();
+
+  /** True once the registry has been frozen; see {@link #freeze()}. */
+  private volatile boolean frozen = false;
+
+  /** The manifests of the libraries on the classpath, consulted when a lookup misses. */
+  private volatile List<BindingManifest> libraryManifests = Collections.emptyList();
+
+  /** Returns a new qualifier table in which the absent qualifier has ID {@link #NO_QUALIFIER}. */
+  private static NameTable newQualifierTable() {
+    NameTable table = new NameTable();
+    table.intern("");
+    return table;
+  }
+
+  /**
+   * Sets the manifests of the libraries on the classpath.
+   *
+   * @param manifests the manifests, in classpath order
+   */
+  public void setLibraryManifests(List<BindingManifest> manifests) {
+    this.libraryManifests = manifests;
+  }
+
+  /**
+   * Records that a class has been passed to {@code bind}, without a known target. Has no effect if
+   * the class already has an unqualified binding.
+   *
+   * @param className the fully-qualified binary name of the bound class
+   */
+  public synchronized void addBoundClass(String className) {
+    checkNotFrozen();
+    long key = pack(classes.intern(className), NO_QUALIFIER);
+    if (!bindings.containsKey(key)) {
+      bindings.put(key, UNTARGETED);
+    }
+  }
+
+  /**
+   * Records a binding, replacing any previous target of the bound class and qualifier.
+   *
+   * @param className the fully-qualified binary name of the bound class
+   * @param qualifier the qualifier of the binding, or null if it has none
+   * @param target the fully-qualified name of the target of the binding
+   * @param linked true for a linked binding, made with {@code to}, whose target must itself be
+   *     satisfiable
+   */
+  public synchronized void putBinding(
+      String className, @Nullable String qualifier, String target, boolean linked) {
+    checkNotFrozen();
+    int qualifierId = qualifier == null ? NO_QUALIFIER : qualifiers.intern(qualifier);
+    long key = pack(classes.intern(className), qualifierId);
+    bindings.put(key, (classes.intern(target) << 2) | (linked ? LINKED : TARGETED));
+  }
+
+  /**
+   * Returns true iff the given class has been bound with the given qualifier, in this compilation
+   * or in a library on the classpath, or is bound by Guice itself.
+   *
+   * @param className the fully-qualified binary name of a class
+   * @param qualifier a qualifier, or null for an unqualified binding
+   * @return true iff the class has been bound with the qualifier
+   */
+  public boolean isBound(String className, @Nullable String qualifier) {
+    if (qualifier == null && BUILT_IN_BINDINGS.contains(className)) {
+      return true;
+    }
+    if (lookupLocal(className, qualifier) != MISSING) {
+      return true;
+    }
+    for (BindingManifest manifest : libraryManifests) {
+      if (manifest.lookup(className, qualifier) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the target of the binding for the given class and qualifier.
+   *
+   * @param className the fully-qualified binary name of the bound class
+   * @param qualifier the qualifier of the binding, or null for an unqualified binding
+   * @return the target of the binding, or null if the class is unbound or its target is unknown
+   */
+  public @Nullable String getTarget(String className, @Nullable String qualifier) {
+    int value = lookupLocal(className, qualifier);
+    if (value != MISSING) {
+      return (value & 3) == UNTARGETED ? null : classes.get(value >>> 2);
+    }
+    for (BindingManifest manifest : libraryManifests) {
+      BindingManifest.Entry entry = manifest.lookup(className, qualifier);
+      if (entry != null) {
+        return entry.getTarget();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns true iff the binding for the given class and qualifier is a linked binding.
+   *
+   * @param className the fully-qualified binary name of the bound class
+   * @param qualifier the qualifier of the binding, or null for an unqualified binding
+   * @return true iff the class is bound with the qualifier by a linked binding
+   */
+  public boolean isLinked(String className, @Nullable String qualifier) {
+    int value = lookupLocal(className, qualifier);
+    if (value != MISSING) {
+      return (value & 3) == LINKED;
+    }
+    for (BindingManifest manifest : libraryManifests) {
+      BindingManifest.Entry entry = manifest.lookup(className, qualifier);
+      if (entry != null) {
+        return entry.isLinked();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the value of the binding of this compilation for a class and qualifier.
+   *
+   * @param className the fully-qualified binary name of the bound class
+   * @param qualifier the qualifier of the binding, or null for an unqualified binding
+   * @return the packed target and kind of the binding, or {@link #MISSING}
+   */
+  private int lookupLocal(String className, @Nullable String qualifier) {
+    if (frozen) {
+      return lookupLocalUnsynchronized(className, qualifier);
+    }
+    synchronized (this) {
+      return lookupLocalUnsynchronized(className, qualifier);
+    }
+  }
+
+  /** Implements {@link #lookupLocal}; the caller holds the lock, or the registry is frozen. */
+  private int lookupLocalUnsynchronized(String className, @Nullable String qualifier) {
+    int classId = classes.lookup(className);
+    int qualifierId = qualifier == null ? NO_QUALIFIER : qualifiers.lookup(qualifier);
+    if (classId == NameTable.NO_ID || qualifierId == NameTable.NO_ID) {
+      return MISSING;
+    }
+    return bindings.get(pack(classId, qualifierId), MISSING);
+  }
+
+  /**
+   * Calls a function on every binding of this compilation, in no particular order. Bindings of
+   * libraries are not included.
+   *
+   * @param consumer the function to call
+   */
+  public synchronized void forEachBinding(BindingConsumer consumer) {
+    bindings.forEach(
+        (key, value) -> {
+          int qualifierId = (int) key;
+          int kind = value & 3;
+          consumer.accept(
+              classes.get((int) (key >>> 32)),
+              qualifierId == NO_QUALIFIER ? null : qualifiers.get(qualifierId),
+              kind == UNTARGETED ? null : classes.get(value >>> 2),
+              kind == LINKED);
+        });
+  }
+
+  /**
+   * Packs a class ID and a qualifier ID into a key of {@link #bindings}.
+   *
+   * @param classId the ID of a class
+   * @param qualifierId the ID of a qualifier
+   * @return the key for the pair
+   */
+  private static long pack(int classId, int qualifierId) {
+    return ((long) classId << 32) | qualifierId;
+  }
+
+  /**
+   * Adds an injection point.
+   *
+   * @param dependencyName the fully-qualified binary name of the class of the dependency
+   * @param qualifier the qualifier of the dependency, or null if it has none
+   * @param reportingLocation the program element at which an error will be reported if this
+   *     injection point has no corresponding binding
+   */
+  public void addInjectionPoint(
+      String dependencyName, @Nullable String qualifier, Element reportingLocation) {
+    addInjectionPoint(new InjectionPoint(dependencyName, qualifier, reportingLocation));
+  }
+
+  /**
+   * Adds an injection point.
+   *
+   * @param injectionPoint the injection point
+   */
+  public void addInjectionPoint(InjectionPoint injectionPoint) {
+    checkNotFrozen();
+    injectionPoints.add(injectionPoint);
+  }
+
+  /**
+   * Makes this registry read-only. Once frozen, it can be queried from several threads without any
+   * coordination, since no binding or injection point can be added anymore.
+   */
+  public synchronized void freeze() {
+    frozen = true;
+  }
+
+  /** Returns true iff this registry has been frozen. */
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  /** Throws an exception if this registry has been frozen. */
+  private void checkNotFrozen() {
+    if (frozen) {
+      throw new IllegalStateException("The binding registry is frozen");
+    }
+  }
+
+  /** Returns the injection points, in the order they were added. */
+  public Collection<InjectionPoint> getInjectionPoints() {
+    return Collections.unmodifiableCollection(injectionPoints);
+  }
+
+  /**
+   * Drops every binding and injection point, and makes the registry writable again. Called once the
+   * compilation that owns this registry is over, so that a long-lived JVM does not retain its
+   * program elements.
+   */
+  public synchronized void release() {
+    frozen = false;
+    classes = new NameTable();
+    qualifiers = newQualifierTable();
+    bindings = new LongIntHashMap(64);
+    injectionPoints.clear();
+    libraryManifests = Collections.emptyList();
+  }
+
+  /** A function on the bindings of a {@link BindingRegistry}. */
+  public interface BindingConsumer {
+
+    /**
+     * Processes a binding.
+     *
+     * @param boundClass the fully-qualified binary name of the bound class
+     * @param qualifier the qualifier of the binding, or null if it has none
+     * @param target the target of the binding, or null if it is not known
+     * @param linked true iff the binding is a linked binding
+     */
+    void accept(
+        String boundClass, @Nullable String qualifier, @Nullable String target, boolean linked);
+  }
+}
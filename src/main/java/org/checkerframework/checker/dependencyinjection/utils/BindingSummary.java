@@ -0,0 +1,312 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The bindings and injection points extracted from one compilation unit, in the order in which
+ * they were first recorded. Recording the same binding or injection point again has no effect, so
+ * code that is visited more than once, such as a {@code @Provides} method whose type is computed
+ * several times, does not grow the summary.
+ *
+ * <p>A summary refers to program elements by name only, so it can be written to disk and later
+ * replayed into a {@link BindingRegistry} in a different compilation.
+ */
+public class BindingSummary {
+
+  /** Tag of a record for a class passed to {@code bind} without a known target. */
+  private static final byte BOUND_CLASS = 0;
+
+  /** Tag of a record for a binding with a known target. */
+  private static final byte BINDING = 1;
+
+  /** Tag of a record for an injection point. */
+  private static final byte INJECTION_POINT = 2;
+
+  /** Tag of a record for a linked binding. */
+  private static final byte LINKED_BINDING = 3;
+
+  /** The records of this summary. */
+  private final List<Record> records;
+
+  /** The records of this summary, for finding duplicates. */
+  private final Set<Record> recorded;
+
+  /** Creates a new, empty summary. */
+  public BindingSummary() {
+    this.records = new ArrayList<>();
+    this.recorded = new HashSet<>();
+  }
+
+  /**
+   * Creates a summary with the given records.
+   *
+   * @param records the records of the summary, without duplicates
+   */
+  private BindingSummary(List<Record> records) {
+    this.records = records;
+    this.recorded = new HashSet<>(records);
+  }
+
+  /**
+   * Adds a record to this summary, unless it already has an equal record.
+   *
+   * @param record the record to add
+   */
+  private void add(Record record) {
+    if (recorded.add(record)) {
+      records.add(record);
+    }
+  }
+
+  /**
+   * Records that a class has been passed to {@code bind}, without a known target.
+   *
+   * @param className the fully-qualified name of the bound class
+   */
+  public void addBoundClass(String className) {
+    add(new Record(BOUND_CLASS, className, null, null, Collections.emptyList()));
+  }
+
+  /**
+   * Records a binding.
+   *
+   * @param className the fully-qualified name of the bound class
+   * @param qualifier the qualifier of the binding, or null if it has none
+   * @param target the target of the binding
+   * @param linked true iff the binding is a linked binding
+   */
+  public void putBinding(
+      String className, @Nullable String qualifier, String target, boolean linked) {
+    add(
+        new Record(
+            linked ? LINKED_BINDING : BINDING,
+            className,
+            target,
+            qualifier,
+            Collections.emptyList()));
+  }
+
+  /**
+   * Records an injection point.
+   *
+   * @param dependencyName the fully-qualified class name of the dependency
+   * @param qualifier the qualifier of the dependency, or null if it has none
+   * @param reportingLocation the program element at which an error will be reported if this
+   *     injection point has no corresponding binding
+   */
+  public void addInjectionPoint(
+      String dependencyName, @Nullable String qualifier, Element reportingLocation) {
+    // The location is recorded as the canonical name of its nearest enclosing type, followed by
+    // the simple names of the elements that lead from that type to the location.
+    Deque<String> path = new ArrayDeque<>();
+    Element owner = reportingLocation;
+    while (owner != null && !(owner instanceof TypeElement)) {
+      path.addFirst(owner.getSimpleName().toString());
+      owner = owner.getEnclosingElement();
+    }
+    if (owner == null) {
+      return;
+    }
+    add(
+        new Record(
+            INJECTION_POINT,
+            dependencyName,
+            ((TypeElement) owner).getQualifiedName().toString(),
+            qualifier,
+            new ArrayList<>(path)));
+  }
+
+  /**
+   * Replays the records of this summary into a registry.
+   *
+   * @param registry the registry to update
+   * @param elements the element utilities used to resolve the locations of injection points
+   */
+  public void replay(BindingRegistry registry, Elements elements) {
+    for (Record record : records) {
+      switch (record.tag) {
+        case BOUND_CLASS:
+          registry.addBoundClass(record.name);
+          break;
+        case BINDING:
+        case LINKED_BINDING:
+          registry.putBinding(
+              record.name, record.qualifier, record.target, record.tag == LINKED_BINDING);
+          break;
+        case INJECTION_POINT:
+          Element location = resolve(record, elements);
+          if (location != null) {
+            registry.addInjectionPoint(record.name, record.qualifier, location);
+          }
+          break;
+        default:
+          throw new IllegalStateException("Unknown record tag " + record.tag);
+      }
+    }
+  }
+
+  /**
+   * Resolves the location of an injection point record.
+   *
+   * @param record an injection point record
+   * @param elements the element utilities
+   * @return the location of the injection point, its enclosing type if the location no longer
+   *     exists, or null if the enclosing type no longer exists either
+   */
+  private static @Nullable Element resolve(Record record, Elements elements) {
+    Element location = elements.getTypeElement(record.target);
+    if (location == null) {
+      return null;
+    }
+    for (String simpleName : record.path) {
+      Element next = null;
+      List<? extends Element> candidates =
+          location instanceof ExecutableElement
+              ? ((ExecutableElement) location).getParameters()
+              : location.getEnclosedElements();
+      for (Element candidate : candidates) {
+        if (candidate.getSimpleName().contentEquals(simpleName)) {
+          next = candidate;
+          break;
+        }
+      }
+      if (next == null) {
+        return location;
+      }
+      location = next;
+    }
+    return location;
+  }
+
+  /**
+   * Writes this summary.
+   *
+   * @param out the output to write to
+   * @throws IOException if writing fails
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    out.writeInt(records.size());
+    for (Record record : records) {
+      out.writeByte(record.tag);
+      out.writeUTF(record.name);
+      writeNullableUTF(out, record.target);
+      writeNullableUTF(out, record.qualifier);
+      out.writeShort(record.path.size());
+      for (String simpleName : record.path) {
+        out.writeUTF(simpleName);
+      }
+    }
+  }
+
+  /**
+   * Reads a summary written by {@link #writeTo}.
+   *
+   * @param in the input to read from
+   * @return the summary
+   * @throws IOException if reading fails or the input is malformed
+   */
+  public static BindingSummary readFrom(DataInput in) throws IOException {
+    int size = in.readInt();
+    if (size < 0) {
+      throw new IOException("Malformed binding summary");
+    }
+    List<Record> records = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      byte tag = in.readByte();
+      if (tag != BOUND_CLASS && tag != BINDING && tag != INJECTION_POINT && tag != LINKED_BINDING) {
+        throw new IOException("Unknown record tag " + tag);
+      }
+      String name = in.readUTF();
+      String target = readNullableUTF(in);
+      String qualifier = readNullableUTF(in);
+      int pathLength = in.readUnsignedShort();
+      List<String> path = new ArrayList<>(pathLength);
+      for (int j = 0; j < pathLength; j++) {
+        path.add(in.readUTF());
+      }
+      records.add(new Record(tag, name, target, qualifier, path));
+    }
+    return new BindingSummary(records);
+  }
+
+  /** Writes a string that may be null. */
+  private static void writeNullableUTF(DataOutput out, @Nullable String s) throws IOException {
+    out.writeBoolean(s != null);
+    if (s != null) {
+      out.writeUTF(s);
+    }
+  }
+
+  /** Reads a string written by {@link #writeNullableUTF}. */
+  private static @Nullable String readNullableUTF(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  /** One binding or injection point. */
+  private static class Record {
+
+    /** The kind of this record: a bound class, a (linked) binding, or an injection point. */
+    final byte tag;
+
+    /** The bound class, or the dependency of an injection point. */
+    final String name;
+
+    /** The target of a binding, or the canonical name of the type enclosing an injection point. */
+    final @Nullable String target;
+
+    /** The qualifier of a binding or of an injection point. */
+    final @Nullable String qualifier;
+
+    /** The simple names that lead from {@link #target} to the location of an injection point. */
+    final List<String> path;
+
+    Record(
+        byte tag,
+        String name,
+        @Nullable String target,
+        @Nullable String qualifier,
+        List<String> path) {
+      this.tag = tag;
+      this.name = name;
+      this.target = target;
+      this.qualifier = qualifier;
+      this.path = path;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Record)) {
+        return false;
+      }
+      Record other = (Record) obj;
+      return tag == other.tag
+          && name.equals(other.name)
+          && Objects.equals(target, other.target)
+          && Objects.equals(qualifier, other.qualifier)
+          && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(tag, name, target, qualifier, path);
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An immutable set of bound classes, the value of a {@code @Bind} qualifier, represented by the
+ * IDs of the class names in a {@link NameTable}. Union, intersection and inclusion are bitwise
+ * operations, and the hash code is computed once, so accumulating classes and comparing
+ * qualifiers does not rebuild or compare lists of names. A set is turned into an annotation only
+ * when the type factory needs one.
+ */
+public final class BoundClassSet {
+
+  /** The set without any class. */
+  public static final BoundClassSet EMPTY = new BoundClassSet(new BitSet());
+
+  /** The IDs of the classes. Never modified. */
+  private final BitSet ids;
+
+  /** The hash code of {@link #ids}. */
+  private final int hash;
+
+  private BoundClassSet(BitSet ids) {
+    this.ids = ids;
+    this.hash = ids.hashCode();
+  }
+
+  /**
+   * Returns the set of some classes.
+   *
+   * @param table the table in which the names of the classes are interned
+   * @param classNames the names of the classes
+   * @return the set of {@code classNames}
+   */
+  public static BoundClassSet of(NameTable table, Collection<String> classNames) {
+    if (classNames.isEmpty()) {
+      return EMPTY;
+    }
+    BitSet ids = new BitSet();
+    for (String className : classNames) {
+      ids.set(table.intern(className));
+    }
+    return new BoundClassSet(ids);
+  }
+
+  /**
+   * Returns the union of this set and another.
+   *
+   * @param other a set
+   * @return the classes in this set or in {@code other}; this set itself if it contains {@code
+   *     other}
+   */
+  public BoundClassSet union(BoundClassSet other) {
+    if (containsAll(other)) {
+      return this;
+    }
+    if (other.containsAll(this)) {
+      return other;
+    }
+    BitSet union = (BitSet) ids.clone();
+    union.or(other.ids);
+    return new BoundClassSet(union);
+  }
+
+  /**
+   * Returns the intersection of this set and another.
+   *
+   * @param other a set
+   * @return the classes in both this set and {@code other}
+   */
+  public BoundClassSet intersection(BoundClassSet other) {
+    if (other.containsAll(this)) {
+      return this;
+    }
+    if (containsAll(other)) {
+      return other;
+    }
+    BitSet intersection = (BitSet) ids.clone();
+    intersection.and(other.ids);
+    return intersection.isEmpty() ? EMPTY : new BoundClassSet(intersection);
+  }
+
+  /**
+   * Returns true iff this set contains every class of another.
+   *
+   * @param other a set
+   * @return true iff {@code other} is a subset of this set
+   */
+  public boolean containsAll(BoundClassSet other) {
+    if (this == other || other.ids.isEmpty()) {
+      return true;
+    }
+    if (other.ids.length() > ids.length()) {
+      return false;
+    }
+    BitSet missing = (BitSet) other.ids.clone();
+    missing.andNot(ids);
+    return missing.isEmpty();
+  }
+
+  /** Returns true iff this set has no class. */
+  public boolean isEmpty() {
+    return ids.isEmpty();
+  }
+
+  /**
+   * Returns the names of the classes of this set.
+   *
+   * @param table the table in which the names of the classes were interned
+   * @return the names of the classes, in the order of their IDs
+   */
+  public List<String> toNames(NameTable table) {
+    List<String> names = new ArrayList<>(ids.cardinality());
+    for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+      names.add(table.get(id));
+    }
+    return names;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof BoundClassSet)) {
+      return false;
+    }
+    BoundClassSet other = (BoundClassSet) obj;
+    return hash == other.hash && ids.equals(other.ids);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+}
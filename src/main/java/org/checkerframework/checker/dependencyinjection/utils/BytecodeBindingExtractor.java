@@ -0,0 +1,904 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Extracts the bindings of the Guice modules of compiled classpath entries, so that libraries that
+ * were not compiled with {@code -AdiWriteBindingManifest} still satisfy injection points.
+ *
+ * <p>The classpath entries are scanned in parallel. Jars are memory-mapped and their central
+ * directory is read directly; stored class files are read in place, and deflated ones are inflated
+ * one at a time. Each class file is read by {@link ClassFile}, and only the classes whose constant
+ * pool mentions Guice are kept. The subclasses of {@code com.google.inject.AbstractModule} among
+ * them are the modules; as in source, every method of a module is examined, not only {@code
+ * configure}.
+ *
+ * <p>The code of each method is interpreted over an abstract operand stack that tracks class
+ * literals, string literals, the static types of other values, and the binding builders returned by
+ * {@code bind}. The chains {@code bind(X.class)}, optionally followed by {@code
+ * .annotatedWith(Names.named("..."))}, and then optionally by {@code .to(Y.class)} or {@code
+ * .toInstance(...)}, are recorded exactly as the transfer function records them in source. The
+ * stack is forgotten at every branch target and at every instruction that is not modelled, so a
+ * chain that is not a straight-line sequence of literals is skipped rather than guessed.
+ */
+public class BytecodeBindingExtractor {
+
+  /** The internal name of {@code AbstractModule}. */
+  private static final String ABSTRACT_MODULE = "com/google/inject/AbstractModule";
+
+  /** The descriptor of {@code AbstractModule.bind(Class)}. */
+  private static final String BIND_DESCRIPTOR =
+      "(Ljava/lang/Class;)Lcom/google/inject/binder/AnnotatedBindingBuilder;";
+
+  /** The descriptor of {@code AnnotatedBindingBuilder.annotatedWith(Annotation)}. */
+  private static final String ANNOTATED_WITH_DESCRIPTOR =
+      "(Ljava/lang/annotation/Annotation;)Lcom/google/inject/binder/LinkedBindingBuilder;";
+
+  /** The descriptor of {@code LinkedBindingBuilder.to(Class)}. */
+  private static final String TO_DESCRIPTOR =
+      "(Ljava/lang/Class;)Lcom/google/inject/binder/ScopedBindingBuilder;";
+
+  /** The descriptor of {@code LinkedBindingBuilder.toInstance(Object)}. */
+  private static final String TO_INSTANCE_DESCRIPTOR = "(Ljava/lang/Object;)V";
+
+  /** The internal name of {@code Names}. */
+  private static final String NAMES = "com/google/inject/name/Names";
+
+  /** The descriptor of {@code Names.named(String)}. */
+  private static final String NAMED_DESCRIPTOR =
+      "(Ljava/lang/String;)Lcom/google/inject/name/Named;";
+
+  /** The package of the binding builders. */
+  private static final String BINDER_PACKAGE = "com/google/inject/binder/";
+
+  /** The signature of a local file header in a jar. */
+  private static final int LOCAL_HEADER = 0x04034b50;
+
+  /** The signature of a central directory entry in a jar. */
+  private static final int CENTRAL_HEADER = 0x02014b50;
+
+  /** The signature of the end of the central directory of a jar. */
+  private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+  /** The compression method of a stored jar entry. */
+  private static final int STORED = 0;
+
+  /** The compression method of a deflated jar entry. */
+  private static final int DEFLATED = 8;
+
+  /**
+   * The largest class file that is read. The sizes in a jar are not trusted beyond this, so that a
+   * malformed or hostile jar cannot make the extractor allocate more.
+   */
+  private static final int MAX_CLASS_FILE_SIZE = 64 * 1024 * 1024;
+
+  /** The length of each fixed-length instruction, indexed by opcode, or 0 if it varies. */
+  private static final byte[] INSTRUCTION_LENGTHS = new byte[256];
+
+  static {
+    Arrays.fill(INSTRUCTION_LENGTHS, (byte) 1);
+    INSTRUCTION_LENGTHS[0x10] = 2; // bipush
+    INSTRUCTION_LENGTHS[0x11] = 3; // sipush
+    INSTRUCTION_LENGTHS[0x12] = 2; // ldc
+    INSTRUCTION_LENGTHS[0x13] = 3; // ldc_w
+    INSTRUCTION_LENGTHS[0x14] = 3; // ldc2_w
+    for (int opcode = 0x15; opcode <= 0x19; opcode++) {
+      INSTRUCTION_LENGTHS[opcode] = 2; // iload .. aload
+    }
+    for (int opcode = 0x36; opcode <= 0x3a; opcode++) {
+      INSTRUCTION_LENGTHS[opcode] = 2; // istore .. astore
+    }
+    INSTRUCTION_LENGTHS[0x84] = 3; // iinc
+    for (int opcode = 0x99; opcode <= 0xa8; opcode++) {
+      INSTRUCTION_LENGTHS[opcode] = 3; // if<cond>, goto, jsr
+    }
+    INSTRUCTION_LENGTHS[0xa9] = 2; // ret
+    INSTRUCTION_LENGTHS[0xaa] = 0; // tableswitch
+    INSTRUCTION_LENGTHS[0xab] = 0; // lookupswitch
+    for (int opcode = 0xb2; opcode <= 0xb8; opcode++) {
+      INSTRUCTION_LENGTHS[opcode] = 3; // field accesses, invokevirtual .. invokestatic
+    }
+    INSTRUCTION_LENGTHS[0xb9] = 5; // invokeinterface
+    INSTRUCTION_LENGTHS[0xba] = 5; // invokedynamic
+    INSTRUCTION_LENGTHS[0xbb] = 3; // new
+    INSTRUCTION_LENGTHS[0xbc] = 2; // newarray
+    INSTRUCTION_LENGTHS[0xbd] = 3; // anewarray
+    INSTRUCTION_LENGTHS[0xc0] = 3; // checkcast
+    INSTRUCTION_LENGTHS[0xc1] = 3; // instanceof
+    INSTRUCTION_LENGTHS[0xc4] = 0; // wide
+    INSTRUCTION_LENGTHS[0xc5] = 4; // multianewarray
+    INSTRUCTION_LENGTHS[0xc6] = 3; // ifnull
+    INSTRUCTION_LENGTHS[0xc7] = 3; // ifnonnull
+    INSTRUCTION_LENGTHS[0xc8] = 5; // goto_w
+    INSTRUCTION_LENGTHS[0xc9] = 5; // jsr_w
+  }
+
+  /** The classes that mention Guice, keyed by internal name. */
+  private final Map<String, ClassFile> candidates = new ConcurrentHashMap<>();
+
+  /** The superclass of every class read, keyed by internal name. */
+  private final Map<String, String> superNames = new ConcurrentHashMap<>();
+
+  /** The registry that receives the bindings. */
+  private final BindingRegistry registry;
+
+  /**
+   * Creates an extractor.
+   *
+   * @param registry the registry that receives the bindings
+   */
+  private BytecodeBindingExtractor(BindingRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Extracts the bindings of the modules in some classpath entries. Entries that already carry a
+   * {@link BindingManifest}, and entries that cannot be read or are malformed, are skipped.
+   *
+   * @param classpath the jars and directories of the classpath
+   * @param pool the pool in which the entries are scanned
+   * @return a manifest of the bindings of the modules in {@code classpath}
+   * @throws IOException if the bindings cannot be encoded
+   * @throws InterruptedException if this thread is interrupted while the entries are scanned
+   */
+  public static BindingManifest extract(List<Path> classpath, ForkJoinPool pool)
+      throws IOException, InterruptedException {
+    BindingRegistry registry = new BindingRegistry();
+    BytecodeBindingExtractor extractor = new BytecodeBindingExtractor(registry);
+    try {
+      pool.submit(() -> classpath.parallelStream().forEach(extractor::scan)).get();
+      List<ClassFile> modules =
+          extractor.candidates.values().stream()
+              .filter(c -> extractor.isModule(c.getName()))
+              .collect(Collectors.toList());
+      pool.submit(() -> modules.parallelStream().forEach(extractor::extractModule)).get();
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    }
+    ByteArrayOutputStream manifest = new ByteArrayOutputStream();
+    BindingManifest.write(registry, manifest);
+    return BindingManifest.open(ByteBuffer.wrap(manifest.toByteArray()));
+  }
+
+  /**
+   * Reads the classes of a classpath entry.
+   *
+   * @param entry a jar or a directory
+   */
+  private void scan(Path entry) {
+    try {
+      if (Files.isDirectory(entry)) {
+        if (!Files.exists(entry.resolve(BindingManifest.RESOURCE_NAME))) {
+          scanDirectory(entry);
+        }
+      } else if (Files.isRegularFile(entry)) {
+        scanJar(entry);
+      }
+    } catch (IOException | RuntimeException e) {
+      // An unreadable or malformed entry contributes no bindings; the other entries still do.
+    }
+  }
+
+  /**
+   * Reads the class files under a directory.
+   *
+   * @param directory the directory
+   * @throws IOException if the directory cannot be read
+   */
+  private void scanDirectory(Path directory) throws IOException {
+    List<Path> classFiles;
+    try (Stream<Path> files = Files.walk(directory)) {
+      classFiles =
+          files.filter(f -> f.toString().endsWith(".class")).collect(Collectors.toList());
+    }
+    for (Path classFile : classFiles) {
+      try (FileChannel channel = FileChannel.open(classFile, StandardOpenOption.READ)) {
+        add(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      } catch (IOException e) {
+        // Skip the class.
+      }
+    }
+  }
+
+  /**
+   * Reads the class files of a memory-mapped jar.
+   *
+   * @param jar the jar
+   * @throws IOException if the jar cannot be read
+   */
+  private void scanJar(Path jar) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        scanZipFile(jar);
+        return;
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int end = findEndOfCentralDirectory(in);
+    if (end < 0) {
+      return;
+    }
+    int entryCount = in.getShort(end + 10) & 0xFFFF;
+    long directoryOffset = in.getInt(end + 16) & 0xFFFFFFFFL;
+    if (entryCount == 0xFFFF || directoryOffset == 0xFFFFFFFFL) {
+      // A zip64 archive; let the JDK read it.
+      scanZipFile(jar);
+      return;
+    }
+    if (directoryOffset > end) {
+      throw new IOException("Malformed jar: " + jar);
+    }
+
+    List<int[]> classEntries = new ArrayList<>();
+    int position = (int) directoryOffset;
+    for (int i = 0; i < entryCount; i++) {
+      if (position > end - 46 || in.getInt(position) != CENTRAL_HEADER) {
+        throw new IOException("Malformed jar: " + jar);
+      }
+      int method = in.getShort(position + 10) & 0xFFFF;
+      int compressedSize = in.getInt(position + 20);
+      int size = in.getInt(position + 24);
+      int nameLength = in.getShort(position + 28) & 0xFFFF;
+      int extraLength = in.getShort(position + 30) & 0xFFFF;
+      int commentLength = in.getShort(position + 32) & 0xFFFF;
+      int localHeader = in.getInt(position + 42);
+      if (position + 46 + nameLength > end) {
+        throw new IOException("Malformed jar: " + jar);
+      }
+      String name = decode(in, position + 46, nameLength);
+      if (name.equals(BindingManifest.RESOURCE_NAME)) {
+        // The library's own manifest already has its bindings.
+        return;
+      }
+      if (name.endsWith(".class") && !name.startsWith("META-INF/")) {
+        classEntries.add(new int[] {method, compressedSize, size, localHeader});
+      }
+      position += 46 + nameLength + extraLength + commentLength;
+    }
+
+    Inflater inflater = new Inflater(true);
+    try {
+      for (int[] entry : classEntries) {
+        ByteBuffer contents = readEntry(in, entry[0], entry[1], entry[2], entry[3], inflater);
+        if (contents != null) {
+          add(contents);
+        }
+      }
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Returns the position of the end of the central directory of a jar.
+   *
+   * @param in the contents of the jar, in little-endian order
+   * @return the position of the end of the central directory, or -1 if there is none
+   */
+  private static int findEndOfCentralDirectory(ByteBuffer in) {
+    // The record is 22 bytes, followed by a comment of at most 64 KiB.
+    int lowest = Math.max(0, in.limit() - 22 - 0xFFFF);
+    for (int position = in.limit() - 22; position >= lowest; position--) {
+      if (in.getInt(position) == END_OF_CENTRAL_DIRECTORY) {
+        return position;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the contents of a jar entry.
+   *
+   * @param in the contents of the jar, in little-endian order
+   * @param method the compression method of the entry
+   * @param compressedSize the size of the entry in the jar
+   * @param size the size of the contents of the entry
+   * @param localHeader the position of the local header of the entry
+   * @param inflater the inflater to use for a deflated entry
+   * @return the contents of the entry, or null if it cannot be read or is larger than {@link
+   *     #MAX_CLASS_FILE_SIZE}
+   */
+  private static @Nullable ByteBuffer readEntry(
+      ByteBuffer in, int method, int compressedSize, int size, int localHeader, Inflater inflater) {
+    if (localHeader < 0
+        || compressedSize < 0
+        || compressedSize > MAX_CLASS_FILE_SIZE
+        || size < 0
+        || size > MAX_CLASS_FILE_SIZE
+        || localHeader > in.limit() - 30) {
+      return null;
+    }
+    if (in.getInt(localHeader) != LOCAL_HEADER) {
+      return null;
+    }
+    int nameLength = in.getShort(localHeader + 26) & 0xFFFF;
+    int extraLength = in.getShort(localHeader + 28) & 0xFFFF;
+    int start = localHeader + 30 + nameLength + extraLength;
+    if ((long) start + compressedSize > in.limit()) {
+      return null;
+    }
+    ByteBuffer data = in.duplicate().order(ByteOrder.BIG_ENDIAN);
+    data.position(start);
+    data.limit(start + compressedSize);
+    if (method == STORED) {
+      return data.slice();
+    }
+    if (method != DEFLATED) {
+      return null;
+    }
+    byte[] compressed = new byte[compressedSize];
+    data.get(compressed);
+    byte[] contents = new byte[size];
+    inflater.reset();
+    inflater.setInput(compressed);
+    try {
+      int n = 0;
+      while (n < size && !inflater.finished()) {
+        int inflated = inflater.inflate(contents, n, size - n);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        n += inflated;
+      }
+      return n == size ? ByteBuffer.wrap(contents) : null;
+    } catch (DataFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Reads the class files of a jar through {@link ZipFile}, for the jars that are too large to be
+   * mapped or use the zip64 format.
+   *
+   * @param jar the jar
+   * @throws IOException if the jar cannot be read
+   */
+  private void scanZipFile(Path jar) throws IOException {
+    try (ZipFile zip = new ZipFile(jar.toFile())) {
+      if (zip.getEntry(BindingManifest.RESOURCE_NAME) != null) {
+        return;
+      }
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        if (entry.getName().endsWith(".class") && !entry.getName().startsWith("META-INF/")) {
+          try (InputStream in = zip.getInputStream(entry)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = in.read(chunk)) != -1 && bytes.size() <= MAX_CLASS_FILE_SIZE) {
+              bytes.write(chunk, 0, n);
+            }
+            if (bytes.size() <= MAX_CLASS_FILE_SIZE) {
+              add(ByteBuffer.wrap(bytes.toByteArray()));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /** Decodes a UTF-8 string of a jar. */
+  private static String decode(ByteBuffer in, int position, int length) {
+    ByteBuffer bytes = in.duplicate();
+    bytes.position(position);
+    bytes.limit(position + length);
+    return StandardCharsets.UTF_8.decode(bytes).toString();
+  }
+
+  /**
+   * Reads a class file, and keeps it if it mentions Guice.
+   *
+   * @param contents the contents of the class file
+   */
+  private void add(ByteBuffer contents) {
+    ClassFile classFile;
+    try {
+      classFile = ClassFile.read(contents);
+    } catch (IOException e) {
+      return;
+    }
+    String superName = classFile.getSuperName();
+    if (superName != null) {
+      superNames.putIfAbsent(classFile.getName(), superName);
+    }
+    if (classFile.mentionsGuice()) {
+      candidates.putIfAbsent(classFile.getName(), classFile);
+    }
+  }
+
+  /**
+   * Returns true iff a class is a subclass of {@code AbstractModule}, as far as the classes read
+   * show.
+   *
+   * @param name the internal name of a class
+   * @return true iff {@code name} is a module
+   */
+  private boolean isModule(String name) {
+    String current = superNames.get(name);
+    // Bound the walk, in case of a cycle among malformed classes.
+    for (int depth = 0; current != null && depth < 64; depth++) {
+      if (current.equals(ABSTRACT_MODULE)) {
+        return true;
+      }
+      current = superNames.get(current);
+    }
+    return false;
+  }
+
+  /**
+   * Records the bindings made by the methods of a module.
+   *
+   * @param module the module
+   */
+  private void extractModule(ClassFile module) {
+    for (ClassFile.Method method : module.getMethods()) {
+      if (!method.isStatic() && !method.name.equals("<init>")) {
+        try {
+          interpret(module, method);
+        } catch (RuntimeException e) {
+          // Malformed code; the bindings recorded so far are kept.
+        }
+      }
+    }
+  }
+
+  /** The kind of an abstract value on the operand stack. */
+  private enum Kind {
+    /** The receiver of the method, {@code this}. */
+    THIS,
+    /** A class literal; the name is the binary name of the class. */
+    CLASS_LITERAL,
+    /** A string literal; the name is the string. */
+    STRING_LITERAL,
+    /** The result of {@code Names.named}; the name is the argument. */
+    NAMED,
+    /** A binding builder; the name is the bound class and the qualifier is known. */
+    BUILDER,
+    /** Any other value, whose static type may be known. */
+    OTHER
+  }
+
+  /** An abstract value on the operand stack or in a local variable. */
+  private static final class Value {
+
+    /** A value about which nothing is known. */
+    static final Value UNKNOWN = new Value(Kind.OTHER, null, null, null);
+
+    /** The kind of the value. */
+    final Kind kind;
+
+    /** The name of the value, whose meaning depends on {@link #kind}. */
+    final @Nullable String name;
+
+    /** The qualifier of a {@link Kind#BUILDER}, or null. */
+    final @Nullable String qualifier;
+
+    /** The static type of the value, as javac prints it, or null if it is not known. */
+    final @Nullable String type;
+
+    Value(Kind kind, @Nullable String name, @Nullable String qualifier, @Nullable String type) {
+      this.kind = kind;
+      this.name = name;
+      this.qualifier = qualifier;
+      this.type = type;
+    }
+
+    /** Returns a value of a known static type. */
+    static Value ofType(@Nullable String type) {
+      return type == null ? UNKNOWN : new Value(Kind.OTHER, null, null, type);
+    }
+  }
+
+  /**
+   * Interprets the code of a method and records the binding chains it contains.
+   *
+   * @param module the module that declares the method
+   * @param method the method
+   */
+  private void interpret(ClassFile module, ClassFile.Method method) {
+    ByteBuffer code = method.code;
+    BitSet targets = findBranchTargets(code, method.handlers);
+    Deque<Value> stack = new ArrayDeque<>();
+    Map<Integer, Value> locals = new HashMap<>();
+    locals.put(0, new Value(Kind.THIS, null, null, null));
+
+    int pc = 0;
+    while (pc < code.limit()) {
+      if (targets.get(pc)) {
+        stack.clear();
+        Value self = locals.get(0);
+        locals.clear();
+        locals.put(0, self);
+      }
+      int opcode = code.get(pc) & 0xFF;
+      switch (opcode) {
+        case 0x01: // aconst_null
+          stack.push(Value.UNKNOWN);
+          break;
+        case 0x02: // iconst_m1 .. iconst_5
+        case 0x03:
+        case 0x04:
+        case 0x05:
+        case 0x06:
+        case 0x07:
+        case 0x08:
+        case 0x10: // bipush
+        case 0x11: // sipush
+          stack.push(Value.ofType("int"));
+          break;
+        case 0x09: // lconst_0, lconst_1
+        case 0x0a:
+          stack.push(Value.ofType("long"));
+          break;
+        case 0x0b: // fconst_0 .. fconst_2
+        case 0x0c:
+        case 0x0d:
+          stack.push(Value.ofType("float"));
+          break;
+        case 0x0e: // dconst_0, dconst_1
+        case 0x0f:
+          stack.push(Value.ofType("double"));
+          break;
+        case 0x12: // ldc
+          stack.push(constant(module, code.get(pc + 1) & 0xFF));
+          break;
+        case 0x13: // ldc_w
+        case 0x14: // ldc2_w
+          stack.push(constant(module, code.getShort(pc + 1) & 0xFFFF));
+          break;
+        case 0x19: // aload
+          stack.push(locals.getOrDefault(code.get(pc + 1) & 0xFF, Value.UNKNOWN));
+          break;
+        case 0x2a: // aload_0 .. aload_3
+        case 0x2b:
+        case 0x2c:
+        case 0x2d:
+          stack.push(locals.getOrDefault(opcode - 0x2a, Value.UNKNOWN));
+          break;
+        case 0x3a: // astore
+          locals.put(code.get(pc + 1) & 0xFF, pop(stack));
+          break;
+        case 0x4b: // astore_0 .. astore_3
+        case 0x4c:
+        case 0x4d:
+        case 0x4e:
+          locals.put(opcode - 0x4b, pop(stack));
+          break;
+        case 0x57: // pop
+          pop(stack);
+          break;
+        case 0x59: // dup
+          Value top = pop(stack);
+          stack.push(top);
+          stack.push(top);
+          break;
+        case 0xb2: // getstatic
+          stack.push(Value.ofType(fieldType(module, code.getShort(pc + 1) & 0xFFFF)));
+          break;
+        case 0xb4: // getfield
+          pop(stack);
+          stack.push(Value.ofType(fieldType(module, code.getShort(pc + 1) & 0xFFFF)));
+          break;
+        case 0xb6: // invokevirtual
+        case 0xb7: // invokespecial
+        case 0xb9: // invokeinterface
+          invoke(module.getMemberRef(code.getShort(pc + 1) & 0xFFFF), stack, false);
+          break;
+        case 0xb8: // invokestatic
+          invoke(module.getMemberRef(code.getShort(pc + 1) & 0xFFFF), stack, true);
+          break;
+        case 0xbb: // new
+          stack.push(Value.ofType(javacName(module.getClassName(code.getShort(pc + 1) & 0xFFFF))));
+          break;
+        case 0xc0: // checkcast
+          pop(stack);
+          stack.push(Value.ofType(javacName(module.getClassName(code.getShort(pc + 1) & 0xFFFF))));
+          break;
+        default:
+          // Not modelled: forget the stack, and the locals if the instruction may write one.
+          stack.clear();
+          if (opcode == 0xc4 || (opcode >= 0x36 && opcode <= 0x4e)) {
+            Value self = locals.get(0);
+            locals.clear();
+            locals.put(0, self);
+          }
+          break;
+      }
+      pc += instructionLength(code, pc);
+    }
+  }
+
+  /**
+   * Returns the value pushed by {@code ldc}.
+   *
+   * @param module the class that contains the instruction
+   * @param index the index of the constant
+   * @return the value of the constant
+   */
+  private static Value constant(ClassFile module, int index) {
+    if (module.isClass(index)) {
+      String name = module.getClassName(index);
+      return name.startsWith("[")
+          ? Value.ofType("java.lang.Class")
+          : new Value(Kind.CLASS_LITERAL, binaryName(name), null, "java.lang.Class");
+    }
+    if (module.isString(index)) {
+      return new Value(Kind.STRING_LITERAL, module.getString(index), null, "java.lang.String");
+    }
+    String numericType = module.getNumericType(index);
+    return numericType != null ? Value.ofType(typeName(numericType)) : Value.UNKNOWN;
+  }
+
+  /**
+   * Returns the type of a field, as javac prints it.
+   *
+   * @param module the class that contains the field access
+   * @param index the index of the field reference
+   * @return the type of the field
+   */
+  private static String fieldType(ClassFile module, int index) {
+    return typeName(module.getMemberRef(index).descriptor);
+  }
+
+  /**
+   * Interprets a method call, recording the binding it makes, if any.
+   *
+   * @param callee the called method
+   * @param stack the operand stack
+   * @param isStatic true for {@code invokestatic}
+   */
+  private void invoke(ClassFile.MemberRef callee, Deque<Value> stack, boolean isStatic) {
+    List<String> parameterTypes = new ArrayList<>();
+    String returnType = parseMethodDescriptor(callee.descriptor, parameterTypes);
+    Value[] arguments = new Value[parameterTypes.size()];
+    for (int i = arguments.length - 1; i >= 0; i--) {
+      arguments[i] = pop(stack);
+    }
+    @Nullable Value receiver = isStatic ? null : pop(stack);
+    // Boxing, as in toInstance(42), yields a value of the boxed type, like any other call.
+    @Nullable Value result = returnType.equals("void") ? null : Value.ofType(returnType);
+
+    if (receiver != null
+        && receiver.kind == Kind.THIS
+        && callee.name.equals("bind")
+        && callee.descriptor.equals(BIND_DESCRIPTOR)) {
+      if (arguments[0].kind == Kind.CLASS_LITERAL) {
+        registry.addBoundClass(arguments[0].name);
+        result = new Value(Kind.BUILDER, arguments[0].name, null, returnType);
+      }
+    } else if (receiver != null
+        && receiver.kind == Kind.BUILDER
+        && callee.owner.startsWith(BINDER_PACKAGE)) {
+      Value argument = arguments.length > 0 ? arguments[0] : Value.UNKNOWN;
+      result = invokeBuilder(callee, receiver, argument, returnType);
+    } else if (isStatic
+        && callee.owner.equals(NAMES)
+        && callee.name.equals("named")
+        && callee.descriptor.equals(NAMED_DESCRIPTOR)
+        && arguments[0].kind == Kind.STRING_LITERAL) {
+      result = new Value(Kind.NAMED, arguments[0].name, null, returnType);
+    }
+
+    if (result != null) {
+      stack.push(result);
+    }
+  }
+
+  /**
+   * Interprets a call on a binding builder, recording the binding it makes, if any.
+   *
+   * @param callee the called method
+   * @param builder the receiver of the call
+   * @param argument the first argument of the call
+   * @param returnType the return type of the called method
+   * @return the result of the call, or null if it returns nothing
+   */
+  private @Nullable Value invokeBuilder(
+      ClassFile.MemberRef callee, Value builder, Value argument, String returnType) {
+    String boundClass = builder.name;
+    @Nullable Value result = returnType.equals("void") ? null : Value.ofType(returnType);
+    switch (callee.name) {
+      case "annotatedWith":
+        if (callee.descriptor.equals(ANNOTATED_WITH_DESCRIPTOR)
+            && builder.qualifier == null
+            && argument.kind == Kind.NAMED) {
+          return new Value(Kind.BUILDER, boundClass, "@Named(" + argument.name + ")", returnType);
+        }
+        return result;
+      case "to":
+        if (callee.descriptor.equals(TO_DESCRIPTOR) && argument.kind == Kind.CLASS_LITERAL) {
+          registry.putBinding(boundClass, builder.qualifier, argument.name, true);
+        }
+        return result;
+      case "toInstance":
+        if (callee.descriptor.equals(TO_INSTANCE_DESCRIPTOR) && argument.type != null) {
+          registry.putBinding(boundClass, builder.qualifier, argument.type, false);
+        }
+        return result;
+      default:
+        return result;
+    }
+  }
+
+  /** Pops a value, or returns {@link Value#UNKNOWN} if the stack is empty. */
+  private static Value pop(Deque<Value> stack) {
+    Value value = stack.poll();
+    return value != null ? value : Value.UNKNOWN;
+  }
+
+  /**
+   * Returns the offsets of the instructions that can be reached other than from the preceding
+   * instruction: the targets of jumps and switches, and the exception handlers.
+   *
+   * @param code the bytecode of a method
+   * @param handlers the starts of the exception handlers
+   * @return the branch targets
+   */
+  private static BitSet findBranchTargets(ByteBuffer code, int[] handlers) {
+    BitSet targets = new BitSet(code.limit());
+    for (int handler : handlers) {
+      targets.set(handler);
+    }
+    int pc = 0;
+    while (pc < code.limit()) {
+      int opcode = code.get(pc) & 0xFF;
+      if ((opcode >= 0x99 && opcode <= 0xa8) || opcode == 0xc6 || opcode == 0xc7) {
+        targets.set(pc + code.getShort(pc + 1));
+      } else if (opcode == 0xc8 || opcode == 0xc9) {
+        targets.set(pc + code.getInt(pc + 1));
+      } else if (opcode == 0xaa || opcode == 0xab) {
+        int table = (pc + 4) & ~3;
+        targets.set(pc + code.getInt(table));
+        if (opcode == 0xaa) {
+          int low = code.getInt(table + 4);
+          int high = code.getInt(table + 8);
+          for (int i = 0; i <= high - low; i++) {
+            targets.set(pc + code.getInt(table + 12 + 4 * i));
+          }
+        } else {
+          int pairs = code.getInt(table + 4);
+          for (int i = 0; i < pairs; i++) {
+            targets.set(pc + code.getInt(table + 12 + 8 * i));
+          }
+        }
+      }
+      pc += instructionLength(code, pc);
+    }
+    return targets;
+  }
+
+  /**
+   * Returns the length of an instruction.
+   *
+   * @param code the bytecode of a method
+   * @param pc the offset of the instruction
+   * @return the length of the instruction, in bytes
+   */
+  private static int instructionLength(ByteBuffer code, int pc) {
+    int opcode = code.get(pc) & 0xFF;
+    int length = INSTRUCTION_LENGTHS[opcode];
+    if (length != 0) {
+      return length;
+    }
+    if (opcode == 0xc4) {
+      return (code.get(pc + 1) & 0xFF) == 0x84 ? 6 : 4;
+    }
+    int table = (pc + 4) & ~3;
+    if (opcode == 0xaa) {
+      int low = code.getInt(table + 4);
+      int high = code.getInt(table + 8);
+      return table - pc + 12 + 4 * (high - low + 1);
+    }
+    return table - pc + 8 + 8 * code.getInt(table + 4);
+  }
+
+  /**
+   * Parses a method descriptor.
+   *
+   * @param descriptor the descriptor
+   * @param parameterTypes receives the types of the parameters, as javac prints them
+   * @return the return type, as javac prints it
+   */
+  private static String parseMethodDescriptor(String descriptor, List<String> parameterTypes) {
+    int i = 1;
+    while (descriptor.charAt(i) != ')') {
+      int start = i;
+      while (descriptor.charAt(i) == '[') {
+        i++;
+      }
+      if (descriptor.charAt(i) == 'L') {
+        i = descriptor.indexOf(';', i);
+      }
+      i++;
+      parameterTypes.add(typeName(descriptor.substring(start, i)));
+    }
+    return typeName(descriptor.substring(i + 1));
+  }
+
+  /**
+   * Returns a type, given its descriptor, as javac prints it.
+   *
+   * @param descriptor a field descriptor, or {@code V}
+   * @return the type, such as {@code int}, {@code java.util.Map.Entry} or {@code
+   *     java.lang.String[]}
+   */
+  private static String typeName(String descriptor) {
+    switch (descriptor.charAt(0)) {
+      case 'Z':
+        return "boolean";
+      case 'B':
+        return "byte";
+      case 'C':
+        return "char";
+      case 'S':
+        return "short";
+      case 'I':
+        return "int";
+      case 'J':
+        return "long";
+      case 'F':
+        return "float";
+      case 'D':
+        return "double";
+      case 'V':
+        return "void";
+      case '[':
+        return typeName(descriptor.substring(1)) + "[]";
+      default:
+        return binaryName(descriptor.substring(1, descriptor.length() - 1)).replace('$', '.');
+    }
+  }
+
+  /**
+   * Returns a class, given the operand of {@code new} or {@code checkcast}, as javac prints it.
+   *
+   * @param internalName the internal name of a class, or the descriptor of an array type
+   * @return the class, such as {@code java.util.Map.Entry} or {@code java.lang.String[]}
+   */
+  private static String javacName(String internalName) {
+    return internalName.startsWith("[")
+        ? typeName(internalName)
+        : binaryName(internalName).replace('$', '.');
+  }
+
+  /**
+   * Returns the binary name of a class, such as {@code java.util.Map$Entry}.
+   *
+   * @param internalName the internal name of the class, such as {@code java/util/Map$Entry}
+   * @return the binary name
+   */
+  private static String binaryName(String internalName) {
+    return internalName.replace('/', '.');
+  }
+}
@@ -0,0 +1,210 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Counters and timers for the phases of the checker, broken down by the class whose code was being
+ * analyzed, so that the module classes that make a compilation slow can be found without a
+ * profiler.
+ *
+ * <p>The counters are {@link LongAdder}s, so recording is cheap even if several threads record at
+ * the same time. When statistics are not requested, the checker does not create an instance, and
+ * nothing is recorded or timed.
+ */
+public class CheckerStatistics {
+
+  /** The number of classes listed in the summary, in decreasing order of time. */
+  private static final int MAX_CLASSES_LISTED = 25;
+
+  /** The name under which events outside of any class are recorded. */
+  private static final String NO_CLASS = "<no class>";
+
+  /** The things that are counted. */
+  public enum Counter {
+    /** Control flow graphs analyzed. */
+    CFGS("CFGs"),
+    /** Basic blocks of the analyzed control flow graphs. */
+    BLOCKS("blocks"),
+    /** Nodes of the analyzed control flow graphs. */
+    NODES("nodes"),
+    /** Bindings recorded. */
+    BINDINGS("bindings"),
+    /** Injection points recorded. */
+    INJECTION_POINTS("injection points"),
+    /** {@code @Bind} and {@code @BindAnnotatedWith} annotation mirrors created. */
+    ANNOTATION_MIRRORS("annotation mirrors");
+
+    /** The name of the counter in the summary. */
+    private final String label;
+
+    Counter(String label) {
+      this.label = label;
+    }
+  }
+
+  /** The phases that are timed. */
+  public enum Timer {
+    /** {@code postAnalyze} of the type factory. */
+    POST_ANALYZE("postAnalyze"),
+    /** {@code visitMethodInvocation} of the transfer function. */
+    METHOD_INVOCATION("visitMethodInvocation"),
+    /** {@code visitAssignment} of the transfer function. */
+    ASSIGNMENT("visitAssignment"),
+    /** Lookups of types in the ClassVal subchecker. */
+    CLASS_VAL_LOOKUP("ClassVal lookups");
+
+    /** The name of the timer in the summary. */
+    private final String label;
+
+    Timer(String label) {
+      this.label = label;
+    }
+  }
+
+  /** The statistics of each class. */
+  private final Map<String, ClassStatistics> classes = new ConcurrentHashMap<>();
+
+  /**
+   * Adds to a counter.
+   *
+   * @param className the binary name of the class being analyzed, or null if there is none
+   * @param counter the counter
+   * @param amount the amount to add
+   */
+  public void count(@Nullable String className, Counter counter, long amount) {
+    forClass(className).counters.get(counter).add(amount);
+  }
+
+  /**
+   * Adds to a timer.
+   *
+   * @param className the binary name of the class being analyzed, or null if there is none
+   * @param timer the timer
+   * @param nanos the time to add, in nanoseconds
+   */
+  public void time(@Nullable String className, Timer timer, long nanos) {
+    forClass(className).timers.get(timer).add(nanos);
+  }
+
+  /**
+   * Returns the statistics of a class.
+   *
+   * @param className the binary name of a class, or null
+   * @return the statistics of the class
+   */
+  private ClassStatistics forClass(@Nullable String className) {
+    return classes.computeIfAbsent(className == null ? NO_CLASS : className, ClassStatistics::new);
+  }
+
+  /**
+   * Returns a summary of the statistics: the totals, followed by the classes that took the most
+   * time.
+   *
+   * @return the summary, on several lines
+   */
+  public String summarize() {
+    List<ClassStatistics> sorted = new ArrayList<>(classes.values());
+    sorted.sort(
+        Comparator.comparingLong(ClassStatistics::totalNanos)
+            .reversed()
+            .thenComparing(statistics -> statistics.className));
+
+    StringBuilder summary = new StringBuilder();
+    summary.append(String.format("Dependency Injection Checker statistics:%n"));
+    for (Timer timer : Timer.values()) {
+      long total = 0;
+      for (ClassStatistics statistics : sorted) {
+        total += statistics.timers.get(timer).sum();
+      }
+      summary.append(String.format("  %-24s %10d ms%n", timer.label, toMillis(total)));
+    }
+    for (Counter counter : Counter.values()) {
+      long total = 0;
+      for (ClassStatistics statistics : sorted) {
+        total += statistics.counters.get(counter).sum();
+      }
+      summary.append(String.format("  %-24s %10d%n", counter.label, total));
+    }
+
+    summary.append(String.format("Classes by time spent (ms; %s):%n", columnLabels()));
+    List<ClassStatistics> listed = sorted.subList(0, Math.min(MAX_CLASSES_LISTED, sorted.size()));
+    for (ClassStatistics statistics : listed) {
+      summary.append("  ").append(statistics.className);
+      for (Timer timer : Timer.values()) {
+        summary.append(' ').append(toMillis(statistics.timers.get(timer).sum()));
+      }
+      for (Counter counter : Counter.values()) {
+        summary.append(' ').append(statistics.counters.get(counter).sum());
+      }
+      summary.append(System.lineSeparator());
+    }
+    if (sorted.size() > MAX_CLASSES_LISTED) {
+      summary.append(
+          String.format("  ... and %d more classes%n", sorted.size() - MAX_CLASSES_LISTED));
+    }
+    return summary.toString();
+  }
+
+  /** Returns the names of the columns of the per-class lines of the summary. */
+  private static String columnLabels() {
+    List<String> labels = new ArrayList<>();
+    for (Timer timer : Timer.values()) {
+      labels.add(timer.label);
+    }
+    for (Counter counter : Counter.values()) {
+      labels.add(counter.label);
+    }
+    return String.join(", ", labels);
+  }
+
+  /** Converts nanoseconds to milliseconds. */
+  private static long toMillis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  /** Drops every statistic. */
+  public void clear() {
+    classes.clear();
+  }
+
+  /** The counters and timers of one class. */
+  private static final class ClassStatistics {
+
+    /** The binary name of the class. */
+    final String className;
+
+    /** The counters of the class. */
+    final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+
+    /** The timers of the class, in nanoseconds. */
+    final Map<Timer, LongAdder> timers = new EnumMap<>(Timer.class);
+
+    ClassStatistics(String className) {
+      this.className = className;
+      for (Counter counter : Counter.values()) {
+        counters.put(counter, new LongAdder());
+      }
+      for (Timer timer : Timer.values()) {
+        timers.put(timer, new LongAdder());
+      }
+    }
+
+    /**
+     * Returns the time recorded for the class, in nanoseconds. The ClassVal lookups happen within
+     * the transfer function, so they are not added again.
+     */
+    long totalNanos() {
+      return timers.get(Timer.POST_ANALYZE).sum()
+          + timers.get(Timer.METHOD_INVOCATION).sum()
+          + timers.get(Timer.ASSIGNMENT).sum();
+    }
+  }
+}
@@ -0,0 +1,431 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A minimal reader of the parts of a class file that {@link BytecodeBindingExtractor} needs: the
+ * constant pool, the names of the class and its superclass, and the code of its methods. Fields,
+ * and attributes other than {@code Code}, are skipped. The constant pool is indexed when the class
+ * is read, but its strings are only decoded when they are asked for.
+ *
+ * <p>See chapter 4 of the Java Virtual Machine Specification for the format.
+ */
+public final class ClassFile {
+
+  /** The first four bytes of a class file. */
+  private static final int MAGIC = 0xCAFEBABE;
+
+  /** The prefix of the internal names of the classes of Guice. */
+  private static final byte[] GUICE_PREFIX = "com/google/inject/".getBytes(StandardCharsets.UTF_8);
+
+  // Constant pool tags.
+  private static final int UTF8 = 1;
+  private static final int INTEGER = 3;
+  private static final int FLOAT = 4;
+  private static final int LONG = 5;
+  private static final int DOUBLE = 6;
+  private static final int CLASS = 7;
+  private static final int STRING = 8;
+  private static final int FIELD_REF = 9;
+  private static final int METHOD_REF = 10;
+  private static final int INTERFACE_METHOD_REF = 11;
+  private static final int NAME_AND_TYPE = 12;
+  private static final int METHOD_HANDLE = 15;
+  private static final int METHOD_TYPE = 16;
+  private static final int DYNAMIC = 17;
+  private static final int INVOKE_DYNAMIC = 18;
+  private static final int MODULE = 19;
+  private static final int PACKAGE = 20;
+
+  /** The contents of the class file. */
+  private final ByteBuffer buffer;
+
+  /** The tag of each constant pool entry, or 0 for the unusable slots. */
+  private final byte[] tags;
+
+  /** The position in {@link #buffer} of the contents of each constant pool entry, after the tag. */
+  private final int[] offsets;
+
+  /** True iff a UTF-8 constant starts with {@link #GUICE_PREFIX}. */
+  private final boolean mentionsGuice;
+
+  /** The internal name of the class. */
+  private final String name;
+
+  /** The internal name of the superclass, or null for {@code java.lang.Object}. */
+  private final @Nullable String superName;
+
+  /** The methods that have code. */
+  private final List<Method> methods;
+
+  /**
+   * Reads a class file.
+   *
+   * @param buffer the contents of the class file, for example a slice of a memory-mapped jar
+   * @throws IOException if {@code buffer} is not a well-formed class file
+   */
+  private ClassFile(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    ByteBuffer in = buffer.duplicate();
+    if (in.getInt() != MAGIC) {
+      throw new IOException("Not a class file");
+    }
+    in.getInt(); // minor and major version
+    int count = in.getShort() & 0xFFFF;
+    tags = new byte[count];
+    offsets = new int[count];
+    boolean guice = false;
+    for (int i = 1; i < count; i++) {
+      int tag = in.get();
+      tags[i] = (byte) tag;
+      offsets[i] = in.position();
+      switch (tag) {
+        case UTF8:
+          int length = in.getShort() & 0xFFFF;
+          guice = guice || startsWith(in, GUICE_PREFIX, length);
+          in.position(in.position() + length);
+          break;
+        case CLASS:
+        case STRING:
+        case METHOD_TYPE:
+        case MODULE:
+        case PACKAGE:
+          in.position(in.position() + 2);
+          break;
+        case METHOD_HANDLE:
+          in.position(in.position() + 3);
+          break;
+        case INTEGER:
+        case FLOAT:
+        case FIELD_REF:
+        case METHOD_REF:
+        case INTERFACE_METHOD_REF:
+        case NAME_AND_TYPE:
+        case DYNAMIC:
+        case INVOKE_DYNAMIC:
+          in.position(in.position() + 4);
+          break;
+        case LONG:
+        case DOUBLE:
+          in.position(in.position() + 8);
+          i++; // takes two slots
+          break;
+        default:
+          throw new IOException("Unknown constant pool tag " + tag);
+      }
+    }
+    mentionsGuice = guice;
+
+    in.getShort(); // access flags
+    name = getClassName(in.getShort() & 0xFFFF);
+    int superIndex = in.getShort() & 0xFFFF;
+    superName = superIndex == 0 ? null : getClassName(superIndex);
+    int interfaceCount = in.getShort() & 0xFFFF;
+    in.position(in.position() + 2 * interfaceCount);
+    int fieldCount = in.getShort() & 0xFFFF;
+    for (int i = 0; i < fieldCount; i++) {
+      in.position(in.position() + 6);
+      skipAttributes(in);
+    }
+    int methodCount = in.getShort() & 0xFFFF;
+    List<Method> methodsWithCode = new ArrayList<>(methodCount);
+    for (int i = 0; i < methodCount; i++) {
+      int access = in.getShort() & 0xFFFF;
+      String methodName = getUtf8(in.getShort() & 0xFFFF);
+      String descriptor = getUtf8(in.getShort() & 0xFFFF);
+      int attributeCount = in.getShort() & 0xFFFF;
+      for (int j = 0; j < attributeCount; j++) {
+        String attributeName = getUtf8(in.getShort() & 0xFFFF);
+        int length = in.getInt();
+        int end = in.position() + length;
+        if (attributeName.equals("Code")) {
+          methodsWithCode.add(readCode(in, access, methodName, descriptor));
+        }
+        in.position(end);
+      }
+    }
+    methods = Collections.unmodifiableList(methodsWithCode);
+  }
+
+  /**
+   * Reads a class file.
+   *
+   * @param buffer the contents of the class file
+   * @return the class file
+   * @throws IOException if {@code buffer} is not a well-formed class file
+   */
+  public static ClassFile read(ByteBuffer buffer) throws IOException {
+    try {
+      return new ClassFile(buffer);
+    } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IOException("Malformed class file", e);
+    }
+  }
+
+  /**
+   * Returns true iff the next bytes of a buffer start with a prefix. Does not move the buffer.
+   *
+   * @param in the buffer
+   * @param prefix the prefix
+   * @param length the number of bytes that may be compared
+   * @return true iff the {@code length} bytes at the position of {@code in} start with {@code
+   *     prefix}
+   */
+  private static boolean startsWith(ByteBuffer in, byte[] prefix, int length) {
+    if (length < prefix.length) {
+      return false;
+    }
+    int position = in.position();
+    for (int i = 0; i < prefix.length; i++) {
+      if (in.get(position + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Skips a table of attributes. */
+  private static void skipAttributes(ByteBuffer in) {
+    int count = in.getShort() & 0xFFFF;
+    for (int i = 0; i < count; i++) {
+      in.getShort();
+      int length = in.getInt();
+      in.position(in.position() + length);
+    }
+  }
+
+  /**
+   * Reads a {@code Code} attribute, after its name and length.
+   *
+   * @param in the buffer, positioned at the contents of the attribute
+   * @param access the access flags of the method
+   * @param methodName the name of the method
+   * @param descriptor the descriptor of the method
+   * @return the method
+   */
+  private Method readCode(ByteBuffer in, int access, String methodName, String descriptor) {
+    in.getShort(); // max stack
+    in.getShort(); // max locals
+    int codeLength = in.getInt();
+    ByteBuffer code = in.slice();
+    code.limit(codeLength);
+    in.position(in.position() + codeLength);
+    int handlerCount = in.getShort() & 0xFFFF;
+    int[] handlers = new int[handlerCount];
+    for (int i = 0; i < handlerCount; i++) {
+      in.getShort(); // start
+      in.getShort(); // end
+      handlers[i] = in.getShort() & 0xFFFF;
+      in.getShort(); // catch type
+    }
+    return new Method(access, methodName, descriptor, code, handlers);
+  }
+
+  /** Returns the internal name of this class. */
+  public String getName() {
+    return name;
+  }
+
+  /** Returns the internal name of the superclass of this class, or null for Object. */
+  public @Nullable String getSuperName() {
+    return superName;
+  }
+
+  /**
+   * Returns true iff the constant pool names a class or member of Guice. A class whose constant
+   * pool does not cannot call the binding DSL.
+   */
+  public boolean mentionsGuice() {
+    return mentionsGuice;
+  }
+
+  /** Returns the methods of this class that have code. */
+  public List<Method> getMethods() {
+    return methods;
+  }
+
+  /**
+   * Returns the tag of a constant pool entry.
+   *
+   * @param index the index of the entry
+   * @return the tag of the entry, or 0 if {@code index} is not the index of an entry
+   */
+  public int getTag(int index) {
+    return index > 0 && index < tags.length ? tags[index] : 0;
+  }
+
+  /**
+   * Returns true iff a constant pool entry is a {@code CONSTANT_Class}.
+   *
+   * @param index the index of the entry
+   * @return true iff the entry is a class
+   */
+  public boolean isClass(int index) {
+    return getTag(index) == CLASS;
+  }
+
+  /**
+   * Returns true iff a constant pool entry is a {@code CONSTANT_String}.
+   *
+   * @param index the index of the entry
+   * @return true iff the entry is a string
+   */
+  public boolean isString(int index) {
+    return getTag(index) == STRING;
+  }
+
+  /**
+   * Returns the descriptor of the type of a loadable numeric constant.
+   *
+   * @param index the index of a constant pool entry
+   * @return "I", "F", "J" or "D", or null if the entry is not a numeric constant
+   */
+  public @Nullable String getNumericType(int index) {
+    switch (getTag(index)) {
+      case INTEGER:
+        return "I";
+      case FLOAT:
+        return "F";
+      case LONG:
+        return "J";
+      case DOUBLE:
+        return "D";
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Returns a UTF-8 constant.
+   *
+   * @param index the index of the entry
+   * @return the string
+   */
+  public String getUtf8(int index) {
+    check(index, UTF8);
+    int offset = offsets[index];
+    int length = buffer.getShort(offset) & 0xFFFF;
+    ByteBuffer bytes = buffer.duplicate();
+    bytes.position(offset + 2);
+    bytes.limit(offset + 2 + length);
+    // Modified UTF-8 only differs from UTF-8 for NUL and supplementary characters, which do not
+    // occur in the names and literals that the extractor compares.
+    return StandardCharsets.UTF_8.decode(bytes).toString();
+  }
+
+  /**
+   * Returns the internal name of a {@code CONSTANT_Class}, such as {@code java/util/List} or
+   * {@code [Ljava/lang/String;}.
+   *
+   * @param index the index of the entry
+   * @return the internal name
+   */
+  public String getClassName(int index) {
+    check(index, CLASS);
+    return getUtf8(buffer.getShort(offsets[index]) & 0xFFFF);
+  }
+
+  /**
+   * Returns the value of a {@code CONSTANT_String}.
+   *
+   * @param index the index of the entry
+   * @return the string
+   */
+  public String getString(int index) {
+    check(index, STRING);
+    return getUtf8(buffer.getShort(offsets[index]) & 0xFFFF);
+  }
+
+  /**
+   * Returns a field, method or interface method reference.
+   *
+   * @param index the index of the entry
+   * @return the reference
+   */
+  public MemberRef getMemberRef(int index) {
+    int tag = getTag(index);
+    if (tag != FIELD_REF && tag != METHOD_REF && tag != INTERFACE_METHOD_REF) {
+      throw new IllegalArgumentException("Not a member reference: " + index);
+    }
+    int offset = offsets[index];
+    String owner = getClassName(buffer.getShort(offset) & 0xFFFF);
+    int nameAndType = buffer.getShort(offset + 2) & 0xFFFF;
+    check(nameAndType, NAME_AND_TYPE);
+    int nameAndTypeOffset = offsets[nameAndType];
+    return new MemberRef(
+        owner,
+        getUtf8(buffer.getShort(nameAndTypeOffset) & 0xFFFF),
+        getUtf8(buffer.getShort(nameAndTypeOffset + 2) & 0xFFFF));
+  }
+
+  /**
+   * Checks the tag of a constant pool entry.
+   *
+   * @param index the index of the entry
+   * @param tag the expected tag
+   * @throws IllegalArgumentException if the entry does not have the tag
+   */
+  private void check(int index, int tag) {
+    if (getTag(index) != tag) {
+      throw new IllegalArgumentException("Constant pool entry " + index + " is not a " + tag);
+    }
+  }
+
+  /** A method that has code. */
+  public static final class Method {
+
+    /** The access flags of the method. */
+    public final int access;
+
+    /** The name of the method. */
+    public final String name;
+
+    /** The descriptor of the method. */
+    public final String descriptor;
+
+    /** The bytecode of the method, from position 0. */
+    public final ByteBuffer code;
+
+    /** The start of each exception handler, as an offset into {@link #code}. */
+    public final int[] handlers;
+
+    Method(int access, String name, String descriptor, ByteBuffer code, int[] handlers) {
+      this.access = access;
+      this.name = name;
+      this.descriptor = descriptor;
+      this.code = code;
+      this.handlers = handlers;
+    }
+
+    /** Returns true iff the method is static. */
+    public boolean isStatic() {
+      return (access & 0x0008) != 0;
+    }
+  }
+
+  /** A reference to a field or method in the constant pool. */
+  public static final class MemberRef {
+
+    /** The internal name of the class that declares the member. */
+    public final String owner;
+
+    /** The name of the member. */
+    public final String name;
+
+    /** The descriptor of the member. */
+    public final String descriptor;
+
+    MemberRef(String owner, String name, String descriptor) {
+      this.owner = owner;
+      this.name = name;
+      this.descriptor = descriptor;
+    }
+  }
+}
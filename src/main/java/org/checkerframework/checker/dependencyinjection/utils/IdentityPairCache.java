@@ -0,0 +1,78 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A bounded cache from pairs of objects, compared by identity, to values. The cache is
+ * direct-mapped: each pair has a single slot, chosen from the identity hash codes of its objects,
+ * and a new entry replaces whatever entry held its slot. Lookups and insertions therefore take
+ * constant time and never allocate, and the memory used never grows.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @param <K> the type of the objects of the pairs
+ * @param <V> the type of the values
+ */
+public class IdentityPairCache<K, V> {
+
+  /** The first object of the pair in each slot, or null if the slot is empty. */
+  private final @Nullable Object[] firsts;
+
+  /** The second object of the pair in each slot. */
+  private final @Nullable Object[] seconds;
+
+  /** The value of the pair in each slot. */
+  private final @Nullable Object[] values;
+
+  /** The length of the arrays minus one. The length is a power of two. */
+  private final int mask;
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param capacity the largest number of entries the cache holds; rounded up to a power of two
+   */
+  public IdentityPairCache(int capacity) {
+    int length = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    this.firsts = new Object[length];
+    this.seconds = new Object[length];
+    this.values = new Object[length];
+    this.mask = length - 1;
+  }
+
+  /**
+   * Returns the value of a pair.
+   *
+   * @param first the first object of the pair
+   * @param second the second object of the pair
+   * @return the value of the pair, or null if it is not in the cache
+   */
+  @SuppressWarnings("unchecked") // only values of type V are stored
+  public @Nullable V get(K first, K second) {
+    int slot = slot(first, second);
+    if (firsts[slot] == first && seconds[slot] == second) {
+      return (V) values[slot];
+    }
+    return null;
+  }
+
+  /**
+   * Sets the value of a pair, evicting the entry that held its slot.
+   *
+   * @param first the first object of the pair
+   * @param second the second object of the pair
+   * @param value the value of the pair
+   */
+  public void put(K first, K second, V value) {
+    int slot = slot(first, second);
+    firsts[slot] = first;
+    seconds[slot] = second;
+    values[slot] = value;
+  }
+
+  /** Returns the slot of a pair. The order of the objects matters. */
+  private int slot(Object first, Object second) {
+    int hash = System.identityHashCode(first) * 31 + System.identityHashCode(second);
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+}
@@ -0,0 +1,132 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import javax.lang.model.element.Element;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A dependency that Guice must be able to satisfy, for example an {@code @Inject} field or a
+ * parameter of an {@code @Inject} constructor.
+ */
+public class InjectionPoint {
+
+  /** The fully-qualified binary name of the class of the dependency. */
+  private final String dependencyName;
+
+  /** The qualifier of the dependency, or null if it has none. */
+  private final @Nullable String qualifier;
+
+  /**
+   * The program element at which an error will be reported if the dependency has no corresponding
+   * binding, or null if the injection point was read from a {@link ResolutionSummary}.
+   */
+  private final @Nullable Element reportingLocation;
+
+  /**
+   * The source position at which an error will be reported, for an injection point read from a
+   * {@link ResolutionSummary}; null otherwise.
+   */
+  private final @Nullable String position;
+
+  /**
+   * True iff the dependency is injected through a {@code Provider} of its class, so that Guice
+   * creates it only when the provider is called.
+   */
+  private final boolean provided;
+
+  /**
+   * Creates an injection point.
+   *
+   * @param dependencyName the fully-qualified binary name of the class of the dependency
+   * @param qualifier the qualifier of the dependency, or null if it has none
+   * @param reportingLocation the program element at which an error will be reported if the
+   *     dependency has no corresponding binding
+   */
+  public InjectionPoint(
+      String dependencyName, @Nullable String qualifier, Element reportingLocation) {
+    this(dependencyName, qualifier, reportingLocation, false);
+  }
+
+  /**
+   * Creates an injection point.
+   *
+   * @param dependencyName the fully-qualified binary name of the class of the dependency
+   * @param qualifier the qualifier of the dependency, or null if it has none
+   * @param reportingLocation the program element at which an error will be reported if the
+   *     dependency has no corresponding binding
+   * @param provided true iff the dependency is injected through a {@code Provider} of its class
+   */
+  public InjectionPoint(
+      String dependencyName,
+      @Nullable String qualifier,
+      Element reportingLocation,
+      boolean provided) {
+    this.dependencyName = dependencyName;
+    this.qualifier = qualifier;
+    this.reportingLocation = reportingLocation;
+    this.position = null;
+    this.provided = provided;
+  }
+
+  /**
+   * Creates an injection point that is only known by name, outside of a compilation.
+   *
+   * @param dependencyName the fully-qualified binary name of the class of the dependency
+   * @param qualifier the qualifier of the dependency, or null if it has none
+   * @param position the source position at which an error will be reported if the dependency has
+   *     no corresponding binding, such as {@code Foo.java:12}
+   * @param provided true iff the dependency is injected through a {@code Provider} of its class
+   */
+  public InjectionPoint(
+      String dependencyName, @Nullable String qualifier, String position, boolean provided) {
+    this.dependencyName = dependencyName;
+    this.qualifier = qualifier;
+    this.reportingLocation = null;
+    this.position = position;
+    this.provided = provided;
+  }
+
+  /** Returns the fully-qualified binary name of the class of the dependency. */
+  public String getDependencyName() {
+    return dependencyName;
+  }
+
+  /** Returns the qualifier of the dependency, or null if it has none. */
+  public @Nullable String getQualifier() {
+    return qualifier;
+  }
+
+  /**
+   * Returns the program element at which an unsatisfied dependency is reported. Every injection
+   * point found in a compilation has one; only those read from a {@link ResolutionSummary} do not.
+   */
+  public Element getReportingLocation() {
+    if (reportingLocation == null) {
+      throw new IllegalStateException("No program element for the injection point at " + position);
+    }
+    return reportingLocation;
+  }
+
+  /**
+   * Returns the source position at which an unsatisfied dependency is reported, or null if the
+   * injection point has a {@link #getReportingLocation() program element} instead.
+   */
+  public @Nullable String getPosition() {
+    return position;
+  }
+
+  /**
+   * Returns true iff the dependency is injected through a {@code Provider}. Guice then creates the
+   * dependency only when the provider is called, so a cycle through a provider is not a cycle.
+   */
+  public boolean isProvided() {
+    return provided;
+  }
+
+  @Override
+  public String toString() {
+    return (qualifier == null ? "" : qualifier + " ")
+        + dependencyName
+        + " at "
+        + (reportingLocation != null ? reportingLocation : position);
+  }
+}
@@ -0,0 +1,215 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Matches the injection points of a frozen {@link BindingRegistry} against its bindings.
+ *
+ * <p>An injection point is resolved if its dependency is bound with its qualifier, and ultimately
+ * satisfied by the {@link LinkedBindingGraph linked bindings}; or if it is unqualified and Guice
+ * can create its class {@link JustInTimeResolver just in time}. The graph is built, and the
+ * classes created just in time are resolved, once, before any matching starts.
+ *
+ * <p>Matching happens once, after every compilation unit has been processed. The injection points
+ * are split into ranges that are matched in parallel on a fork-join pool. Workers only read the
+ * names of the dependencies, the frozen registry, the immutable graph and the memoized results of
+ * just-in-time resolution; they never touch javac's program elements or types, which are not
+ * thread-safe.
+ */
+public class InjectionPointResolver {
+
+  /** The number of injection points below which a range is matched without being split. */
+  private static final int SEQUENTIAL_THRESHOLD = 1024;
+
+  /** The registry whose injection points are matched. */
+  private final BindingRegistry registry;
+
+  /** The pool on which the injection points are matched. */
+  private final ForkJoinPool pool;
+
+  /** The linked bindings of the registry. */
+  private final LinkedBindingGraph linkedBindings;
+
+  /** The classes that Guice creates just in time, already resolved. */
+  private final JustInTimeResolver justInTime;
+
+  /**
+   * Creates a resolver, and resolves the classes that Guice creates just in time for the injection
+   * points. Must be called on the compiler's thread.
+   *
+   * @param registry the registry whose injection points are matched; must be frozen
+   * @param pool the pool on which the injection points are matched
+   * @param justInTimeDependencies returns the dependencies of a class that Guice creates just in
+   *     time, or null if Guice cannot create it; see {@link JustInTimeResolver}
+   */
+  public InjectionPointResolver(
+      BindingRegistry registry,
+      ForkJoinPool pool,
+      Function<String, @Nullable List<InjectionPoint>> justInTimeDependencies) {
+    if (!registry.isFrozen()) {
+      throw new IllegalStateException("The binding registry must be frozen before resolution");
+    }
+    this.registry = registry;
+    this.pool = pool;
+    this.linkedBindings = new LinkedBindingGraph(registry);
+    this.justInTime = new JustInTimeResolver(registry, linkedBindings, justInTimeDependencies);
+    justInTime.resolveAll(registry.getInjectionPoints());
+  }
+
+  /** Returns the linked bindings of the registry. */
+  public LinkedBindingGraph getLinkedBindings() {
+    return linkedBindings;
+  }
+
+  /**
+   * Returns the result of just-in-time resolution for an injection point.
+   *
+   * @param injectionPoint an injection point
+   * @return the result for the class that Guice creates just in time for {@code injectionPoint},
+   *     or null if there is no such class
+   */
+  public JustInTimeResolver.@Nullable Result getJustInTimeResult(InjectionPoint injectionPoint) {
+    String className = justInTime.getJustInTimeClass(injectionPoint);
+    return className == null ? null : justInTime.getResult(className);
+  }
+
+  /**
+   * Returns the injection points that have no corresponding binding.
+   *
+   * @return the injection points that have no corresponding binding, in the order they were added
+   *     to the registry
+   */
+  public List<InjectionPoint> findUnresolved() {
+    InjectionPoint[] injectionPoints = registry.getInjectionPoints().toArray(new InjectionPoint[0]);
+    if (injectionPoints.length <= SEQUENTIAL_THRESHOLD) {
+      return new ResolveTask(injectionPoints, 0, injectionPoints.length).compute();
+    }
+    return pool.invoke(new ResolveTask(injectionPoints, 0, injectionPoints.length));
+  }
+
+  /**
+   * Explains why an injection point has no corresponding binding: its chain of linked bindings is a
+   * cycle, the classes that Guice would create just in time for it depend on each other or on a
+   * dependency without a binding, or nothing satisfies it at all.
+   *
+   * @param unresolved an injection point returned by {@link #findUnresolved}
+   * @return the error to report for {@code unresolved}
+   */
+  public Unresolved explain(InjectionPoint unresolved) {
+    List<String> cycle =
+        linkedBindings.getCycle(unresolved.getDependencyName(), unresolved.getQualifier());
+    JustInTimeResolver.Result justInTime = getJustInTimeResult(unresolved);
+    if (cycle != null) {
+      return new Unresolved("binding.cycle", String.join(" -> ", cycle));
+    } else if (justInTime != null && justInTime.getCycle() != null) {
+      return new Unresolved("dependency.cycle", String.join(" -> ", justInTime.getCycle()));
+    } else if (justInTime != null
+        && !justInTime.getClassName().equals(justInTime.getMissingDependency())) {
+      return new Unresolved(
+          "missing.transitive.dependency",
+          justInTime.getClassName(),
+          justInTime.getMissingDependency());
+    } else {
+      return new Unresolved(
+          "missing.implementation",
+          justInTime != null ? justInTime.getClassName() : unresolved.getDependencyName());
+    }
+  }
+
+  /**
+   * Returns true iff an injection point has a corresponding binding.
+   *
+   * @param injectionPoint an injection point
+   * @return true iff {@code injectionPoint} has a corresponding binding
+   */
+  private boolean isResolved(InjectionPoint injectionPoint) {
+    String dependencyName = injectionPoint.getDependencyName();
+    String qualifier = injectionPoint.getQualifier();
+    if (registry.isBound(dependencyName, qualifier)
+        && !linkedBindings.isSatisfied(dependencyName, qualifier)) {
+      return false;
+    }
+    JustInTimeResolver.Result result = getJustInTimeResult(injectionPoint);
+    if (result != null) {
+      return result.isSatisfiable();
+    }
+    return registry.isBound(dependencyName, qualifier);
+  }
+
+  /** Finds the unresolved injection points within a range. */
+  private class ResolveTask extends RecursiveTask<List<InjectionPoint>> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The injection points. */
+    private final InjectionPoint[] injectionPoints;
+
+    /** The start of the range, inclusive. */
+    private final int from;
+
+    /** The end of the range, exclusive. */
+    private final int to;
+
+    ResolveTask(InjectionPoint[] injectionPoints, int from, int to) {
+      this.injectionPoints = injectionPoints;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected List<InjectionPoint> compute() {
+      if (to - from <= SEQUENTIAL_THRESHOLD) {
+        List<InjectionPoint> unresolved = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+          if (!isResolved(injectionPoints[i])) {
+            unresolved.add(injectionPoints[i]);
+          }
+        }
+        return unresolved;
+      }
+      int middle = (from + to) >>> 1;
+      ResolveTask left = new ResolveTask(injectionPoints, from, middle);
+      left.fork();
+      List<InjectionPoint> unresolved = new ResolveTask(injectionPoints, middle, to).compute();
+      List<InjectionPoint> result = left.join();
+      result.addAll(unresolved);
+      return result;
+    }
+  }
+
+  /** The error to report for an injection point that has no corresponding binding. */
+  public static final class Unresolved {
+
+    /** The key of the message in the checker's messages.properties. */
+    private final String messageKey;
+
+    /** The arguments of the message. */
+    private final Object[] arguments;
+
+    /**
+     * Creates an error.
+     *
+     * @param messageKey the key of the message
+     * @param arguments the arguments of the message
+     */
+    Unresolved(String messageKey, Object... arguments) {
+      this.messageKey = messageKey;
+      this.arguments = arguments;
+    }
+
+    /** Returns the key of the message in the checker's messages.properties. */
+    public String getMessageKey() {
+      return messageKey;
+    }
+
+    /** Returns the arguments of the message. */
+    public Object[] getArguments() {
+      return arguments;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.lang.model.element.ExecutableElement;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The dependencies that Guice injects into instances of a class: the parameters of its
+ * {@code @Inject} constructor, its {@code @Inject} fields, and the parameters of its
+ * {@code @Inject} methods. Members inherited from superclasses belong to the signatures of those
+ * superclasses.
+ *
+ * <p>A signature is computed once per class and shared by every use of the class, so the
+ * annotations and types of its members are only inspected once per compilation. The dependency
+ * names and qualifiers of its injection points are interned.
+ */
+public class InjectionSignature {
+
+  /** The signature of a class without any injection point. */
+  public static final InjectionSignature EMPTY =
+      new InjectionSignature(null, Collections.emptyList(), Collections.emptyList());
+
+  /** The {@code @Inject} constructor of the class, or null if it has none. */
+  private final @Nullable ExecutableElement injectConstructor;
+
+  /** The injection points of the parameters of the {@code @Inject} constructor. */
+  private final List<InjectionPoint> constructorInjectionPoints;
+
+  /** The injection points of the {@code @Inject} fields and methods, in declaration order. */
+  private final List<InjectionPoint> memberInjectionPoints;
+
+  /** The constructor injection points followed by the member injection points. */
+  private final List<InjectionPoint> injectionPoints;
+
+  /**
+   * Creates an injection signature.
+   *
+   * @param injectConstructor the {@code @Inject} constructor of the class, or null if it has none
+   * @param constructorInjectionPoints the injection points of the parameters of {@code
+   *     injectConstructor}
+   * @param memberInjectionPoints the injection points of the {@code @Inject} fields and methods of
+   *     the class, in declaration order
+   */
+  public InjectionSignature(
+      @Nullable ExecutableElement injectConstructor,
+      List<InjectionPoint> constructorInjectionPoints,
+      List<InjectionPoint> memberInjectionPoints) {
+    this.injectConstructor = injectConstructor;
+    this.constructorInjectionPoints = Collections.unmodifiableList(constructorInjectionPoints);
+    this.memberInjectionPoints = Collections.unmodifiableList(memberInjectionPoints);
+    List<InjectionPoint> all =
+        new ArrayList<>(constructorInjectionPoints.size() + memberInjectionPoints.size());
+    all.addAll(constructorInjectionPoints);
+    all.addAll(memberInjectionPoints);
+    this.injectionPoints = Collections.unmodifiableList(all);
+  }
+
+  /** Returns the {@code @Inject} constructor of the class, or null if it has none. */
+  public @Nullable ExecutableElement getInjectConstructor() {
+    return injectConstructor;
+  }
+
+  /** Returns the injection points of the parameters of the {@code @Inject} constructor. */
+  public List<InjectionPoint> getConstructorInjectionPoints() {
+    return constructorInjectionPoints;
+  }
+
+  /**
+   * Returns the injection points of the {@code @Inject} fields and methods, which subclasses
+   * inherit.
+   */
+  public List<InjectionPoint> getMemberInjectionPoints() {
+    return memberInjectionPoints;
+  }
+
+  /** Returns every injection point of the class: its constructor's, then its members'. */
+  public List<InjectionPoint> getInjectionPoints() {
+    return injectionPoints;
+  }
+}
@@ -0,0 +1,229 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Decides whether Guice can create the classes it would create <a
+ * href="https://github.com/google/guice/wiki/JustInTimeBindings">just in time</a>: unbound
+ * dependencies without a qualifier, and unbound targets of linked bindings.
+ *
+ * <p>Guice creates such a class by calling its {@code @Inject} constructor, or its no-argument
+ * constructor, and then injecting its {@code @Inject} fields and methods, so the class is
+ * satisfiable only if each of those dependencies is. Each class is resolved once per compilation,
+ * and the result is memoized, so a class that is reachable along many paths of a deep object graph
+ * is still explored only once. Resolution stops at the first dependency that is missing, or that
+ * leads back to a class being resolved.
+ *
+ * <p>Which dependencies a class has is found by a function that inspects javac's program elements,
+ * which are not thread-safe. Resolution must therefore happen on the compiler's thread, by {@link
+ * #resolveAll}, before the results are read from other threads with {@link #getResult}.
+ */
+public class JustInTimeResolver {
+
+  /** The registry whose bindings satisfy the dependencies. */
+  private final BindingRegistry registry;
+
+  /** The linked bindings of the registry. */
+  private final LinkedBindingGraph linkedBindings;
+
+  /**
+   * Returns the dependencies of a class that Guice creates just in time, or null if Guice cannot
+   * create the class, for example because it is abstract or has no suitable constructor.
+   */
+  private final Function<String, @Nullable List<InjectionPoint>> dependencies;
+
+  /** The result for each class resolved so far. */
+  private final Map<String, Result> results = new HashMap<>();
+
+  /** The classes being resolved, outermost first. */
+  private final List<String> inProgress = new ArrayList<>();
+
+  /**
+   * Creates a resolver.
+   *
+   * @param registry the registry whose bindings satisfy the dependencies; must be frozen
+   * @param linkedBindings the linked bindings of {@code registry}
+   * @param dependencies returns the dependencies of a class that Guice creates just in time, given
+   *     its binary name, or null if Guice cannot create the class
+   */
+  public JustInTimeResolver(
+      BindingRegistry registry,
+      LinkedBindingGraph linkedBindings,
+      Function<String, @Nullable List<InjectionPoint>> dependencies) {
+    this.registry = registry;
+    this.linkedBindings = linkedBindings;
+    this.dependencies = dependencies;
+  }
+
+  /**
+   * Returns the class that Guice creates just in time to satisfy an injection point.
+   *
+   * @param injectionPoint an injection point
+   * @return the class that Guice creates just in time for {@code injectionPoint}, or null if it is
+   *     satisfied by a binding, or if it has a qualifier but no binding
+   */
+  public @Nullable String getJustInTimeClass(InjectionPoint injectionPoint) {
+    String dependencyName = injectionPoint.getDependencyName();
+    String qualifier = injectionPoint.getQualifier();
+    if (registry.isBound(dependencyName, qualifier)) {
+      return linkedBindings.getJustInTimeTarget(dependencyName, qualifier);
+    }
+    return qualifier == null ? dependencyName : null;
+  }
+
+  /**
+   * Resolves the class that Guice creates just in time for each of the given injection points.
+   * Must be called on the compiler's thread.
+   *
+   * @param injectionPoints the injection points
+   */
+  public void resolveAll(Collection<InjectionPoint> injectionPoints) {
+    for (InjectionPoint injectionPoint : injectionPoints) {
+      String className = getJustInTimeClass(injectionPoint);
+      if (className != null) {
+        resolve(className);
+      }
+    }
+  }
+
+  /**
+   * Returns the memoized result for a class.
+   *
+   * @param className the binary name of a class
+   * @return the result for {@code className}, or null if it has not been resolved
+   */
+  public @Nullable Result getResult(String className) {
+    return results.get(className);
+  }
+
+  /**
+   * Resolves a class that Guice creates just in time.
+   *
+   * @param className the binary name of the class
+   * @return whether Guice can create the class
+   */
+  private Result resolve(String className) {
+    Result result = results.get(className);
+    if (result != null) {
+      return result;
+    }
+    int index = inProgress.indexOf(className);
+    if (index >= 0) {
+      // The class depends on itself. The result is not memoized here, but every class on the
+      // cycle ends up cyclic once the recursion unwinds.
+      List<String> cycle = new ArrayList<>(inProgress.subList(index, inProgress.size()));
+      cycle.add(className);
+      return Result.cyclic(className, cycle);
+    }
+
+    List<InjectionPoint> classDependencies = dependencies.apply(className);
+    if (classDependencies == null) {
+      result = Result.missing(className, className);
+    } else {
+      inProgress.add(className);
+      result = Result.satisfiable(className);
+      for (InjectionPoint dependency : classDependencies) {
+        Result dependencyResult = resolveDependency(dependency);
+        if (!dependencyResult.isSatisfiable()) {
+          result = dependencyResult.causing(className);
+          break;
+        }
+      }
+      inProgress.remove(inProgress.size() - 1);
+    }
+    results.put(className, result);
+    return result;
+  }
+
+  /**
+   * Resolves a dependency of a class that Guice creates just in time.
+   *
+   * @param dependency the dependency
+   * @return whether Guice can satisfy the dependency; its class is the class of the dependency
+   */
+  private Result resolveDependency(InjectionPoint dependency) {
+    String dependencyName = dependency.getDependencyName();
+    String qualifier = dependency.getQualifier();
+    if (registry.isBound(dependencyName, qualifier)) {
+      List<String> cycle = linkedBindings.getCycle(dependencyName, qualifier);
+      if (cycle != null) {
+        return Result.cyclic(dependencyName, cycle);
+      }
+      String target = linkedBindings.getJustInTimeTarget(dependencyName, qualifier);
+      return target == null ? Result.satisfiable(dependencyName) : resolve(target);
+    }
+    if (qualifier == null) {
+      return resolve(dependencyName);
+    }
+    return Result.missing(dependencyName, qualifier + " " + dependencyName);
+  }
+
+  /** Whether Guice can create a class just in time, and if not, why. */
+  public static final class Result {
+
+    /** The binary name of the class. */
+    private final String className;
+
+    /** The dependency that no binding satisfies, or null. */
+    private final @Nullable String missingDependency;
+
+    /** The cycle that the class depends on, or null. */
+    private final @Nullable List<String> cycle;
+
+    private Result(
+        String className, @Nullable String missingDependency, @Nullable List<String> cycle) {
+      this.className = className;
+      this.missingDependency = missingDependency;
+      this.cycle = cycle;
+    }
+
+    /** Returns the result for a class that Guice can create. */
+    static Result satisfiable(String className) {
+      return new Result(className, null, null);
+    }
+
+    /** Returns the result for a class that depends on a dependency that no binding satisfies. */
+    static Result missing(String className, String missingDependency) {
+      return new Result(className, missingDependency, null);
+    }
+
+    /** Returns the result for a class that depends on a cycle. */
+    static Result cyclic(String className, List<String> cycle) {
+      return new Result(className, null, cycle);
+    }
+
+    /** Returns this result, for a class that depends on the class of this result. */
+    Result causing(String dependentClassName) {
+      return new Result(dependentClassName, missingDependency, cycle);
+    }
+
+    /** Returns the binary name of the class. */
+    public String getClassName() {
+      return className;
+    }
+
+    /** Returns true iff Guice can create the class. */
+    public boolean isSatisfiable() {
+      return missingDependency == null && cycle == null;
+    }
+
+    /**
+     * Returns the dependency that no binding satisfies, which is the class itself if Guice cannot
+     * create it, or null if there is none.
+     */
+    public @Nullable String getMissingDependency() {
+      return missingDependency;
+    }
+
+    /** Returns the cycle that the class depends on, or null if there is none. */
+    public @Nullable List<String> getCycle() {
+      return cycle;
+    }
+  }
+}
@@ -0,0 +1,263 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The <a href="https://github.com/google/guice/wiki/LinkedBindings">linked bindings</a> of a
+ * frozen {@link BindingRegistry}, resolved to whether each class is ultimately satisfied.
+ *
+ * <p>Every bound (class, qualifier) key, and every class that is the target of a linked binding,
+ * gets a dense integer ID. The chains {@code A -> B -> C} of linked bindings are then followed
+ * once, for all keys at the same time, and the result is kept in bitsets indexed by ID. This makes
+ * "is {@code A} ultimately satisfied?" a hash lookup and a bit test, however long its chain is.
+ * Cycles are detected in the same pass.
+ *
+ * <p>A key is satisfied if it is bound and its binding is not linked, as for instance and
+ * provider bindings; if it is the target of a linked binding without being bound itself, since
+ * Guice then creates it just in time; or if it is linked to a satisfied key. A key on a cycle, or
+ * linked to a key on a cycle, is not satisfied. The target of a linked binding is always
+ * unqualified. Whether a class that Guice creates just in time can actually be created is left to
+ * {@link JustInTimeResolver}; {@link #getJustInTimeTarget} names that class for each key.
+ *
+ * <p>The graph is immutable once built, so it can be queried from several threads.
+ */
+public class LinkedBindingGraph {
+
+  /** Marks a node that is not the source of a linked binding in {@link #links}, or no node. */
+  private static final int NO_LINK = -1;
+
+  /** The IDs of the classes in the graph. */
+  private final NameTable classes = new NameTable();
+
+  /** The IDs of the qualifiers in the graph; the empty string stands for the absent qualifier. */
+  private final NameTable qualifiers = new NameTable();
+
+  /** The node ID of each key, packed as {@code (classId << 32) | qualifierId}. */
+  private final LongIntHashMap nodes = new LongIntHashMap(64);
+
+  /** The class of each node, indexed by node ID. */
+  private final List<String> nodeClasses = new ArrayList<>();
+
+  /** The qualifier of each node, indexed by node ID. */
+  private final List<@Nullable String> nodeQualifiers = new ArrayList<>();
+
+  /** The ID of the target of the linked binding of each node, or {@link #NO_LINK}. */
+  private final int[] links;
+
+  /** The nodes that are ultimately satisfied. */
+  private final BitSet satisfied;
+
+  /** The nodes that are on a cycle of linked bindings, or linked to such a node. */
+  private final BitSet cyclic;
+
+  /** The nodes that are bound, in this compilation or in a library. */
+  private final BitSet bound;
+
+  /**
+   * The ID of the unbound node at the end of the chain of linked bindings of each node, or {@link
+   * #NO_LINK} if the chain ends in a bound node or in a cycle.
+   */
+  private final int[] justInTimeTargets;
+
+  /**
+   * Creates the graph of the linked bindings of a registry.
+   *
+   * @param registry a frozen registry
+   */
+  public LinkedBindingGraph(BindingRegistry registry) {
+    qualifiers.intern("");
+    List<Integer> linkList = new ArrayList<>();
+
+    // Assign IDs to every bound key, then follow the linked bindings to the classes they target,
+    // which may be bound by a library rather than by this compilation.
+    registry.forEachBinding(
+        (boundClass, qualifier, target, linked) -> nodeOf(boundClass, qualifier, linkList));
+    for (InjectionPoint injectionPoint : registry.getInjectionPoints()) {
+      String dependencyName = injectionPoint.getDependencyName();
+      String qualifier = injectionPoint.getQualifier();
+      if (registry.isBound(dependencyName, qualifier)) {
+        nodeOf(dependencyName, qualifier, linkList);
+      }
+    }
+    for (int id = 0; id < nodeClasses.size(); id++) {
+      String boundClass = nodeClasses.get(id);
+      String qualifier = nodeQualifiers.get(id);
+      if (registry.isLinked(boundClass, qualifier)) {
+        String target = registry.getTarget(boundClass, qualifier);
+        if (target != null) {
+          linkList.set(id, nodeOf(target, null, linkList));
+        }
+      }
+    }
+
+    this.links = new int[nodeClasses.size()];
+    this.bound = new BitSet(links.length);
+    for (int id = 0; id < links.length; id++) {
+      links[id] = linkList.get(id);
+      bound.set(id, registry.isBound(nodeClasses.get(id), nodeQualifiers.get(id)));
+    }
+    this.satisfied = new BitSet(links.length);
+    this.cyclic = new BitSet(links.length);
+    this.justInTimeTargets = new int[links.length];
+    close();
+  }
+
+  /**
+   * Returns the node ID of a key, assigning a new one if it has none.
+   *
+   * @param className the name of a class
+   * @param qualifier a qualifier, or null
+   * @param linkList the targets of linked bindings, extended for a new ID
+   * @return the node ID of the key
+   */
+  private int nodeOf(String className, @Nullable String qualifier, List<Integer> linkList) {
+    long key =
+        pack(classes.intern(className), qualifiers.intern(qualifier == null ? "" : qualifier));
+    int id = nodes.get(key, NO_LINK);
+    if (id == NO_LINK) {
+      id = nodeClasses.size();
+      nodes.put(key, id);
+      nodeClasses.add(className);
+      nodeQualifiers.add(qualifier);
+      linkList.add(NO_LINK);
+    }
+    return id;
+  }
+
+  /**
+   * Returns the node ID of a key, without assigning one.
+   *
+   * @param className the name of a class
+   * @param qualifier a qualifier, or null
+   * @return the node ID of the key, or {@link #NO_LINK} if it has none
+   */
+  private int lookup(String className, @Nullable String qualifier) {
+    int classId = classes.lookup(className);
+    int qualifierId = qualifiers.lookup(qualifier == null ? "" : qualifier);
+    if (classId == NameTable.NO_ID || qualifierId == NameTable.NO_ID) {
+      return NO_LINK;
+    }
+    return nodes.get(pack(classId, qualifierId), NO_LINK);
+  }
+
+  /** Packs a class ID and a qualifier ID into a key of {@link #nodes}. */
+  private static long pack(int classId, int qualifierId) {
+    return ((long) classId << 32) | qualifierId;
+  }
+
+  /**
+   * Follows every chain of linked bindings, setting {@link #satisfied}, {@link #cyclic} and {@link
+   * #justInTimeTargets}.
+   *
+   * <p>Each node has at most one outgoing link, so every node on a chain has the same result as the
+   * end of the chain. The chains are walked iteratively, and each node is resolved exactly once: a
+   * walk stops at the first node that is already resolved, or at a node already on the walk, which
+   * closes a cycle.
+   */
+  private void close() {
+    BitSet resolved = new BitSet(links.length);
+    BitSet onPath = new BitSet(links.length);
+    int[] path = new int[links.length];
+    for (int start = 0; start < links.length; start++) {
+      if (resolved.get(start)) {
+        continue;
+      }
+      int length = 0;
+      int current = start;
+      while (current != NO_LINK && !resolved.get(current) && !onPath.get(current)) {
+        onPath.set(current);
+        path[length++] = current;
+        current = links[current];
+      }
+
+      boolean isSatisfied;
+      boolean isCyclic;
+      int justInTimeTarget;
+      if (current == NO_LINK) {
+        // The chain ends in a key that is satisfied directly, or created just in time.
+        isSatisfied = true;
+        isCyclic = false;
+        int last = path[length - 1];
+        justInTimeTarget = bound.get(last) ? NO_LINK : last;
+      } else if (resolved.get(current)) {
+        isSatisfied = satisfied.get(current);
+        isCyclic = cyclic.get(current);
+        justInTimeTarget = justInTimeTargets[current];
+      } else {
+        // current is on the walk, so the walk from current onwards is a cycle.
+        isSatisfied = false;
+        isCyclic = true;
+        justInTimeTarget = NO_LINK;
+      }
+      for (int i = 0; i < length; i++) {
+        int id = path[i];
+        satisfied.set(id, isSatisfied);
+        cyclic.set(id, isCyclic);
+        justInTimeTargets[id] = justInTimeTarget;
+        resolved.set(id);
+        onPath.clear(id);
+      }
+    }
+  }
+
+  /**
+   * Returns true iff a key is ultimately satisfied by its bindings.
+   *
+   * @param className the fully-qualified binary name of a class
+   * @param qualifier a qualifier, or null
+   * @return true iff the chain of linked bindings of the key ends in a satisfied key; false if its
+   *     chain leads into a cycle, or if it is neither bound nor the target of a link
+   */
+  public boolean isSatisfied(String className, @Nullable String qualifier) {
+    int id = lookup(className, qualifier);
+    return id != NO_LINK && satisfied.get(id);
+  }
+
+  /**
+   * Returns the class that Guice creates just in time to satisfy a key: the unbound class at the
+   * end of its chain of linked bindings.
+   *
+   * @param className the fully-qualified binary name of a class
+   * @param qualifier a qualifier, or null
+   * @return the unbound class at the end of the chain of the key, or null if the chain ends in a
+   *     bound key or in a cycle, or if the key is not in the graph
+   */
+  public @Nullable String getJustInTimeTarget(String className, @Nullable String qualifier) {
+    int id = lookup(className, qualifier);
+    if (id == NO_LINK || justInTimeTargets[id] == NO_LINK) {
+      return null;
+    }
+    return nodeClasses.get(justInTimeTargets[id]);
+  }
+
+  /**
+   * Returns the cycle of linked bindings that a key leads into, if any.
+   *
+   * @param className the fully-qualified binary name of a class
+   * @param qualifier a qualifier, or null
+   * @return the classes on the cycle, starting and ending with the same class, or null if the key
+   *     does not lead into a cycle
+   */
+  public @Nullable List<String> getCycle(String className, @Nullable String qualifier) {
+    int id = lookup(className, qualifier);
+    if (id == NO_LINK || !cyclic.get(id)) {
+      return null;
+    }
+    // After as many links as there are nodes, the walk is on the cycle.
+    int onCycle = id;
+    for (int i = 0; i < links.length; i++) {
+      onCycle = links[onCycle];
+    }
+    List<String> cycle = new ArrayList<>();
+    int current = onCycle;
+    do {
+      cycle.add(nodeClasses.get(current));
+      current = links[current];
+    } while (current != onCycle);
+    cycle.add(nodeClasses.get(onCycle));
+    return cycle;
+  }
+}
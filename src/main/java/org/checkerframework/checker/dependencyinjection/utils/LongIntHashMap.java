@@ -0,0 +1,153 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from non-negative {@code long} keys to {@code int} values, with open addressing and
+ * linear probing. Keys and values are held in two flat arrays, without boxing or entry objects.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class LongIntHashMap {
+
+  /** Marks an empty slot in {@link #keys}; keys must be non-negative. */
+  private static final long EMPTY = -1L;
+
+  /** The largest fraction of slots that are used before the table grows. */
+  private static final double MAX_LOAD = 0.5;
+
+  /** The keys, or {@link #EMPTY}. The length is a power of two. */
+  private long[] keys;
+
+  /** The value of the key in the same slot of {@link #keys}. */
+  private int[] values;
+
+  /** The number of keys in the map. */
+  private int size = 0;
+
+  /**
+   * Creates an empty map.
+   *
+   * @param expectedSize the number of keys the map is expected to hold without growing
+   */
+  public LongIntHashMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / MAX_LOAD)) - 1) << 1;
+    this.keys = new long[capacity];
+    this.values = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+  }
+
+  /**
+   * Returns the value of a key.
+   *
+   * @param key a non-negative key
+   * @param missing the value to return if the map has no entry for {@code key}
+   * @return the value of {@code key}, or {@code missing}
+   */
+  public int get(long key, int missing) {
+    int slot = find(keys, key);
+    return keys[slot] == EMPTY ? missing : values[slot];
+  }
+
+  /**
+   * Returns true iff the map has an entry for a key.
+   *
+   * @param key a non-negative key
+   * @return true iff the map has an entry for {@code key}
+   */
+  public boolean containsKey(long key) {
+    return keys[find(keys, key)] != EMPTY;
+  }
+
+  /**
+   * Sets the value of a key.
+   *
+   * @param key a non-negative key
+   * @param value the new value of {@code key}
+   */
+  public void put(long key, int value) {
+    if (key < 0) {
+      throw new IllegalArgumentException("Negative key " + key);
+    }
+    int slot = find(keys, key);
+    if (keys[slot] == EMPTY) {
+      if (size + 1 > keys.length * MAX_LOAD) {
+        grow();
+        slot = find(keys, key);
+      }
+      keys[slot] = key;
+      size++;
+    }
+    values[slot] = value;
+  }
+
+  /** Returns the number of keys in the map. */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Calls a function on every entry of the map, in no particular order.
+   *
+   * @param consumer the function to call
+   */
+  public void forEach(EntryConsumer consumer) {
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] != EMPTY) {
+        consumer.accept(keys[slot], values[slot]);
+      }
+    }
+  }
+
+  /** Doubles the number of slots. */
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new long[oldKeys.length * 2];
+    values = new int[oldKeys.length * 2];
+    Arrays.fill(keys, EMPTY);
+    for (int slot = 0; slot < oldKeys.length; slot++) {
+      if (oldKeys[slot] != EMPTY) {
+        int newSlot = find(keys, oldKeys[slot]);
+        keys[newSlot] = oldKeys[slot];
+        values[newSlot] = oldValues[slot];
+      }
+    }
+  }
+
+  /**
+   * Returns the slot of a key, or the empty slot where it would be inserted.
+   *
+   * @param keys the table to search
+   * @param key a non-negative key
+   * @return the slot of {@code key} in {@code keys}
+   */
+  private static int find(long[] keys, long key) {
+    int mask = keys.length - 1;
+    int slot = hash(key) & mask;
+    while (keys[slot] != EMPTY && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /** Mixes the bits of a key, so that keys that differ only in their high bits are spread out. */
+  private static int hash(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+
+  /** A function on the entries of a {@link LongIntHashMap}. */
+  public interface EntryConsumer {
+
+    /**
+     * Processes an entry.
+     *
+     * @param key the key of the entry
+     * @param value the value of the entry
+     */
+    void accept(long key, int value);
+  }
+}
@@ -0,0 +1,66 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns names, giving each distinct name a dense integer ID in the order the names were first
+ * seen.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class NameTable {
+
+  /** Returned by {@link #lookup} for a name without an ID. */
+  public static final int NO_ID = -1;
+
+  /** The ID of each name. */
+  private final Map<String, Integer> ids = new HashMap<>();
+
+  /** The name of each ID. */
+  private final List<String> names = new ArrayList<>();
+
+  /**
+   * Returns the ID of a name, assigning a new one if it has none.
+   *
+   * @param name a name
+   * @return the ID of {@code name}
+   */
+  public int intern(String name) {
+    Integer id = ids.get(name);
+    if (id == null) {
+      id = names.size();
+      ids.put(name, id);
+      names.add(name);
+    }
+    return id;
+  }
+
+  /**
+   * Returns the ID of a name, without assigning one.
+   *
+   * @param name a name
+   * @return the ID of {@code name}, or {@link #NO_ID} if it has none
+   */
+  public int lookup(String name) {
+    Integer id = ids.get(name);
+    return id == null ? NO_ID : id;
+  }
+
+  /**
+   * Returns the name of an ID.
+   *
+   * @param id an ID returned by {@link #intern}
+   * @return the name of {@code id}
+   */
+  public String get(int id) {
+    return names.get(id);
+  }
+
+  /** Returns the number of names in this table. */
+  public int size() {
+    return names.size();
+  }
+}
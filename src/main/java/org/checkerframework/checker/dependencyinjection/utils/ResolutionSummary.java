@@ -0,0 +1,324 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javax.lang.model.element.Element;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Everything needed to resolve the injection points of a compilation after it is over, without
+ * javac: its bindings, its injection points with the source positions at which they are reported,
+ * and the dependencies of every class that Guice may have to create just in time for them.
+ *
+ * <p>A compilation run with {@code -AdiDeferResolution=<file>} writes its summary instead of
+ * resolving its injection points. The summaries of several compilations, such as the shards of a
+ * {@link org.checkerframework.checker.dependencyinjection.sharded.ShardedChecker} run, are then
+ * {@link #addTo added} to one registry, whose injection points are resolved once, against the
+ * bindings of all of them.
+ *
+ * <p>The format is:
+ *
+ * <pre>
+ * int magic, int version
+ * int count, count * (string bound, [string qualifier], [string target], boolean linked)
+ * int count, count * injection point
+ * int count, count * (string class, boolean creatable, [int count, count * injection point])
+ * </pre>
+ *
+ * where an injection point is {@code string dependency, [string qualifier], string position,
+ * boolean provided}, a string is written by {@link DataOutput#writeUTF}, and a bracketed value
+ * that may be absent is preceded by a boolean that is true iff it is present.
+ */
+public class ResolutionSummary {
+
+  /** The first four bytes of a summary: "DIRS". */
+  private static final int MAGIC = 0x44495253;
+
+  /** The version of the summary format. */
+  private static final int VERSION = 1;
+
+  /** The bindings, each passed to {@link #addTo} as a bound class, qualifier, target and flag. */
+  private final List<Binding> bindings;
+
+  /** The injection points, each with a source position. */
+  private final List<InjectionPoint> injectionPoints;
+
+  /**
+   * The dependencies that Guice must satisfy to create a class just in time, keyed by the raw name
+   * of the class; null for a class that Guice cannot create.
+   */
+  private final Map<String, @Nullable List<InjectionPoint>> justInTimeDependencies;
+
+  /**
+   * Creates a summary.
+   *
+   * @param bindings the bindings
+   * @param injectionPoints the injection points, each with a source position
+   * @param justInTimeDependencies the dependencies of the classes that Guice may create just in
+   *     time, keyed by raw name
+   */
+  private ResolutionSummary(
+      List<Binding> bindings,
+      List<InjectionPoint> injectionPoints,
+      Map<String, @Nullable List<InjectionPoint>> justInTimeDependencies) {
+    this.bindings = bindings;
+    this.injectionPoints = injectionPoints;
+    this.justInTimeDependencies = justInTimeDependencies;
+  }
+
+  /**
+   * Summarizes the bindings and injection points of a compilation. Must be called on the
+   * compiler's thread, once every compilation unit has been processed.
+   *
+   * @param registry the registry of the compilation
+   * @param justInTimeDependencies returns the dependencies of a class that Guice creates just in
+   *     time, or null if Guice cannot create it; see {@link JustInTimeResolver}
+   * @param positions returns the source position of a program element
+   * @return the summary of the compilation
+   */
+  public static ResolutionSummary of(
+      BindingRegistry registry,
+      Function<String, @Nullable List<InjectionPoint>> justInTimeDependencies,
+      Function<Element, String> positions) {
+    List<Binding> bindings = new ArrayList<>();
+    Deque<String> pending = new ArrayDeque<>();
+    registry.forEachBinding(
+        (boundClass, qualifier, target, linked) -> {
+          bindings.add(new Binding(boundClass, qualifier, target, linked));
+          if (target != null) {
+            pending.add(target);
+          }
+        });
+    List<InjectionPoint> injectionPoints = new ArrayList<>();
+    for (InjectionPoint injectionPoint : registry.getInjectionPoints()) {
+      injectionPoints.add(withPosition(injectionPoint, positions));
+      pending.add(injectionPoint.getDependencyName());
+    }
+
+    // Any class that an injection point or a binding names may be created just in time, and so
+    // may any class that one of those depends on in turn.
+    Map<String, @Nullable List<InjectionPoint>> classes = new LinkedHashMap<>();
+    while (!pending.isEmpty()) {
+      String className = TypeKey.rawName(pending.remove());
+      if (classes.containsKey(className)) {
+        continue;
+      }
+      List<InjectionPoint> dependencies = justInTimeDependencies.apply(className);
+      if (dependencies == null) {
+        classes.put(className, null);
+        continue;
+      }
+      List<InjectionPoint> summarized = new ArrayList<>(dependencies.size());
+      for (InjectionPoint dependency : dependencies) {
+        summarized.add(withPosition(dependency, positions));
+        pending.add(dependency.getDependencyName());
+      }
+      classes.put(className, summarized);
+    }
+    return new ResolutionSummary(bindings, injectionPoints, classes);
+  }
+
+  /**
+   * Returns an injection point that is reported at the source position of another.
+   *
+   * @param injectionPoint an injection point with a program element
+   * @param positions returns the source position of a program element
+   * @return an injection point with the name and qualifier of {@code injectionPoint}, reported at
+   *     the position of its program element
+   */
+  private static InjectionPoint withPosition(
+      InjectionPoint injectionPoint, Function<Element, String> positions) {
+    return new InjectionPoint(
+        injectionPoint.getDependencyName(),
+        injectionPoint.getQualifier(),
+        positions.apply(injectionPoint.getReportingLocation()),
+        injectionPoint.isProvided());
+  }
+
+  /**
+   * Adds the bindings and injection points of this summary to a registry.
+   *
+   * @param registry the registry to update
+   */
+  public void addTo(BindingRegistry registry) {
+    for (Binding binding : bindings) {
+      if (binding.target == null) {
+        registry.addBoundClass(binding.boundClass);
+      } else {
+        registry.putBinding(binding.boundClass, binding.qualifier, binding.target, binding.linked);
+      }
+    }
+    for (InjectionPoint injectionPoint : injectionPoints) {
+      registry.addInjectionPoint(injectionPoint);
+    }
+  }
+
+  /**
+   * Returns the dependencies of the classes that Guice may create just in time, as recorded by
+   * several summaries. A class that one summary records as creatable is creatable, even if another
+   * summary, of a compilation that could not see its declaration, does not.
+   *
+   * @param summaries the summaries
+   * @return a function that returns the dependencies of a class that Guice creates just in time, or
+   *     null if Guice cannot create it
+   */
+  public static Function<String, @Nullable List<InjectionPoint>> justInTimeDependencies(
+      List<ResolutionSummary> summaries) {
+    Map<String, List<InjectionPoint>> classes = new HashMap<>();
+    for (ResolutionSummary summary : summaries) {
+      for (Map.Entry<String, @Nullable List<InjectionPoint>> entry :
+          summary.justInTimeDependencies.entrySet()) {
+        if (entry.getValue() != null) {
+          classes.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+    // Guice creates a parameterized class just in time like its erasure.
+    return className -> classes.get(TypeKey.rawName(className));
+  }
+
+  /**
+   * Writes this summary.
+   *
+   * @param stream the stream to write to
+   * @throws IOException if writing fails
+   */
+  public void write(OutputStream stream) throws IOException {
+    DataOutputStream out = new DataOutputStream(stream);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(bindings.size());
+    for (Binding binding : bindings) {
+      out.writeUTF(binding.boundClass);
+      writeNullableUTF(out, binding.qualifier);
+      writeNullableUTF(out, binding.target);
+      out.writeBoolean(binding.linked);
+    }
+    writeInjectionPoints(out, injectionPoints);
+    out.writeInt(justInTimeDependencies.size());
+    for (Map.Entry<String, @Nullable List<InjectionPoint>> entry :
+        justInTimeDependencies.entrySet()) {
+      out.writeUTF(entry.getKey());
+      List<InjectionPoint> dependencies = entry.getValue();
+      out.writeBoolean(dependencies != null);
+      if (dependencies != null) {
+        writeInjectionPoints(out, dependencies);
+      }
+    }
+    out.flush();
+  }
+
+  /**
+   * Reads a summary written by {@link #write}.
+   *
+   * @param file the file to read
+   * @return the summary
+   * @throws IOException if the file cannot be read or is not a summary of this version
+   */
+  public static ResolutionSummary read(Path file) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Not a resolution summary of version " + VERSION + ": " + file);
+      }
+      int bindingCount = readCount(in);
+      List<Binding> bindings = new ArrayList<>(bindingCount);
+      for (int i = 0; i < bindingCount; i++) {
+        bindings.add(
+            new Binding(in.readUTF(), readNullableUTF(in), readNullableUTF(in), in.readBoolean()));
+      }
+      List<InjectionPoint> injectionPoints = readInjectionPoints(in);
+      int classCount = readCount(in);
+      Map<String, @Nullable List<InjectionPoint>> classes = new LinkedHashMap<>();
+      for (int i = 0; i < classCount; i++) {
+        String className = in.readUTF();
+        classes.put(className, in.readBoolean() ? readInjectionPoints(in) : null);
+      }
+      return new ResolutionSummary(bindings, injectionPoints, classes);
+    }
+  }
+
+  /** Writes injection points that have source positions. */
+  private static void writeInjectionPoints(DataOutput out, List<InjectionPoint> injectionPoints)
+      throws IOException {
+    out.writeInt(injectionPoints.size());
+    for (InjectionPoint injectionPoint : injectionPoints) {
+      out.writeUTF(injectionPoint.getDependencyName());
+      writeNullableUTF(out, injectionPoint.getQualifier());
+      out.writeUTF(String.valueOf(injectionPoint.getPosition()));
+      out.writeBoolean(injectionPoint.isProvided());
+    }
+  }
+
+  /** Reads injection points written by {@link #writeInjectionPoints}. */
+  private static List<InjectionPoint> readInjectionPoints(DataInput in) throws IOException {
+    int count = readCount(in);
+    List<InjectionPoint> injectionPoints = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      injectionPoints.add(
+          new InjectionPoint(in.readUTF(), readNullableUTF(in), in.readUTF(), in.readBoolean()));
+    }
+    return injectionPoints;
+  }
+
+  /** Reads the number of elements that follow. */
+  private static int readCount(DataInput in) throws IOException {
+    int count = in.readInt();
+    if (count < 0) {
+      throw new IOException("Malformed resolution summary");
+    }
+    return count;
+  }
+
+  /** Writes a string that may be null. */
+  private static void writeNullableUTF(DataOutput out, @Nullable String s) throws IOException {
+    out.writeBoolean(s != null);
+    if (s != null) {
+      out.writeUTF(s);
+    }
+  }
+
+  /** Reads a string written by {@link #writeNullableUTF}. */
+  private static @Nullable String readNullableUTF(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  /** A binding of the compilation. */
+  private static final class Binding {
+
+    /** The fully-qualified binary name of the bound class. */
+    final String boundClass;
+
+    /** The qualifier of the binding, or null if it has none. */
+    final @Nullable String qualifier;
+
+    /** The target of the binding, or null if it is not known. */
+    final @Nullable String target;
+
+    /** True iff the binding is a linked binding. */
+    final boolean linked;
+
+    Binding(
+        String boundClass, @Nullable String qualifier, @Nullable String target, boolean linked) {
+      this.boundClass = boundClass;
+      this.qualifier = qualifier;
+      this.target = target;
+      this.linked = linked;
+    }
+  }
+}
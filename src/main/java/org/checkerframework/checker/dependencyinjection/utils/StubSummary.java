@@ -0,0 +1,511 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * The declaration annotations of the methods and constructors of a stub file, precompiled so that
+ * the checker applies them at startup without parsing the stub file. The build compiles {@code
+ * Guice.astub} into a summary with {@link #main}, and the type factory adds the annotations of the
+ * summary to the declaration annotations of the matching methods.
+ *
+ * <p>Only the subset of the stub file syntax that this checker's stubs use is understood: {@code
+ * import} and {@code package} declarations, possibly nested class and interface declarations, and
+ * method and constructor declarations without bodies, annotated with marker annotations. Fields,
+ * bodies and annotations with arguments are rejected, so that nothing written in the stub file is
+ * silently dropped from the summary.
+ *
+ * <p>A method is identified by the binary name of its class, its name, and the simple names of the
+ * erasures of its parameter types, or the names of the type variables that are its parameter
+ * types.
+ *
+ * <p>The format is:
+ *
+ * <pre>
+ * int magic, int version, int count
+ * count * (string class, string method, int parameterCount, parameterCount * string parameter,
+ *          int annotationCount, annotationCount * string annotation)
+ * </pre>
+ *
+ * where a string is written by {@link DataOutputStream#writeUTF}.
+ */
+public class StubSummary {
+
+  /** The first four bytes of a summary: "DISS". */
+  private static final int MAGIC = 0x44495353;
+
+  /** The version of the summary format. */
+  private static final int VERSION = 1;
+
+  /** The package whose classes are visible in a stub file without an import. */
+  private static final String JAVA_LANG = "java.lang";
+
+  /** A method or constructor of the stub file, with its declaration annotations. */
+  private static final class Entry {
+
+    /** The binary name of the class that declares the method. */
+    final String className;
+
+    /** The name of the method, or {@code <init>} for a constructor. */
+    final String methodName;
+
+    /** The simple names of the parameter types, erased, or the names of type variables. */
+    final List<String> parameterTypes;
+
+    /** The fully-qualified names of the declaration annotations. */
+    final List<String> annotations;
+
+    Entry(
+        String className,
+        String methodName,
+        List<String> parameterTypes,
+        List<String> annotations) {
+      this.className = className;
+      this.methodName = methodName;
+      this.parameterTypes = parameterTypes;
+      this.annotations = annotations;
+    }
+  }
+
+  /** The entries of the summary, keyed by method name. */
+  private final Map<String, List<Entry>> entriesByMethodName = new HashMap<>();
+
+  /** The number of entries. */
+  private int size = 0;
+
+  private StubSummary() {}
+
+  /** Adds an entry to this summary. */
+  private void add(Entry entry) {
+    entriesByMethodName.computeIfAbsent(entry.methodName, name -> new ArrayList<>(2)).add(entry);
+    size++;
+  }
+
+  /**
+   * Returns true iff the summary has an entry for a method of the given name. This is a cheap test
+   * that rejects most methods before their class and parameters are named.
+   *
+   * @param methodName the name of a method, or {@code <init>}
+   * @return true iff some method of the summary has the name {@code methodName}
+   */
+  public boolean hasMethodName(String methodName) {
+    return entriesByMethodName.containsKey(methodName);
+  }
+
+  /**
+   * Returns the declaration annotations of a method.
+   *
+   * @param className the binary name of the class that declares the method
+   * @param methodName the name of the method, or {@code <init>}
+   * @param parameterTypes the simple names of the erasures of the parameter types, or the names of
+   *     the type variables that are parameter types
+   * @return the fully-qualified names of the annotations of the method; empty if the summary does
+   *     not list the method
+   */
+  public List<String> getDeclarationAnnotations(
+      String className, String methodName, List<String> parameterTypes) {
+    List<Entry> entries = entriesByMethodName.get(methodName);
+    if (entries != null) {
+      for (Entry entry : entries) {
+        if (entry.className.equals(className) && entry.parameterTypes.equals(parameterTypes)) {
+          return entry.annotations;
+        }
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  /** Returns the number of methods and constructors in this summary. */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Writes this summary.
+   *
+   * @param out the stream to write to
+   * @throws IOException if the summary cannot be written
+   */
+  public void write(OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(size);
+    for (List<Entry> entries : entriesByMethodName.values()) {
+      for (Entry entry : entries) {
+        data.writeUTF(entry.className);
+        data.writeUTF(entry.methodName);
+        writeStrings(data, entry.parameterTypes);
+        writeStrings(data, entry.annotations);
+      }
+    }
+    data.flush();
+  }
+
+  /** Writes a list of strings, preceded by its length. */
+  private static void writeStrings(DataOutputStream data, List<String> strings) throws IOException {
+    data.writeInt(strings.size());
+    for (String s : strings) {
+      data.writeUTF(s);
+    }
+  }
+
+  /**
+   * Reads a summary written by {@link #write}.
+   *
+   * @param in the stream to read from
+   * @return the summary
+   * @throws IOException if the stream cannot be read or is not a summary
+   */
+  public static StubSummary read(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+      throw new IOException("Not a stub summary");
+    }
+    StubSummary summary = new StubSummary();
+    int count = data.readInt();
+    for (int i = 0; i < count; i++) {
+      String className = data.readUTF();
+      String methodName = data.readUTF();
+      List<String> parameterTypes = readStrings(data);
+      List<String> annotations = readStrings(data);
+      summary.add(new Entry(className, methodName, parameterTypes, annotations));
+    }
+    return summary;
+  }
+
+  /** Reads a list of strings written by {@link #writeStrings}. */
+  private static List<String> readStrings(DataInputStream data) throws IOException {
+    int count = data.readInt();
+    if (count < 0) {
+      throw new IOException("Malformed stub summary");
+    }
+    List<String> strings = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      strings.add(data.readUTF());
+    }
+    return Collections.unmodifiableList(strings);
+  }
+
+  /**
+   * Compiles a stub file into a summary.
+   *
+   * @param stub the contents of the stub file
+   * @param isClass tells whether a fully-qualified name is the name of a class, to resolve the
+   *     simple names of annotations through wildcard imports
+   * @return the summary of {@code stub}
+   * @throws IllegalArgumentException if {@code stub} uses syntax that a summary cannot represent
+   */
+  public static StubSummary parse(String stub, Predicate<String> isClass) {
+    return new Parser(stripComments(stub), isClass).parse();
+  }
+
+  /**
+   * Compiles a stub file into a summary file. Invoked by the build.
+   *
+   * @param args the stub file and the summary file
+   * @throws IOException if a file cannot be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: StubSummary <stub file> <summary file>");
+      System.exit(2);
+    }
+    String stub = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8);
+    StubSummary summary =
+        parse(
+            stub,
+            name -> {
+              try {
+                Class.forName(name, false, StubSummary.class.getClassLoader());
+                return true;
+              } catch (ClassNotFoundException | LinkageError e) {
+                return false;
+              }
+            });
+    Path output = Paths.get(args[1]);
+    if (output.getParent() != null) {
+      Files.createDirectories(output.getParent());
+    }
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+      summary.write(out);
+    }
+  }
+
+  /** Replaces the comments of Java source with spaces, leaving string literals alone. */
+  private static String stripComments(String source) {
+    StringBuilder result = new StringBuilder(source.length());
+    int i = 0;
+    while (i < source.length()) {
+      char c = source.charAt(i);
+      if (c == '"' || c == '\'') {
+        int end = i + 1;
+        while (end < source.length() && source.charAt(end) != c) {
+          end += source.charAt(end) == '\\' ? 2 : 1;
+        }
+        end = Math.min(end + 1, source.length());
+        result.append(source, i, end);
+        i = end;
+      } else if (source.startsWith("//", i)) {
+        int end = source.indexOf('\n', i);
+        i = end < 0 ? source.length() : end;
+        result.append(' ');
+      } else if (source.startsWith("/*", i)) {
+        int end = source.indexOf("*/", i + 2);
+        i = end < 0 ? source.length() : end + 2;
+        result.append(' ');
+      } else {
+        result.append(c);
+        i++;
+      }
+    }
+    return result.toString();
+  }
+
+  /** Parses the subset of the stub file syntax described in {@link StubSummary}. */
+  private static final class Parser {
+
+    /** The stub file, without comments. */
+    private final String source;
+
+    /** Tells whether a fully-qualified name is the name of a class. */
+    private final Predicate<String> isClass;
+
+    /** The summary being built. */
+    private final StubSummary summary = new StubSummary();
+
+    /** The fully-qualified names of the single-type imports, keyed by simple name. */
+    private final Map<String, String> singleImports = new HashMap<>();
+
+    /** The packages of the on-demand imports. */
+    private final List<String> wildcardImports = new ArrayList<>();
+
+    /** The current package. */
+    private String packageName = "";
+
+    /** The binary names of the enclosing classes, innermost first. */
+    private final Deque<String> classes = new ArrayDeque<>();
+
+    Parser(String source, Predicate<String> isClass) {
+      this.source = source;
+      this.isClass = isClass;
+    }
+
+    /** Parses the stub file. */
+    StubSummary parse() {
+      StringBuilder segment = new StringBuilder();
+      int parens = 0;
+      for (int i = 0; i < source.length(); i++) {
+        char c = source.charAt(i);
+        if (c == '(') {
+          parens++;
+        } else if (c == ')') {
+          parens--;
+        }
+        if (parens == 0 && (c == ';' || c == '{' || c == '}')) {
+          String text = segment.toString().trim();
+          segment.setLength(0);
+          if (c == ';') {
+            statement(text);
+          } else if (c == '{') {
+            open(text);
+          } else {
+            if (!text.isEmpty()) {
+              throw new IllegalArgumentException("Unexpected text before '}': " + text);
+            }
+            classes.pop();
+          }
+        } else {
+          segment.append(c);
+        }
+      }
+      return summary;
+    }
+
+    /** Handles text that ends with a semicolon. */
+    private void statement(String text) {
+      if (text.isEmpty()) {
+        return;
+      }
+      if (text.startsWith("import ")) {
+        String imported = text.substring("import ".length()).replace(" ", "");
+        if (imported.startsWith("static")) {
+          return;
+        }
+        if (imported.endsWith(".*")) {
+          wildcardImports.add(imported.substring(0, imported.length() - 2));
+        } else {
+          singleImports.put(imported.substring(imported.lastIndexOf('.') + 1), imported);
+        }
+      } else if (text.startsWith("package ")) {
+        packageName = text.substring("package ".length()).trim();
+      } else if (classes.isEmpty()) {
+        throw new IllegalArgumentException("Unexpected declaration outside a class: " + text);
+      } else {
+        member(classes.peek(), text);
+      }
+    }
+
+    /** Handles text that ends with an opening brace. */
+    private void open(String text) {
+      List<String> annotations = new ArrayList<>();
+      String declaration = stripAnnotations(text, annotations);
+      String[] words = eraseTypeArguments(declaration).split("\\s+");
+      for (int i = 0; i + 1 < words.length; i++) {
+        if (words[i].equals("class")
+            || words[i].equals("interface")
+            || words[i].equals("enum")
+            || words[i].equals("@interface")) {
+          String enclosing = classes.peek();
+          String name =
+              enclosing != null
+                  ? enclosing + "$" + words[i + 1]
+                  : packageName.isEmpty() ? words[i + 1] : packageName + "." + words[i + 1];
+          classes.push(name);
+          return;
+        }
+      }
+      throw new IllegalArgumentException("Bodies are not supported in a stub summary: " + text);
+    }
+
+    /** Handles a member declaration of a class. */
+    private void member(String className, String text) {
+      List<String> annotationNames = new ArrayList<>();
+      String declaration = stripAnnotations(text, annotationNames).trim();
+      int open = declaration.indexOf('(');
+      if (open < 0) {
+        throw new IllegalArgumentException("Fields are not supported in a stub summary: " + text);
+      }
+      int close = declaration.lastIndexOf(')');
+      String[] words = declaration.substring(0, open).trim().split("\\s+");
+      String name = words[words.length - 1];
+      String simpleClassName = className.substring(className.lastIndexOf('$') + 1);
+      simpleClassName = simpleClassName.substring(simpleClassName.lastIndexOf('.') + 1);
+      if (name.equals(simpleClassName)) {
+        name = "<init>";
+      }
+
+      List<String> parameterTypes = new ArrayList<>();
+      String parameters = eraseTypeArguments(declaration.substring(open + 1, close)).trim();
+      if (!parameters.isEmpty()) {
+        for (String parameter : parameters.split(",")) {
+          List<String> parameterAnnotations = new ArrayList<>();
+          String[] parts = stripAnnotations(parameter, parameterAnnotations).trim().split("\\s+");
+          if (parts.length < 2) {
+            throw new IllegalArgumentException("Malformed parameter in a stub file: " + text);
+          }
+          String type = parts[parts.length - 2].replace("...", "[]");
+          parameterTypes.add(type.substring(type.lastIndexOf('.') + 1));
+        }
+      }
+
+      List<String> annotations = new ArrayList<>(annotationNames.size());
+      for (String annotation : annotationNames) {
+        annotations.add(resolve(annotation));
+      }
+      summary.add(
+          new Entry(
+              className,
+              name,
+              Collections.unmodifiableList(parameterTypes),
+              Collections.unmodifiableList(annotations)));
+    }
+
+    /**
+     * Removes the annotations from a declaration.
+     *
+     * @param text a declaration
+     * @param names receives the names of the annotations, as written
+     * @return {@code text} without its annotations
+     * @throws IllegalArgumentException if an annotation has arguments
+     */
+    private static String stripAnnotations(String text, List<String> names) {
+      StringBuilder result = new StringBuilder(text.length());
+      int i = 0;
+      while (i < text.length()) {
+        char c = text.charAt(i);
+        if (c == '@' && !text.startsWith("@interface", i)) {
+          int end = i + 1;
+          while (end < text.length()
+              && (Character.isJavaIdentifierPart(text.charAt(end)) || text.charAt(end) == '.')) {
+            end++;
+          }
+          names.add(text.substring(i + 1, end));
+          int next = end;
+          while (next < text.length() && Character.isWhitespace(text.charAt(next))) {
+            next++;
+          }
+          if (next < text.length() && text.charAt(next) == '(') {
+            throw new IllegalArgumentException(
+                "Annotations with arguments are not supported in a stub summary: " + text);
+          }
+          result.append(' ');
+          i = end;
+        } else {
+          result.append(c);
+          i++;
+        }
+      }
+      return result.toString();
+    }
+
+    /** Removes the type arguments and type parameters from a declaration. */
+    private static String eraseTypeArguments(String text) {
+      StringBuilder result = new StringBuilder(text.length());
+      int depth = 0;
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        if (c == '<') {
+          depth++;
+        } else if (c == '>') {
+          depth--;
+          result.append(' ');
+        } else if (depth == 0) {
+          result.append(c);
+        }
+      }
+      return result.toString();
+    }
+
+    /**
+     * Returns the fully-qualified name of an annotation.
+     *
+     * @param name the name of the annotation, as written in the stub file
+     * @return the fully-qualified name of the annotation
+     */
+    private String resolve(String name) {
+      if (name.contains(".")) {
+        return name;
+      }
+      String imported = singleImports.get(name);
+      if (imported != null) {
+        return imported;
+      }
+      for (String wildcard : wildcardImports) {
+        if (isClass.test(wildcard + "." + name)) {
+          return wildcard + "." + name;
+        }
+      }
+      if (wildcardImports.size() == 1) {
+        return wildcardImports.get(0) + "." + name;
+      }
+      return JAVA_LANG + "." + name;
+    }
+  }
+}
@@ -0,0 +1,198 @@
+package org.checkerframework.checker.dependencyinjection.utils;
+
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The type of a Guice <a href="https://github.com/google/guice/wiki/Bindings">binding key</a>: a
+ * class, or a parameterized class such as {@code List<Foo>} whose type arguments are type keys in
+ * turn. Guice distinguishes {@code List<Foo>} from {@code List<Bar>} and from the raw {@code List},
+ * and so do type keys. A type argument may also be a wildcard, such as {@code ? extends Foo}, so
+ * {@code List<? extends Foo>} is yet another key.
+ *
+ * <p>A type key is immutable, and its hash code is computed when it is created from the hash codes
+ * of its parts, so type keys are cheap to compare and to use as map keys. Its {@link #getName()
+ * name}, under which the bindings of the type are recorded in a {@link BindingRegistry}, is built
+ * the first time it is needed and then kept. The type factory interns type keys, so that within a
+ * compilation each type has one key and one name.
+ */
+public final class TypeKey {
+
+  /** The raw name of the key of the unbounded wildcard {@code ?}. */
+  private static final String WILDCARD = "?";
+
+  /** The raw name of the keys of wildcards with an upper bound, followed by the bound. */
+  private static final String WILDCARD_EXTENDS = "? extends ";
+
+  /** The raw name of the keys of wildcards with a lower bound, followed by the bound. */
+  private static final String WILDCARD_SUPER = "? super ";
+
+  /** The key of the unbounded wildcard. */
+  private static final TypeKey UNBOUNDED_WILDCARD = new TypeKey(WILDCARD, Collections.emptyList());
+
+  /**
+   * The binary name of the class, such as {@code java.util.Map$Entry}; or, for a wildcard, {@link
+   * #WILDCARD}, {@link #WILDCARD_EXTENDS} or {@link #WILDCARD_SUPER}.
+   */
+  private final String rawName;
+
+  /**
+   * The type arguments, or the empty list for a class that is not parameterized. The only argument
+   * of a bounded wildcard is its bound.
+   */
+  private final List<TypeKey> arguments;
+
+  /** The hash code of this key. */
+  private final int hash;
+
+  /** The name of this key, or null if it has not been built yet. */
+  private @Nullable String name;
+
+  /**
+   * Creates a type key.
+   *
+   * @param rawName the binary name of the class
+   * @param arguments the type arguments
+   */
+  private TypeKey(String rawName, List<TypeKey> arguments) {
+    this.rawName = rawName;
+    this.arguments = arguments;
+    this.hash = 31 * rawName.hashCode() + arguments.hashCode();
+    this.name = arguments.isEmpty() ? rawName : null;
+  }
+
+  /**
+   * Returns the key of a class that is not parameterized, or of the erasure of a class.
+   *
+   * @param rawName the binary name of the class
+   * @return the key of the class
+   */
+  public static TypeKey of(String rawName) {
+    return new TypeKey(rawName, Collections.emptyList());
+  }
+
+  /**
+   * Returns the key of a parameterized class.
+   *
+   * @param rawName the binary name of the class
+   * @param arguments the keys of the type arguments; not copied, so must not be modified
+   * @return the key of the parameterized class
+   */
+  public static TypeKey of(String rawName, List<TypeKey> arguments) {
+    return new TypeKey(rawName, Collections.unmodifiableList(arguments));
+  }
+
+  /**
+   * Returns the key of the unbounded wildcard {@code ?}, as a type argument. A wildcard bounded by
+   * {@code Object} is the unbounded wildcard.
+   *
+   * @return the key of the unbounded wildcard
+   */
+  public static TypeKey wildcard() {
+    return UNBOUNDED_WILDCARD;
+  }
+
+  /**
+   * Returns the key of a wildcard with an upper bound, such as {@code ? extends Foo}, as a type
+   * argument.
+   *
+   * @param bound the key of the upper bound
+   * @return the key of the wildcard
+   */
+  public static TypeKey wildcardExtends(TypeKey bound) {
+    return new TypeKey(WILDCARD_EXTENDS, Collections.singletonList(bound));
+  }
+
+  /**
+   * Returns the key of a wildcard with a lower bound, such as {@code ? super Foo}, as a type
+   * argument.
+   *
+   * @param bound the key of the lower bound
+   * @return the key of the wildcard
+   */
+  public static TypeKey wildcardSuper(TypeKey bound) {
+    return new TypeKey(WILDCARD_SUPER, Collections.singletonList(bound));
+  }
+
+  /**
+   * Returns the binary name of the class of this key, without its type arguments. For a wildcard,
+   * this is the wildcard without its bound, such as {@code ? extends }.
+   */
+  public String getRawName() {
+    return rawName;
+  }
+
+  /** Returns true iff this key is a wildcard type argument. */
+  public boolean isWildcard() {
+    return rawName.startsWith(WILDCARD);
+  }
+
+  /** Returns the type arguments of this key, or the empty list if it is not parameterized. */
+  public List<TypeKey> getArguments() {
+    return arguments;
+  }
+
+  /**
+   * Returns the name under which the bindings of this key are recorded: the binary name of the
+   * class, followed by the names of the type arguments in angle brackets, such as {@code
+   * java.util.List<com.example.Foo>} or {@code java.util.List<? extends com.example.Foo>}. The
+   * name of a key that is not parameterized is the binary name of its class, which is also the name
+   * the ClassVal Checker gives its class literal.
+   *
+   * @return the name of this key
+   */
+  public String getName() {
+    String result = name;
+    if (result == null && isWildcard()) {
+      result = rawName + arguments.get(0).getName();
+      name = result;
+    } else if (result == null) {
+      StringBuilder builder = new StringBuilder(rawName).append('<');
+      for (int i = 0; i < arguments.size(); i++) {
+        if (i > 0) {
+          builder.append(',');
+        }
+        builder.append(arguments.get(i).getName());
+      }
+      result = builder.append('>').toString();
+      name = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the binary name of the class of a key, given the name of the key.
+   *
+   * @param name the name of a key, as returned by {@link #getName()}
+   * @return the binary name of the class of the key
+   */
+  public static String rawName(String name) {
+    int typeArguments = name.indexOf('<');
+    return typeArguments < 0 ? name : name.substring(0, typeArguments);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof TypeKey)) {
+      return false;
+    }
+    TypeKey other = (TypeKey) obj;
+    return hash == other.hash
+        && rawName.equals(other.rawName)
+        && arguments.equals(other.arguments);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return getName();
+  }
+}
@@ -0,0 +1,255 @@
+package tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.checkerframework.checker.dependencyinjection.utils.BindingManifest;
+import org.checkerframework.checker.dependencyinjection.utils.BytecodeBindingExtractor;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import tests.bytecode.FixtureModule;
+
+/**
+ * Tests of {@link BytecodeBindingExtractor}: the bindings of {@link FixtureModule} are recovered
+ * from a directory and from stored, deflated and zip64 jars, and malformed jars contribute no
+ * bindings without failing the extraction.
+ */
+public class BytecodeBindingExtractorTest {
+
+  /** The name of the class file of the fixture module in a jar or directory. */
+  private static final String FIXTURE_ENTRY = "tests/bytecode/FixtureModule.class";
+
+  /** The size of the record at the end of the central directory of a jar without a comment. */
+  private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void directory() throws Exception {
+    Path directory = folder.newFolder("classes").toPath();
+    Path classFile = directory.resolve(FIXTURE_ENTRY);
+    Files.createDirectories(classFile.getParent());
+    Files.write(classFile, fixtureClassFile());
+    assertFixtureBindings(extract(directory));
+  }
+
+  @Test
+  public void storedJar() throws Exception {
+    assertFixtureBindings(extract(writeJar("stored.jar", ZipEntry.STORED, 0)));
+  }
+
+  @Test
+  public void deflatedJar() throws Exception {
+    assertFixtureBindings(extract(writeJar("deflated.jar", ZipEntry.DEFLATED, 0)));
+  }
+
+  @Test
+  public void zip64Jar() throws Exception {
+    // ZipOutputStream writes a zip64 central directory for 0xFFFF entries or more.
+    Path jar = writeJar("zip64.jar", ZipEntry.DEFLATED, 0xFFFF);
+    ByteBuffer end = endOfCentralDirectory(Files.readAllBytes(jar));
+    Assert.assertEquals(0xFFFF, end.getShort(10) & 0xFFFF);
+    assertFixtureBindings(extract(jar));
+  }
+
+  @Test
+  public void truncatedJar() throws Exception {
+    byte[] jar = Files.readAllBytes(writeJar("whole.jar", ZipEntry.STORED, 0));
+    assertMalformed(Arrays.copyOf(jar, jar.length / 2));
+  }
+
+  @Test
+  public void notAJar() throws Exception {
+    assertMalformed("not a jar".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void badDirectoryOffset() throws Exception {
+    byte[] jar = Files.readAllBytes(writeJar("whole.jar", ZipEntry.STORED, 0));
+    endOfCentralDirectory(jar).putInt(16, 0x7FFFFFF0);
+    assertMalformed(jar);
+  }
+
+  @Test
+  public void badEntryCount() throws Exception {
+    byte[] jar = Files.readAllBytes(writeJar("whole.jar", ZipEntry.STORED, 0));
+    endOfCentralDirectory(jar).putShort(10, (short) 1000);
+    assertMalformed(jar);
+  }
+
+  @Test
+  public void badLocalHeaderOffset() throws Exception {
+    byte[] jar = Files.readAllBytes(writeJar("whole.jar", ZipEntry.STORED, 0));
+    ByteBuffer in = ByteBuffer.wrap(jar).order(ByteOrder.LITTLE_ENDIAN);
+    int directory = endOfCentralDirectory(jar).getInt(16);
+    in.putInt(directory + 42, jar.length - 10);
+    assertMalformed(jar);
+  }
+
+  @Test
+  public void badSizes() throws Exception {
+    byte[] jar = Files.readAllBytes(writeJar("whole.jar", ZipEntry.DEFLATED, 0));
+    ByteBuffer in = ByteBuffer.wrap(jar).order(ByteOrder.LITTLE_ENDIAN);
+    int directory = endOfCentralDirectory(jar).getInt(16);
+    in.putInt(directory + 20, Integer.MAX_VALUE);
+    in.putInt(directory + 24, -1);
+    assertMalformed(jar);
+  }
+
+  @Test
+  public void malformedClassFile() throws Exception {
+    byte[] classFile = fixtureClassFile();
+    assertMalformed(jar(Arrays.copyOf(classFile, classFile.length / 2), ZipEntry.STORED, 0));
+  }
+
+  @Test
+  public void malformedJarDoesNotHideOthers() throws Exception {
+    Path malformed = folder.getRoot().toPath().resolve("malformed.jar");
+    byte[] jar = Files.readAllBytes(writeJar("whole.jar", ZipEntry.STORED, 0));
+    Files.write(malformed, Arrays.copyOf(jar, jar.length - 1));
+    Path good = writeJar("good.jar", ZipEntry.DEFLATED, 0);
+    List<Path> classpath = Arrays.asList(malformed, good);
+    assertFixtureBindings(BytecodeBindingExtractor.extract(classpath, ForkJoinPool.commonPool()));
+  }
+
+  /**
+   * Checks that a manifest has the bindings of {@link FixtureModule}.
+   *
+   * @param manifest the bindings extracted from the fixture module
+   */
+  private static void assertFixtureBindings(BindingManifest manifest) {
+    BindingManifest.Entry service = manifest.lookup("tests.bytecode.Service", null);
+    Assert.assertNotNull(service);
+    Assert.assertEquals("tests.bytecode.ServiceImpl", service.getTarget());
+    Assert.assertTrue(service.isLinked());
+
+    BindingManifest.Entry url = manifest.lookup("java.lang.String", "@Named(url)");
+    Assert.assertNotNull(url);
+    Assert.assertEquals("java.lang.String", url.getTarget());
+    Assert.assertFalse(url.isLinked());
+
+    BindingManifest.Entry bound = manifest.lookup("java.lang.Long", null);
+    Assert.assertNotNull(bound);
+    Assert.assertNull(bound.getTarget());
+  }
+
+  /**
+   * Checks that a malformed jar is skipped without an exception.
+   *
+   * @param contents the contents of the jar
+   */
+  private void assertMalformed(byte[] contents) throws Exception {
+    Path jar = folder.newFile().toPath();
+    Files.write(jar, contents);
+    BindingManifest manifest = extract(jar);
+    Assert.assertNull(manifest.lookup("tests.bytecode.Service", null));
+  }
+
+  /** Extracts the bindings of one classpath entry. */
+  private static BindingManifest extract(Path entry) throws Exception {
+    return BytecodeBindingExtractor.extract(
+        Collections.singletonList(entry), ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Writes a jar that holds the fixture module.
+   *
+   * @param name the file name of the jar
+   * @param method the compression method of the entries
+   * @param paddingEntries the number of empty entries to write before the fixture module
+   * @return the jar
+   */
+  private Path writeJar(String name, int method, int paddingEntries) throws IOException {
+    Path jar = folder.getRoot().toPath().resolve(name);
+    Files.write(jar, jar(fixtureClassFile(), method, paddingEntries));
+    return jar;
+  }
+
+  /**
+   * Returns the contents of a jar that holds a class file as the fixture module.
+   *
+   * @param classFile the contents of the class file
+   * @param method the compression method of the entries
+   * @param paddingEntries the number of empty entries to write before the class file
+   * @return the contents of the jar
+   */
+  private static byte[] jar(byte[] classFile, int method, int paddingEntries) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+      for (int i = 0; i < paddingEntries; i++) {
+        putEntry(out, "padding/" + i, new byte[0], method);
+      }
+      putEntry(out, FIXTURE_ENTRY, classFile, method);
+    }
+    return bytes.toByteArray();
+  }
+
+  /** Writes one entry of a jar. */
+  private static void putEntry(ZipOutputStream out, String name, byte[] contents, int method)
+      throws IOException {
+    ZipEntry entry = new ZipEntry(name);
+    entry.setMethod(method);
+    if (method == ZipEntry.STORED) {
+      CRC32 crc = new CRC32();
+      crc.update(contents);
+      entry.setSize(contents.length);
+      entry.setCompressedSize(contents.length);
+      entry.setCrc(crc.getValue());
+    }
+    out.putNextEntry(entry);
+    out.write(contents);
+    out.closeEntry();
+  }
+
+  /**
+   * Returns the end of the central directory of a jar without a comment.
+   *
+   * @param jar the contents of the jar; writes to the result change it
+   * @return the record, in little-endian order, positioned at its start
+   */
+  private static ByteBuffer endOfCentralDirectory(byte[] jar) {
+    ByteBuffer in = ByteBuffer.wrap(jar).order(ByteOrder.LITTLE_ENDIAN);
+    in.position(jar.length - END_OF_CENTRAL_DIRECTORY_SIZE);
+    return in.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /** Returns the class file of the fixture module. */
+  static byte[] fixtureClassFile() throws IOException {
+    return resource("FixtureModule.class");
+  }
+
+  /**
+   * Returns a class file of the fixture package.
+   *
+   * @param name the file name of the class file
+   * @return its contents
+   */
+  static byte[] resource(String name) throws IOException {
+    try (InputStream in = FixtureModule.class.getResourceAsStream(name)) {
+      if (in == null) {
+        throw new IOException("Missing test resource " + name);
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] chunk = new byte[8192];
+      int n;
+      while ((n = in.read(chunk)) != -1) {
+        bytes.write(chunk, 0, n);
+      }
+      return bytes.toByteArray();
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package tests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.checkerframework.checker.dependencyinjection.utils.ClassFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests of {@link ClassFile}, on the class files of the {@code tests.bytecode} fixtures. */
+public class ClassFileTest {
+
+  @Test
+  public void readsModule() throws IOException {
+    ClassFile classFile =
+        ClassFile.read(ByteBuffer.wrap(BytecodeBindingExtractorTest.fixtureClassFile()));
+    Assert.assertEquals("tests/bytecode/FixtureModule", classFile.getName());
+    Assert.assertEquals("com/google/inject/AbstractModule", classFile.getSuperName());
+    Assert.assertTrue(classFile.mentionsGuice());
+    boolean configure = false;
+    for (ClassFile.Method method : classFile.getMethods()) {
+      if (method.name.equals("configure") && method.descriptor.equals("()V")) {
+        configure = true;
+        Assert.assertFalse(method.isStatic());
+        Assert.assertTrue(method.code.remaining() > 0);
+      }
+    }
+    Assert.assertTrue(configure);
+  }
+
+  @Test
+  public void readsClassWithoutGuice() throws IOException {
+    ClassFile classFile =
+        ClassFile.read(ByteBuffer.wrap(BytecodeBindingExtractorTest.resource("ServiceImpl.class")));
+    Assert.assertEquals("tests/bytecode/ServiceImpl", classFile.getName());
+    Assert.assertEquals("java/lang/Object", classFile.getSuperName());
+    Assert.assertFalse(classFile.mentionsGuice());
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsBadMagic() throws IOException {
+    byte[] contents = BytecodeBindingExtractorTest.fixtureClassFile();
+    contents[0] = 0;
+    ClassFile.read(ByteBuffer.wrap(contents));
+  }
+
+  @Test
+  public void rejectsTruncatedClassFiles() throws IOException {
+    byte[] contents = BytecodeBindingExtractorTest.fixtureClassFile();
+    // Cutting a class file anywhere must fail with an IOException, not another exception; the
+    // attributes of the class itself are not read, so a cut among them may go unnoticed.
+    for (int length = 0; length < contents.length; length++) {
+      try {
+        ClassFile.read(ByteBuffer.wrap(Arrays.copyOf(contents, length)));
+      } catch (IOException e) {
+        // Expected.
+      }
+    }
+  }
+
+  @Test
+  public void rejectsCorruptedClassFiles() throws IOException {
+    byte[] contents = BytecodeBindingExtractorTest.fixtureClassFile();
+    // Setting any byte to an extreme value must not fail with another exception than IOException.
+    for (int i = 0; i < contents.length; i++) {
+      for (byte value : new byte[] {0, (byte) 0x7F, (byte) 0xFF}) {
+        byte[] corrupted = contents.clone();
+        corrupted[i] = value;
+        try {
+          ClassFile.read(ByteBuffer.wrap(corrupted));
+        } catch (IOException e) {
+          // Expected.
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package tests;
+
+import java.io.File;
+import java.util.List;
+import org.checkerframework.checker.dependencyinjection.DependencyInjectionChecker;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Runs the tests of the Dependency Injection Checker with {@code -AdiSyntacticBindings}, which
+ * must not change the errors the checker reports.
+ */
+public class DependencyInjectionSyntacticBindingsTest extends CheckerFrameworkPerDirectoryTest {
+  public DependencyInjectionSyntacticBindingsTest(List<File> testFiles) {
+    super(
+        testFiles,
+        DependencyInjectionChecker.class,
+        "dependencyinjection",
+        "-Anomsgtext",
+        "-Astubs=stubs/",
+        "-AdiSyntacticBindings",
+        "-nowarn");
+  }
+
+  @Parameters
+  public static String[] getTestDirs() {
+    return new String[] {"dependencyinjection"};
+  }
+}
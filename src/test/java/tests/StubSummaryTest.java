@@ -0,0 +1,111 @@
+package tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.dependencyinjection.utils.StubSummary;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests of {@link StubSummary}: the summary of {@code Guice.astub} gives {@code @Pure} to the
+ * methods of the binding DSL that the transfer function relies on, both when the stub file is
+ * parsed and after the summary is written and read back.
+ */
+public class StubSummaryTest {
+
+  /** The stub file that the build compiles into a summary. */
+  private static final String GUICE_STUB =
+      "src/main/java/org/checkerframework/checker/dependencyinjection/Guice.astub";
+
+  /** The fully-qualified name of {@code @Pure}. */
+  private static final String PURE = "org.checkerframework.dataflow.qual.Pure";
+
+  @Test
+  public void parsesGuiceStub() throws IOException {
+    assertGuiceMethodsArePure(parseGuiceStub());
+  }
+
+  @Test
+  public void roundTrips() throws IOException {
+    StubSummary parsed = parseGuiceStub();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    parsed.write(bytes);
+    StubSummary read = StubSummary.read(new ByteArrayInputStream(bytes.toByteArray()));
+    Assert.assertEquals(parsed.size(), read.size());
+    assertGuiceMethodsArePure(read);
+  }
+
+  @Test
+  public void unlistedMethodsHaveNoAnnotations() throws IOException {
+    StubSummary summary = parseGuiceStub();
+    Assert.assertFalse(summary.hasMethodName("install"));
+    Assert.assertEquals(
+        Collections.emptyList(),
+        summary.getDeclarationAnnotations(
+            "com.google.inject.AbstractModule", "install", Arrays.asList("Module")));
+    // The same name with other parameter types is another method.
+    Assert.assertEquals(
+        Collections.emptyList(),
+        summary.getDeclarationAnnotations(
+            "com.google.inject.AbstractModule", "bind", Arrays.asList("Object")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsFields() {
+    StubSummary.parse("package p;\nclass C {\n  int field;\n}\n", name -> true);
+  }
+
+  /**
+   * Checks that the methods of the binding DSL are {@code @Pure} in a summary of {@code
+   * Guice.astub}.
+   *
+   * @param summary the summary of {@code Guice.astub}
+   */
+  private static void assertGuiceMethodsArePure(StubSummary summary) {
+    assertPure(summary, "com.google.inject.AbstractModule", "bind", "Class");
+    assertPure(summary, "com.google.inject.AbstractModule", "bind", "TypeLiteral");
+    assertPure(summary, "com.google.inject.AbstractModule", "bind", "Key");
+    String builder = "com.google.inject.binder.AnnotatedBindingBuilder";
+    assertPure(summary, builder, "annotatedWith", "Class");
+    assertPure(summary, builder, "annotatedWith", "Annotation");
+    assertPure(summary, "com.google.inject.name.Names", "named", "String");
+  }
+
+  /**
+   * Checks that a summary gives a method {@code @Pure}.
+   *
+   * @param summary a summary
+   * @param className the binary name of the class of the method
+   * @param methodName the name of the method
+   * @param parameterTypes the simple names of the parameter types of the method
+   */
+  private static void assertPure(
+      StubSummary summary, String className, String methodName, String... parameterTypes) {
+    Assert.assertTrue(summary.hasMethodName(methodName));
+    List<String> annotations =
+        summary.getDeclarationAnnotations(className, methodName, Arrays.asList(parameterTypes));
+    Assert.assertEquals(Collections.singletonList(PURE), annotations);
+  }
+
+  /** Parses {@code Guice.astub} as the build does. */
+  private static StubSummary parseGuiceStub() throws IOException {
+    String stub = new String(Files.readAllBytes(Paths.get(GUICE_STUB)), StandardCharsets.UTF_8);
+    return StubSummary.parse(
+        stub,
+        name -> {
+          try {
+            Class.forName(name, false, StubSummaryTest.class.getClassLoader());
+            return true;
+          } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+          }
+        });
+  }
+}
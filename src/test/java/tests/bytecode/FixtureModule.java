@@ -0,0 +1,22 @@
+package tests.bytecode;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.name.Names;
+
+/**
+ * A module whose compiled class file is the input of {@code BytecodeBindingExtractorTest} and
+ * {@code ClassFileTest}. The tests write it into jars and directories themselves, so that every
+ * layout they exercise starts from the class file of the current build.
+ */
+public class FixtureModule extends AbstractModule {
+  @Override
+  protected void configure() {
+    bind(Service.class).to(ServiceImpl.class);
+    bind(String.class).annotatedWith(Names.named("url")).toInstance("http://localhost");
+    bind(Long.class);
+  }
+}
+
+interface Service {}
+
+class ServiceImpl implements Service {}
@@ -0,0 +1,53 @@
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.google.inject.Stage;
+import java.util.logging.Logger;
+
+public class BuiltInDependencies {
+  static class DemoModule extends AbstractModule {
+    @Override
+    protected void configure() {
+      bind(Service.class).to(ServiceImpl.class);
+    }
+  }
+
+  interface Service {}
+
+  static class ServiceImpl implements Service {}
+
+  interface Transport {}
+
+  static class Client {
+    @Inject Injector injector;
+    @Inject Logger logger;
+    @Inject Stage stage;
+    @Inject Provider<Service> service;
+    @Inject javax.inject.Provider<Service> javaxService;
+
+    // :: error: missing.implementation
+    @Inject Provider<Transport> transport;
+
+    @Inject(optional = true)
+    Transport optionalTransport;
+
+    @Inject(optional = true)
+    void setTransport(Transport transport) {}
+  }
+
+  static class Chicken {
+    @Inject
+    Chicken(Provider<Egg> egg) {}
+  }
+
+  static class Egg {
+    @Inject
+    Egg(Chicken chicken) {}
+  }
+
+  static class Farm {
+    @Inject Chicken chicken;
+    @Inject Egg egg;
+  }
+}
@@ -0,0 +1,34 @@
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import com.google.inject.TypeLiteral;
+import java.util.Arrays;
+import java.util.List;
+
+public class GenericBindings {
+  static class DemoModule extends AbstractModule {
+    @Override
+    protected void configure() {
+      bind(new TypeLiteral<List<String>>() {}).toInstance(Arrays.asList("a", "b"));
+      bind(new TypeLiteral<List<? extends Number>>() {}).toInstance(Arrays.asList(1, 2));
+    }
+  }
+
+  static class Client {
+    @Inject List<String> names;
+
+    // :: error: missing.implementation
+    @Inject List<Integer> counts;
+
+    @Inject List<? extends Number> numbers;
+
+    // Guice keys wildcards exactly, so none of these is bound by List<? extends Number>.
+    // :: error: missing.implementation
+    @Inject List<? super Number> sinks;
+
+    // :: error: missing.implementation
+    @Inject List<?> anything;
+
+    // :: error: missing.implementation
+    @Inject List rawList;
+  }
+}
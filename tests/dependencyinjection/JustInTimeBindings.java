@@ -0,0 +1,113 @@
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import com.google.inject.Provides;
+import java.lang.annotation.Retention;
+import javax.inject.Qualifier;
+
+public class JustInTimeBindings {
+  static class DemoModule extends AbstractModule {
+    @Override
+    protected void configure() {
+      bind(Service.class).to(ServiceImpl.class);
+    }
+  }
+
+  interface Service {}
+
+  static class Clock {}
+
+  static class ServiceImpl implements Service {
+    @Inject
+    ServiceImpl(Clock clock) {}
+  }
+
+  static class Greeter {
+    @Inject
+    Greeter(Service service) {}
+  }
+
+  interface Transport {}
+
+  static class Mailer {
+    @Inject
+    Mailer(
+        // :: error: missing.implementation
+        Transport transport) {}
+  }
+
+  static class Chicken {
+    @Inject
+    Chicken(
+        // :: error: dependency.cycle
+        Egg egg) {}
+  }
+
+  static class Egg {
+    @Inject
+    Egg(
+        // :: error: dependency.cycle
+        Chicken chicken) {}
+  }
+
+  class Inner {}
+
+  static class Client {
+    @Inject Greeter greeter;
+
+    // :: error: missing.transitive.dependency
+    @Inject Mailer mailer;
+
+    // :: error: dependency.cycle
+    @Inject Chicken chicken;
+
+    // :: error: missing.implementation
+    @Inject Inner inner;
+  }
+
+  @Qualifier @Retention(RUNTIME)
+  @interface Message {}
+
+  @Qualifier @Retention(RUNTIME)
+  @interface Count {}
+
+  @Qualifier @Retention(RUNTIME)
+  @interface Signature {}
+
+  static class MessageModule extends AbstractModule {
+    @Provides
+    @Message
+    static String provideMessage() {
+      return "hello world";
+    }
+
+    @Provides
+    @Count
+    static Integer provideCount() {
+      return 3;
+    }
+  }
+
+  // Every dependency of MessageGreeter is provided, so Guice can create it just in time.
+  static class MessageGreeter {
+    @Inject
+    MessageGreeter(@Message String message, @Count int count) {}
+  }
+
+  // Nothing provides the signature, so Guice cannot create SignedGreeter.
+  static class SignedGreeter {
+    @Inject
+    SignedGreeter(
+        @Message String message,
+        // :: error: missing.implementation
+        @Signature String signature) {}
+  }
+
+  static class GreeterClient {
+    @Inject MessageGreeter greeter;
+
+    // :: error: missing.transitive.dependency
+    @Inject SignedGreeter signedGreeter;
+  }
+}
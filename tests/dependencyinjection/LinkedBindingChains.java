@@ -0,0 +1,29 @@
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+
+public class LinkedBindingChains {
+  static class DemoModule extends AbstractModule {
+    @Override
+    protected void configure() {
+      bind(Repository.class).to(CachingRepository.class);
+      bind(CachingRepository.class).to(DatabaseRepository.class);
+
+      bind(Clock.class).to(Clock.class);
+    }
+  }
+
+  interface Repository {}
+
+  interface CachingRepository extends Repository {}
+
+  static class DatabaseRepository implements CachingRepository {}
+
+  interface Clock {}
+
+  static class Client {
+    @Inject Repository repository;
+
+    // :: error: binding.cycle
+    @Inject Clock clock;
+  }
+}
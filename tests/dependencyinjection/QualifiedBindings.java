@@ -0,0 +1,31 @@
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.google.inject.name.Names;
+
+public class QualifiedBindings {
+  static class DemoModule extends AbstractModule {
+    @Override
+    protected void configure() {
+      bind(String.class).annotatedWith(Names.named("primary url")).toInstance("jdbc:primary");
+      bind(String.class).annotatedWith(Names.named("replica url")).toInstance("jdbc:replica");
+      bind(Cache.class).annotatedWith(Names.named("local")).to(LocalCache.class);
+    }
+  }
+
+  interface Cache {}
+
+  static class LocalCache implements Cache {}
+
+  static class Database {
+    @Inject
+    public Database(
+        @Named("primary url") String primaryUrl,
+        @Named("replica url") String replicaUrl,
+        // :: error: missing.implementation
+        @Named("backup url") String backupUrl,
+        @Named("local") Cache localCache,
+        // :: error: missing.implementation
+        @Named("remote") Cache remoteCache) {}
+  }
+}
@@ -0,0 +1,24 @@
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+
+public class UnboundInjectionPoint {
+  static class DemoModule extends AbstractModule {
+    @Override
+    protected void configure() {
+      bind(Service.class).to(ServiceImpl.class);
+    }
+  }
+
+  interface Service {}
+
+  static class ServiceImpl implements Service {}
+
+  interface Unbound {}
+
+  static class Client {
+    @Inject Service service;
+
+    // :: error: missing.implementation
+    @Inject Unbound unbound;
+  }
+}